@@ -0,0 +1,68 @@
+package com.krouser.backend.audit.controller;
+
+import com.krouser.backend.audit.dto.AuditCountersSnapshot;
+import com.krouser.backend.audit.dto.AuditEventFilter;
+import com.krouser.backend.audit.dto.AuditEventSummary;
+import com.krouser.backend.audit.service.AuditCounters;
+import com.krouser.backend.audit.service.AuditQueryService;
+import com.krouser.backend.audit.service.AuditRollupService;
+import com.krouser.backend.shared.dto.ApiResponse;
+import com.krouser.backend.shared.dto.CursorPage;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/audit")
+public class AuditController {
+
+    private final AuditQueryService auditQueryService;
+    private final AuditCounters auditCounters;
+    private final AuditRollupService auditRollupService;
+
+    public AuditController(AuditQueryService auditQueryService, AuditCounters auditCounters,
+            AuditRollupService auditRollupService) {
+        this.auditQueryService = auditQueryService;
+        this.auditCounters = auditCounters;
+        this.auditRollupService = auditRollupService;
+    }
+
+    @GetMapping("/events")
+    @PreAuthorize("hasRole('ADMIN') or hasAuthority('AUDIT_READ')")
+    public ResponseEntity<ApiResponse<CursorPage<AuditEventSummary>>> getEvents(AuditEventFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request) {
+        CursorPage<AuditEventSummary> events = auditQueryService.findEvents(filter, cursor, size);
+        return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Audit events retrieved successfully",
+                events, request.getRequestURI()));
+    }
+
+    @GetMapping("/counters")
+    @PreAuthorize("hasRole('ADMIN') or hasAuthority('AUDIT_READ')")
+    public ResponseEntity<ApiResponse<AuditCountersSnapshot>> getCounters(
+            @RequestParam(defaultValue = "node") String scope,
+            @RequestParam(defaultValue = "minute") String resolution,
+            @RequestParam(required = false) Integer buckets,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String outcome,
+            HttpServletRequest request) {
+        AuditCounters.Resolution parsed = AuditCounters.Resolution.parse(resolution);
+        AuditCountersSnapshot counters;
+        if ("cluster".equalsIgnoreCase(scope)) {
+            counters = auditRollupService.clusterSnapshot(parsed, buckets, action, category, outcome);
+        } else if ("node".equalsIgnoreCase(scope)) {
+            counters = auditCounters.snapshot(parsed, action, category, outcome);
+        } else {
+            throw new IllegalArgumentException("scope debe ser node o cluster");
+        }
+        return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Audit counters retrieved successfully",
+                counters, request.getRequestURI()));
+    }
+}
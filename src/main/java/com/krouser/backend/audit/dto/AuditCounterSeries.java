@@ -0,0 +1,66 @@
+package com.krouser.backend.audit.dto;
+
+/**
+ * Event counts of one (action, category, outcome) combination, one per bucket, oldest
+ * first.
+ */
+public class AuditCounterSeries {
+    private String action;
+    private String category;
+    private String outcome;
+    private long total;
+    private long[] counts;
+
+    public AuditCounterSeries() {
+    }
+
+    public AuditCounterSeries(String action, String category, String outcome, long[] counts) {
+        this.action = action;
+        this.category = category;
+        this.outcome = outcome;
+        this.counts = counts;
+        for (long count : counts) {
+            this.total += count;
+        }
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long[] getCounts() {
+        return counts;
+    }
+
+    public void setCounts(long[] counts) {
+        this.counts = counts;
+    }
+}
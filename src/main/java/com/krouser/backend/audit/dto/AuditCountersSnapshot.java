@@ -0,0 +1,69 @@
+package com.krouser.backend.audit.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Audit event counts at one resolution. Every series has one count per bucket of
+ * {@code bucketSeconds}, oldest first; the last bucket starts at {@code lastBucketUtc}
+ * and, for the node scope, is still in progress.
+ */
+public class AuditCountersSnapshot {
+    private String scope;
+    private String resolution;
+    private long bucketSeconds;
+    private LocalDateTime lastBucketUtc;
+    private List<AuditCounterSeries> series;
+
+    public AuditCountersSnapshot() {
+    }
+
+    public AuditCountersSnapshot(String scope, String resolution, long bucketSeconds, LocalDateTime lastBucketUtc,
+            List<AuditCounterSeries> series) {
+        this.scope = scope;
+        this.resolution = resolution;
+        this.bucketSeconds = bucketSeconds;
+        this.lastBucketUtc = lastBucketUtc;
+        this.series = series;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public long getBucketSeconds() {
+        return bucketSeconds;
+    }
+
+    public void setBucketSeconds(long bucketSeconds) {
+        this.bucketSeconds = bucketSeconds;
+    }
+
+    public LocalDateTime getLastBucketUtc() {
+        return lastBucketUtc;
+    }
+
+    public void setLastBucketUtc(LocalDateTime lastBucketUtc) {
+        this.lastBucketUtc = lastBucketUtc;
+    }
+
+    public List<AuditCounterSeries> getSeries() {
+        return series;
+    }
+
+    public void setSeries(List<AuditCounterSeries> series) {
+        this.series = series;
+    }
+}
@@ -0,0 +1,192 @@
+package com.krouser.backend.audit.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the audit listing. {@code details} is only loaded (and serialized) when the
+ * caller asks for it, and is emitted as the JSON object stored in the column.
+ */
+public class AuditEventSummary {
+    private long id;
+    private String eventId;
+    private LocalDateTime eventTimeUtc;
+    private String action;
+    private String category;
+    private String outcome;
+    private String actorUserIdPublic;
+    private String actorUsername;
+    private String entityType;
+    private String entityIdPublic;
+    private String requestId;
+    private Integer httpStatus;
+    private String httpMethod;
+    private String path;
+    private String ip;
+    private int occurrenceCount;
+
+    // Only on rows that stand for several coalesced occurrences
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDateTime firstSeenUtc;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDateTime lastSeenUtc;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonRawValue
+    private String details;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public LocalDateTime getEventTimeUtc() {
+        return eventTimeUtc;
+    }
+
+    public void setEventTimeUtc(LocalDateTime eventTimeUtc) {
+        this.eventTimeUtc = eventTimeUtc;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    public String getActorUserIdPublic() {
+        return actorUserIdPublic;
+    }
+
+    public void setActorUserIdPublic(String actorUserIdPublic) {
+        this.actorUserIdPublic = actorUserIdPublic;
+    }
+
+    public String getActorUsername() {
+        return actorUsername;
+    }
+
+    public void setActorUsername(String actorUsername) {
+        this.actorUsername = actorUsername;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public String getEntityIdPublic() {
+        return entityIdPublic;
+    }
+
+    public void setEntityIdPublic(String entityIdPublic) {
+        this.entityIdPublic = entityIdPublic;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public Integer getHttpStatus() {
+        return httpStatus;
+    }
+
+    public void setHttpStatus(Integer httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public void setHttpMethod(String httpMethod) {
+        this.httpMethod = httpMethod;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
+
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    public void setOccurrenceCount(int occurrenceCount) {
+        this.occurrenceCount = occurrenceCount;
+    }
+
+    public LocalDateTime getFirstSeenUtc() {
+        return firstSeenUtc;
+    }
+
+    public void setFirstSeenUtc(LocalDateTime firstSeenUtc) {
+        this.firstSeenUtc = firstSeenUtc;
+    }
+
+    public LocalDateTime getLastSeenUtc() {
+        return lastSeenUtc;
+    }
+
+    public void setLastSeenUtc(LocalDateTime lastSeenUtc) {
+        this.lastSeenUtc = lastSeenUtc;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public void setDetails(String details) {
+        this.details = details;
+    }
+}
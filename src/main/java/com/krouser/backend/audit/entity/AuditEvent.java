@@ -8,15 +8,21 @@ import java.time.LocalDateTime;
         @Index(name = "idx_audit_event_time", columnList = "event_time_utc"),
         @Index(name = "idx_audit_request_id", columnList = "request_id"),
         @Index(name = "idx_audit_actor_time", columnList = "actor_user_id_public, event_time_utc"),
-        @Index(name = "idx_audit_entity_type_id", columnList = "entity_type, entity_id_public"),
+        @Index(name = "idx_audit_entity_time", columnList = "entity_type, entity_id_public, event_time_utc"),
         @Index(name = "idx_audit_action_time", columnList = "action, event_time_utc")
-})
+}, // Includes event_time_utc because MySQL requires the partitioning column in every unique key
+        uniqueConstraints = @UniqueConstraint(name = "uk_audit_event_id", columnNames = { "event_id",
+                "event_time_utc" }))
 public class AuditEvent {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Generated by the application, so a journaled event replayed twice is inserted once
+    @Column(name = "event_id", length = 36)
+    private String eventId;
+
     @Column(name = "event_time_utc", nullable = false)
     private LocalDateTime eventTimeUtc;
 
@@ -66,9 +72,20 @@ public class AuditEvent {
     @Column(name = "user_agent", length = 255)
     private String userAgent;
 
-    @Column(columnDefinition = "TEXT")
+    // JSON object written by AuditDetailsBuilder
+    @Column(columnDefinition = "JSON")
     private String details;
 
+    // Set on rows that stand for several coalesced occurrences (see AuditCoalescer)
+    @Column(name = "occurrence_count", nullable = false)
+    private int occurrenceCount = 1;
+
+    @Column(name = "first_seen_utc")
+    private LocalDateTime firstSeenUtc;
+
+    @Column(name = "last_seen_utc")
+    private LocalDateTime lastSeenUtc;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -87,6 +104,14 @@ public class AuditEvent {
         this.id = id;
     }
 
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
     public LocalDateTime getEventTimeUtc() {
         return eventTimeUtc;
     }
@@ -223,6 +248,30 @@ public class AuditEvent {
         this.details = details;
     }
 
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    public void setOccurrenceCount(int occurrenceCount) {
+        this.occurrenceCount = occurrenceCount;
+    }
+
+    public LocalDateTime getFirstSeenUtc() {
+        return firstSeenUtc;
+    }
+
+    public void setFirstSeenUtc(LocalDateTime firstSeenUtc) {
+        this.firstSeenUtc = firstSeenUtc;
+    }
+
+    public LocalDateTime getLastSeenUtc() {
+        return lastSeenUtc;
+    }
+
+    public void setLastSeenUtc(LocalDateTime lastSeenUtc) {
+        this.lastSeenUtc = lastSeenUtc;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
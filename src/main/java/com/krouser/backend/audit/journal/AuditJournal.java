@@ -0,0 +1,412 @@
+package com.krouser.backend.audit.journal;
+
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.audit.service.AuditRecord;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only journal for audit events that could not reach the database.
+ * <p>
+ * Events are appended to memory-mapped segment files of {@code segment-bytes} each. Every
+ * record is framed as {@code [length][crc32][payload]}; the length is written last, so a
+ * record torn by a crash reads as the end of the segment and a corrupt one fails its CRC.
+ * Only sealed segments are replayed: the active one is sealed on demand by
+ * {@link #sealActive()} and a new one is opened on the next append. A segment that cannot
+ * be replayed in full is moved to {@code quarantine-dir} for inspection instead of being
+ * deleted.
+ */
+@Component
+public class AuditJournal implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditJournal.class);
+
+    private static final int MAGIC = 0x41554a31; // "AUJ1"
+    // Record layout, second header int; 0: original fields, 1: + occurrence count and first/last seen
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8;
+    private static final String SUFFIX = ".seg";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Path quarantineDirectory;
+    private final int segmentBytes;
+    private final boolean forceOnAppend;
+
+    // Sealed segments by sequence number, oldest first; guarded by this
+    private final TreeMap<Long, Path> sealed = new TreeMap<>();
+    private long nextSequence;
+    private Path activePath;
+    private MappedByteBuffer active;
+    private int activeRecords;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder appendFailures = new LongAdder();
+    private final LongAdder corruptSegments = new LongAdder();
+    private final LongAdder quarantinedSegments = new LongAdder();
+
+    public AuditJournal(@Value("${app.audit.journal.enabled:true}") boolean enabled,
+            @Value("${app.audit.journal.dir:./data/audit-journal}") String directory,
+            @Value("${app.audit.journal.quarantine-dir:${app.audit.journal.dir:./data/audit-journal}/quarantine}")
+            String quarantineDirectory,
+            @Value("${app.audit.journal.segment-bytes:16777216}") int segmentBytes,
+            @Value("${app.audit.journal.force-on-append:true}") boolean forceOnAppend) throws IOException {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.quarantineDirectory = Paths.get(quarantineDirectory);
+        this.segmentBytes = segmentBytes;
+        this.forceOnAppend = forceOnAppend;
+        if (enabled) {
+            recover();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Segments left by a previous run are replayed like any other sealed segment
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sealed.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file in audit journal: {}", file);
+                }
+            }
+        }
+        nextSequence = sealed.isEmpty() ? 1 : sealed.lastKey() + 1;
+        if (!sealed.isEmpty()) {
+            logger.warn("Audit journal has {} segment(s) pending replay in {}", sealed.size(), directory);
+        }
+    }
+
+    /**
+     * Appends the records and, with {@code force-on-append}, flushes them to disk before
+     * returning. Returns false if they could not be written.
+     */
+    public synchronized boolean append(List<AuditRecord> records) {
+        if (!enabled) {
+            return false;
+        }
+        try {
+            for (AuditRecord record : records) {
+                byte[] payload = encode(record);
+                ensureRoom(FRAME_BYTES + payload.length);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                int position = active.position();
+                active.position(position + FRAME_BYTES);
+                active.put(payload);
+                active.putInt(position + 4, (int) crc.getValue());
+                active.putInt(position, payload.length);
+                activeRecords++;
+            }
+            if (forceOnAppend) {
+                active.force();
+            }
+            appended.add(records.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            appendFailures.add(records.size());
+            logger.error("Failed to append {} audit events to the journal: {}", records.size(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (active != null && active.remaining() >= bytes) {
+            return;
+        }
+        if (active != null && activeRecords == 0) {
+            // Only possible when a single record is larger than a fresh segment
+            Files.deleteIfExists(activePath);
+        } else {
+            sealActive();
+        }
+        long sequence = nextSequence++;
+        Path path = directory.resolve(String.format("%020d%s", sequence, SUFFIX));
+        int size = Math.max(segmentBytes, HEADER_BYTES + bytes);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        active.putInt(MAGIC);
+        active.putInt(FORMAT_VERSION);
+        activePath = path;
+        activeRecords = 0;
+    }
+
+    /**
+     * Closes the active segment for writing so it can be replayed. No-op when it is empty.
+     */
+    public synchronized void sealActive() {
+        if (active == null || activeRecords == 0) {
+            return;
+        }
+        active.force();
+        sealed.put(sequenceOf(activePath), activePath);
+        active = null;
+        activePath = null;
+        activeRecords = 0;
+    }
+
+    public synchronized List<Path> sealedSegments() {
+        return new ArrayList<>(sealed.values());
+    }
+
+    public synchronized boolean hasPending() {
+        return !sealed.isEmpty() || activeRecords > 0;
+    }
+
+    /**
+     * Reads every intact record of a sealed segment. Reading stops at the first torn or
+     * corrupt frame; what follows it cannot be framed reliably and is reported, not guessed.
+     */
+    public SegmentContents read(Path segment) throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                corruptSegments.increment();
+                logger.error("Audit journal segment {} has no valid header", segment);
+                return new SegmentContents(records, false);
+            }
+            int version = buffer.getInt();
+            while (buffer.remaining() >= FRAME_BYTES) {
+                int length = buffer.getInt();
+                int expectedCrc = buffer.getInt();
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > buffer.remaining()) {
+                    corruptSegments.increment();
+                    logger.error("Audit journal segment {} has a bad frame after {} records", segment, records.size());
+                    return new SegmentContents(records, false);
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    corruptSegments.increment();
+                    logger.error("Audit journal segment {} fails its CRC after {} records", segment, records.size());
+                    return new SegmentContents(records, false);
+                }
+                records.add(decode(ByteBuffer.wrap(payload), version));
+            }
+        } catch (BufferUnderflowException e) {
+            corruptSegments.increment();
+            logger.error("Audit journal segment {} has a truncated record after {} records", segment, records.size());
+            return new SegmentContents(records, false);
+        }
+        return new SegmentContents(records, true);
+    }
+
+    /**
+     * Deletes a segment once all its records are in the database.
+     */
+    public synchronized void delete(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+            sealed.remove(sequenceOf(segment));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Moves a segment that could not be replayed in full out of the replay queue, keeping
+     * the file for inspection. Moving it back into the journal directory replays it again.
+     */
+    public synchronized Path quarantine(Path segment) {
+        try {
+            Files.createDirectories(quarantineDirectory);
+            Path target = quarantineDirectory.resolve(segment.getFileName());
+            Files.move(segment, target, StandardCopyOption.REPLACE_EXISTING);
+            sealed.remove(sequenceOf(segment));
+            quarantinedSegments.increment();
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static byte[] encode(AuditRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, record.getEventId());
+        writeTime(out, record.getEventTimeUtc());
+        writeString(out, record.getRequestId());
+        writeString(out, record.getActorUserIdPublic());
+        writeString(out, record.getActorUsername());
+        writeString(out, record.getAction());
+        writeString(out, record.getCategory());
+        writeString(out, record.getEntityType());
+        writeString(out, record.getEntityIdPublic());
+        writeString(out, record.getOutcome().name());
+        out.writeInt(record.getHttpStatus() != null ? record.getHttpStatus() : -1);
+        writeString(out, record.getErrorCode());
+        writeString(out, record.getMessage());
+        writeString(out, record.getHttpMethod());
+        writeString(out, record.getPath());
+        writeString(out, record.getIp());
+        writeString(out, record.getUserAgent());
+        writeString(out, record.getDetails());
+        writeTime(out, record.getCreatedAt());
+        out.writeInt(record.getOccurrenceCount());
+        writeNullableTime(out, record.getFirstSeenUtc());
+        writeNullableTime(out, record.getLastSeenUtc());
+        return bytes.toByteArray();
+    }
+
+    private static AuditRecord decode(ByteBuffer in, int version) {
+        AuditEvent event = new AuditEvent();
+        event.setEventId(readString(in));
+        event.setEventTimeUtc(readTime(in));
+        event.setRequestId(readString(in));
+        event.setActorUserIdPublic(readString(in));
+        event.setActorUsername(readString(in));
+        event.setAction(readString(in));
+        event.setCategory(readString(in));
+        event.setEntityType(readString(in));
+        event.setEntityIdPublic(readString(in));
+        event.setOutcome(AuditEvent.AuditOutcome.valueOf(readString(in)));
+        int httpStatus = in.getInt();
+        event.setHttpStatus(httpStatus >= 0 ? httpStatus : null);
+        event.setErrorCode(readString(in));
+        event.setMessage(readString(in));
+        event.setHttpMethod(readString(in));
+        event.setPath(readString(in));
+        event.setIp(readString(in));
+        event.setUserAgent(readString(in));
+        event.setDetails(readString(in));
+        event.setCreatedAt(readTime(in));
+        if (version >= 1) {
+            event.setOccurrenceCount(in.getInt());
+            event.setFirstSeenUtc(readNullableTime(in));
+            event.setLastSeenUtc(readNullableTime(in));
+        }
+        return AuditRecord.from(event);
+    }
+
+    // Length-prefixed UTF-8; -1 stands for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(ByteBuffer in) {
+        return LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+    }
+
+    // Presence byte, then the time
+    private static void writeNullableTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            writeTime(out, time);
+        }
+    }
+
+    private static LocalDateTime readNullableTime(ByteBuffer in) {
+        return in.get() != 0 ? readTime(in) : null;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "auditJournal";
+    }
+
+    @Override
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("sealedSegments", sealed.size());
+        metrics.put("activeRecords", activeRecords);
+        metrics.put("appended", appended.sum());
+        metrics.put("appendFailures", appendFailures.sum());
+        metrics.put("corruptSegments", corruptSegments.sum());
+        metrics.put("quarantinedSegments", quarantinedSegments.sum());
+        return metrics;
+    }
+
+    /**
+     * Records read from a segment; {@code complete} is false when reading stopped at a
+     * damaged header or frame, so records past that point may be missing.
+     */
+    public static final class SegmentContents {
+
+        private final List<AuditRecord> records;
+        private final boolean complete;
+
+        SegmentContents(List<AuditRecord> records, boolean complete) {
+            this.records = records;
+            this.complete = complete;
+        }
+
+        public List<AuditRecord> getRecords() {
+            return records;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
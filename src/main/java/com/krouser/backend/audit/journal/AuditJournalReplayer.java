@@ -0,0 +1,109 @@
+package com.krouser.backend.audit.journal;
+
+import com.krouser.backend.audit.service.AuditRecord;
+import com.krouser.backend.audit.service.AuditWriter;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains sealed journal segments back into {@code audit_event}, oldest first.
+ * <p>
+ * Inserts skip rows whose {@code event_id} is already stored (a no-op
+ * {@code ON DUPLICATE KEY UPDATE}), so a segment that was half replayed before a failure or
+ * a restart is simply replayed again, while any other error still fails the insert. A
+ * segment is deleted only after all its records are in. When the database is unreachable
+ * the round ends and the rest waits for the next one; a damaged segment, or one the
+ * database rejects as invalid data, is quarantined after its readable records are in.
+ */
+@Component
+public class AuditJournalReplayer implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditJournalReplayer.class);
+
+    private final AuditJournal journal;
+    private final AuditWriter auditWriter;
+    private final int batchSize;
+
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder segmentsReplayed = new LongAdder();
+    private final LongAdder failedRounds = new LongAdder();
+    private final LongAdder segmentsQuarantined = new LongAdder();
+
+    public AuditJournalReplayer(AuditJournal journal, AuditWriter auditWriter,
+            @Value("${app.audit.writer.batch-size:200}") int batchSize) {
+        this.journal = journal;
+        this.auditWriter = auditWriter;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.journal.replay-interval-ms:5000}")
+    public void replay() {
+        if (!journal.isEnabled() || !journal.hasPending()) {
+            return;
+        }
+        journal.sealActive();
+        for (Path segment : journal.sealedSegments()) {
+            try {
+                AuditJournal.SegmentContents contents = journal.read(segment);
+                List<AuditRecord> records = contents.getRecords();
+                for (int from = 0; from < records.size(); from += batchSize) {
+                    auditWriter.insertBatch(records.subList(from, Math.min(from + batchSize, records.size())));
+                }
+                replayed.add(records.size());
+                if (contents.isComplete()) {
+                    journal.delete(segment);
+                    segmentsReplayed.increment();
+                    logger.info("Replayed {} audit events from journal segment {}", records.size(),
+                            segment.getFileName());
+                } else {
+                    quarantine(segment, "damaged after " + records.size() + " replayed events");
+                }
+            } catch (DataIntegrityViolationException e) {
+                // Retrying would fail the same way and hold back every later segment
+                quarantine(segment, "rejected by the database: " + e.getMostSpecificCause().getMessage());
+            } catch (DataAccessException e) {
+                failedRounds.increment();
+                logger.warn("Audit journal replay paused, database not writable: {}", e.getMessage());
+                return;
+            } catch (IOException e) {
+                failedRounds.increment();
+                logger.error("Could not read audit journal segment {}: {}", segment, e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    private void quarantine(Path segment, String reason) {
+        Path target = journal.quarantine(segment);
+        segmentsQuarantined.increment();
+        logger.error("Audit journal segment {} {}; moved to {}", segment.getFileName(), reason, target);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "auditJournalReplay";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("replayed", replayed.sum());
+        metrics.put("segmentsReplayed", segmentsReplayed.sum());
+        metrics.put("failedRounds", failedRounds.sum());
+        metrics.put("segmentsQuarantined", segmentsQuarantined.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,185 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.shared.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Collapses bursts of identical audit events before they reach {@link AuditWriter}.
+ * <p>
+ * Events of the configured {@code actions} sharing (action, actor, ip, path, outcome) are
+ * grouped in windows of {@code window-ms}. The first event of a window is written at once,
+ * so an isolated event is never delayed; the repeats are only counted, and when the window
+ * closes they become a single row with {@code occurrence_count}, {@code first_seen_utc}
+ * and {@code last_seen_utc}, carrying the details of the last one. A client hammering an
+ * endpoint thus costs two rows per window instead of one per request.
+ * <p>
+ * Actions in {@code never} are always written one by one, whatever {@code actions} says.
+ * Past {@code max-keys} open windows, new keys are written without coalescing.
+ */
+@Component
+public class AuditCoalescer implements MetricsSource {
+
+    private final AuditWriter auditWriter;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxKeys;
+    private final Set<String> actions;
+    private final Set<String> never;
+
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private final LongAdder absorbed = new LongAdder();
+    private final LongAdder summaries = new LongAdder();
+    private final LongAdder bypassedFull = new LongAdder();
+
+    public AuditCoalescer(AuditWriter auditWriter,
+            @Value("${app.audit.coalescer.enabled:true}") boolean enabled,
+            @Value("${app.audit.coalescer.window-ms:60000}") long windowMs,
+            @Value("${app.audit.coalescer.max-keys:10000}") int maxKeys,
+            @Value("${app.audit.coalescer.actions:VALIDATION_FAIL,INVALID_ARGUMENT,RESOURCE_NOT_FOUND,"
+                    + "ACCESS_DENIED,ACCESS_DENIED_HANDLER,AUTH_FAIL_ENTRY_POINT,AUTH_IP_THROTTLED}") List<String> actions,
+            @Value("${app.audit.coalescer.never:ACCOUNT_LOCKED,AUTH_LOGIN_LOCKED}") List<String> never) {
+        this.auditWriter = auditWriter;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxKeys = maxKeys;
+        this.actions = normalize(actions);
+        this.never = normalize(never);
+    }
+
+    private static Set<String> normalize(List<String> values) {
+        return values.stream().map(String::trim).filter(value -> !value.isEmpty()).collect(Collectors.toSet());
+    }
+
+    /**
+     * Writes the record, or counts it in its open window.
+     */
+    public void submit(AuditRecord record) {
+        if (!isCoalesced(record.getAction())) {
+            auditWriter.enqueue(record);
+            return;
+        }
+        String key = key(record);
+        long now = System.currentTimeMillis();
+        if (!windows.containsKey(key) && windows.size() >= maxKeys) {
+            bypassedFull.increment();
+            auditWriter.enqueue(record);
+            return;
+        }
+        Window[] closed = new Window[1];
+        boolean[] repeat = new boolean[1];
+        windows.compute(key, (k, window) -> {
+            if (window != null && now < window.closesAt) {
+                window.absorb(record);
+                repeat[0] = true;
+                return window;
+            }
+            closed[0] = window;
+            return new Window(now + windowMs);
+        });
+        if (closed[0] != null) {
+            emit(closed[0]);
+        }
+        if (repeat[0]) {
+            absorbed.increment();
+        } else {
+            auditWriter.enqueue(record);
+        }
+    }
+
+    boolean isCoalesced(String action) {
+        return enabled && action != null && actions.contains(action) && !never.contains(action);
+    }
+
+    // The actor is the public id when known, the username otherwise
+    private static String key(AuditRecord record) {
+        String actor = record.getActorUserIdPublic() != null ? record.getActorUserIdPublic() : record.getActorUsername();
+        return record.getAction() + '|' + actor + '|' + record.getIp() + '|' + record.getPath() + '|'
+                + record.getOutcome();
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.coalescer.sweep-interval-ms:1000}")
+    public void closeExpired() {
+        closeWindows(System.currentTimeMillis());
+    }
+
+    @PreDestroy
+    void flush() {
+        closeWindows(Long.MAX_VALUE);
+    }
+
+    private void closeWindows(long now) {
+        for (String key : windows.keySet()) {
+            Window[] closed = new Window[1];
+            windows.computeIfPresent(key, (k, window) -> {
+                if (now < window.closesAt) {
+                    return window;
+                }
+                closed[0] = window;
+                return null;
+            });
+            if (closed[0] != null) {
+                emit(closed[0]);
+            }
+        }
+    }
+
+    private void emit(Window window) {
+        if (window.repeats > 0) {
+            auditWriter.enqueue(AuditRecord.coalesced(window.latest, window.firstRepeatUtc, window.repeats));
+            summaries.increment();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "auditCoalescer";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("windowMs", windowMs);
+        metrics.put("openWindows", windows.size());
+        metrics.put("absorbed", absorbed.sum());
+        metrics.put("coalescedRowsWritten", summaries.sum());
+        metrics.put("bypassedFull", bypassedFull.sum());
+        metrics.put("actions", actions.stream().sorted().toList());
+        return metrics;
+    }
+
+    // Mutated only inside ConcurrentHashMap.compute for its key
+    private static final class Window {
+        private final long closesAt;
+        private int repeats;
+        private LocalDateTime firstRepeatUtc;
+        private AuditRecord latest;
+
+        private Window(long closesAt) {
+            this.closesAt = closesAt;
+        }
+
+        private void absorb(AuditRecord record) {
+            if (repeats == 0) {
+                firstRepeatUtc = record.getEventTimeUtc();
+            }
+            if (repeats < Integer.MAX_VALUE) {
+                repeats++;
+            }
+            latest = record;
+        }
+    }
+}
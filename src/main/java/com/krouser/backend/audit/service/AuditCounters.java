@@ -0,0 +1,179 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.dto.AuditCounterSeries;
+import com.krouser.backend.audit.dto.AuditCountersSnapshot;
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import com.krouser.backend.shared.util.RollingCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory audit event counts per (action, category, outcome), kept at three resolutions:
+ * the last 60 seconds, 60 minutes and 24 hours of this node.
+ * <p>
+ * Recording is a map lookup plus one CAS per resolution ({@link RollingCounter}), and a
+ * snapshot reads a few hundred longs, so dashboards can poll it instead of running
+ * {@code COUNT(*) ... GROUP BY action} over {@code audit_event}. Counts start at zero on
+ * every restart; {@link AuditRollupService} persists the minute buckets for a cluster-wide
+ * and longer view.
+ */
+@Component
+public class AuditCounters implements MetricsSource {
+
+    public enum Resolution {
+        SECOND(1_000L, 60), MINUTE(60_000L, 60), HOUR(3_600_000L, 24);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Resolution(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+
+        public long getBucketMillis() {
+            return bucketMillis;
+        }
+
+        public int getBuckets() {
+            return buckets;
+        }
+
+        public static Resolution parse(String value) {
+            for (Resolution resolution : values()) {
+                if (resolution.name().equalsIgnoreCase(value)) {
+                    return resolution;
+                }
+            }
+            throw new IllegalArgumentException("resolution debe ser second, minute u hour");
+        }
+    }
+
+    /** Receives the non-zero minute buckets of every series, see {@link #forEachMinute}. */
+    interface MinuteVisitor {
+        void accept(String action, String category, String outcome, long minuteSlot, long count);
+    }
+
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+    private final int maxSeries;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public AuditCounters(@Value("${app.audit.counters.max-series:2000}") int maxSeries) {
+        this.maxSeries = maxSeries;
+    }
+
+    public void record(String action, String category, AuditEvent.AuditOutcome outcome) {
+        if (action == null || category == null || outcome == null) {
+            return;
+        }
+        String key = action + '|' + category + '|' + outcome.name();
+        Series counters = series.get(key);
+        if (counters == null) {
+            // Actions are code constants, so this only trips on a bug; keep memory bounded anyway
+            if (series.size() >= maxSeries) {
+                dropped.increment();
+                return;
+            }
+            counters = series.computeIfAbsent(key, k -> new Series(action, category, outcome.name()));
+        }
+        long now = System.currentTimeMillis();
+        for (RollingCounter counter : counters.byResolution) {
+            counter.increment(now);
+        }
+        recorded.increment();
+    }
+
+    /**
+     * Counts of this node at the given resolution. Null filters match everything; series
+     * without events in the window are left out.
+     */
+    public AuditCountersSnapshot snapshot(Resolution resolution, String action, String category, String outcome) {
+        long now = System.currentTimeMillis();
+        List<AuditCounterSeries> result = new ArrayList<>();
+        for (Series counters : series.values()) {
+            if (!counters.matches(action, category, outcome)) {
+                continue;
+            }
+            AuditCounterSeries item = new AuditCounterSeries(counters.action, counters.category, counters.outcome,
+                    counters.byResolution[resolution.ordinal()].counts(now));
+            if (item.getTotal() > 0) {
+                result.add(item);
+            }
+        }
+        result.sort(Comparator.comparingLong(AuditCounterSeries::getTotal).reversed());
+        long lastBucketStart = now / resolution.bucketMillis * resolution.bucketMillis;
+        return new AuditCountersSnapshot("node", resolution.name().toLowerCase(), resolution.bucketMillis / 1000,
+                LocalDateTime.ofEpochSecond(lastBucketStart / 1000, 0, ZoneOffset.UTC), result);
+    }
+
+    /**
+     * Visits the non-zero minute buckets from {@code fromSlot} to {@code toSlot} inclusive
+     * (minutes since the epoch). Only the last {@link Resolution#MINUTE} buckets are kept.
+     */
+    void forEachMinute(long fromSlot, long toSlot, MinuteVisitor visitor) {
+        for (Series counters : series.values()) {
+            RollingCounter minutes = counters.byResolution[Resolution.MINUTE.ordinal()];
+            for (long slot = fromSlot; slot <= toSlot; slot++) {
+                long count = minutes.count(slot);
+                if (count > 0) {
+                    visitor.accept(counters.action, counters.category, counters.outcome, slot, count);
+                }
+            }
+        }
+    }
+
+    static boolean matches(String value, String filter) {
+        return filter == null || filter.isBlank() || filter.trim().equalsIgnoreCase(value);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "auditCounters";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("series", series.size());
+        metrics.put("maxSeries", maxSeries);
+        metrics.put("recorded", recorded.sum());
+        metrics.put("droppedNewSeries", dropped.sum());
+        return metrics;
+    }
+
+    private static final class Series {
+        private final String action;
+        private final String category;
+        private final String outcome;
+        private final RollingCounter[] byResolution = new RollingCounter[RESOLUTIONS.length];
+
+        private Series(String action, String category, String outcome) {
+            this.action = action;
+            this.category = category;
+            this.outcome = outcome;
+            for (Resolution resolution : RESOLUTIONS) {
+                byResolution[resolution.ordinal()] = new RollingCounter(resolution.bucketMillis, resolution.buckets);
+            }
+        }
+
+        private boolean matches(String actionFilter, String categoryFilter, String outcomeFilter) {
+            return AuditCounters.matches(action, actionFilter) && AuditCounters.matches(category, categoryFilter)
+                    && AuditCounters.matches(outcome, outcomeFilter);
+        }
+    }
+}
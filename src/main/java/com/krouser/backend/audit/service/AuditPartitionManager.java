@@ -0,0 +1,340 @@
+package com.krouser.backend.audit.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintains the monthly partitions of {@code audit_event} (see
+ * {@code db/migration/V2__audit_event_partitioning.sql}).
+ * <p>
+ * Each run makes sure the current month and {@code months-ahead} following months have
+ * their own partition (split off {@code pmax}, which is empty in normal operation) and
+ * drops the partitions that fell out of {@code retention-months}. Dropping a partition is
+ * a metadata operation, whatever the number of rows. With {@code archive.enabled} each
+ * expiring partition is first exported to a gzipped NDJSON file and is only dropped if
+ * the export completed.
+ * <p>
+ * Runs are serialized across nodes with a MySQL named lock. On a table that was never
+ * partitioned the manager only logs a warning.
+ */
+@Component
+public class AuditPartitionManager implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+
+    private static final String TABLE = "audit_event";
+    private static final String MAX_PARTITION = "pmax";
+    private static final String LOCK_NAME = "audit_event_partition_manager";
+    private static final Pattern MONTH_PARTITION = Pattern.compile("p\\d{6}");
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean archiveEnabled;
+    private final Path archiveDir;
+
+    private volatile List<PartitionInfo> lastSeen = List.of();
+    private volatile String lastRunAt;
+    private volatile String lastError;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder archivedRows = new LongAdder();
+    private final AtomicLong lastRunMs = new AtomicLong();
+
+    public AuditPartitionManager(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            @Value("${app.audit.partitions.enabled:true}") boolean enabled,
+            @Value("${app.audit.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${app.audit.partitions.retention-months:12}") int retentionMonths,
+            @Value("${app.audit.partitions.archive.enabled:false}") boolean archiveEnabled,
+            @Value("${app.audit.partitions.archive.dir:./data/audit-archive}") String archiveDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveEnabled = archiveEnabled;
+        this.archiveDir = Paths.get(archiveDir);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.audit.partitions.cron:0 15 3 * * *}", zone = "UTC")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) this::maintainLocked);
+            if (Boolean.TRUE.equals(ran)) {
+                lastError = null;
+                lastRunAt = LocalDateTime.now(ZoneOffset.UTC).toString();
+                lastRunMs.set(System.currentTimeMillis() - start);
+            }
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            logger.error("Audit partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Named locks belong to the connection, so everything runs on the one that holds it
+    private Boolean maintainLocked(Connection connection) throws SQLException {
+        if (!acquireLock(connection)) {
+            logger.debug("Audit partition maintenance is running on another node");
+            return false;
+        }
+        try {
+            List<PartitionInfo> partitions = readPartitions(connection);
+            if (partitions.isEmpty()) {
+                logger.warn("audit_event is not partitioned; apply db/migration/V2__audit_event_partitioning.sql "
+                        + "to enable partition-based retention");
+                return false;
+            }
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            createAhead(connection, partitions, current);
+            if (retentionMonths > 0) {
+                dropExpired(connection, readPartitions(connection), current.minusMonths(retentionMonths));
+            }
+            lastSeen = readPartitions(connection);
+            return true;
+        } finally {
+            releaseLock(connection);
+        }
+    }
+
+    private void createAhead(Connection connection, List<PartitionInfo> partitions, YearMonth current)
+            throws SQLException {
+        LocalDate highest = partitions.stream()
+                .filter(partition -> partition.upperBound() != null)
+                .map(PartitionInfo::upperBound)
+                .max(LocalDate::compareTo)
+                .orElse(current.atDay(1));
+        LocalDate target = current.plusMonths(monthsAhead + 1L).atDay(1);
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate month = highest; month.isBefore(target); month = month.plusMonths(1)) {
+            definitions.add("PARTITION " + PARTITION_NAME.format(month) + " VALUES LESS THAN ('"
+                    + month.plusMonths(1) + " 00:00:00')");
+        }
+        if (definitions.isEmpty()) {
+            return;
+        }
+        boolean hasMax = partitions.stream().anyMatch(partition -> partition.upperBound() == null);
+        String ddl = hasMax
+                ? "ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                        + String.join(", ", definitions) + ", PARTITION " + MAX_PARTITION
+                        + " VALUES LESS THAN (MAXVALUE))"
+                : "ALTER TABLE " + TABLE + " ADD PARTITION (" + String.join(", ", definitions) + ")";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(ddl);
+        }
+        created.add(definitions.size());
+        logger.info("Created {} audit_event partition(s) up to {}", definitions.size(), target);
+    }
+
+    private void dropExpired(Connection connection, List<PartitionInfo> partitions, YearMonth oldestKept)
+            throws SQLException {
+        LocalDate cutoff = oldestKept.atDay(1);
+        for (PartitionInfo partition : partitions) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(cutoff)
+                    || !MONTH_PARTITION.matcher(partition.name()).matches()) {
+                continue;
+            }
+            if (archiveEnabled && !archive(connection, partition.name())) {
+                logger.warn("Keeping audit_event partition {}: archive export failed", partition.name());
+                continue;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition.name());
+            }
+            dropped.increment();
+            logger.info("Dropped audit_event partition {} (rows < {})", partition.name(), partition.upperBound());
+        }
+    }
+
+    private boolean archive(Connection connection, String partition) {
+        Path target = archiveDir.resolve(TABLE + "_" + partition + ".ndjson.gz");
+        Path temp = archiveDir.resolve(TABLE + "_" + partition + ".ndjson.gz.part");
+        try {
+            Files.createDirectories(archiveDir);
+            long rows;
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                rows = exportPartition(connection, partition, out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            archivedRows.add(rows);
+            logger.info("Archived {} rows of audit_event partition {} to {}", rows, partition, target);
+            return true;
+        } catch (IOException | SQLException | UncheckedIOException e) {
+            logger.error("Could not archive audit_event partition {}: {}", partition, e.getMessage(), e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // best effort
+            }
+            return false;
+        }
+    }
+
+    // Row-by-row streaming, one JSON object per line with the column names as keys
+    private long exportPartition(Connection connection, String partition, OutputStream out)
+            throws SQLException, IOException {
+        long rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT * FROM " + TABLE + " PARTITION (" + partition + ")",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = statement.executeQuery();
+                    JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    generator.writeStartObject();
+                    for (int column = 1; column <= meta.getColumnCount(); column++) {
+                        Object value = rs.getObject(column);
+                        generator.writeStringField(meta.getColumnLabel(column),
+                                value != null ? value.toString() : null);
+                    }
+                    generator.writeEndObject();
+                    rows++;
+                }
+                if (rows > 0) {
+                    generator.writeRaw('\n');
+                }
+            }
+        }
+        return rows;
+    }
+
+    private List<PartitionInfo> readPartitions(Connection connection) throws SQLException {
+        List<PartitionInfo> partitions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS FROM INFORMATION_SCHEMA.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION")) {
+            statement.setString(1, TABLE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(new PartitionInfo(rs.getString(1), parseBound(rs.getString(2)), rs.getLong(3)));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    // RANGE COLUMNS bounds read like '2024-06-01 00:00:00'; MAXVALUE means no bound
+    private static LocalDate parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        return LocalDate.parse(description.replace("'", "").trim().substring(0, 10));
+    }
+
+    private static boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            statement.setString(1, LOCK_NAME);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.execute();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "auditPartitions";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        List<PartitionInfo> partitions = lastSeen;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("retentionMonths", retentionMonths);
+        metrics.put("partitions", partitions.size());
+        metrics.put("oldestPartition", partitions.isEmpty() ? null : partitions.get(0).name());
+        metrics.put("estimatedRows", partitions.stream().mapToLong(PartitionInfo::estimatedRows).sum());
+        metrics.put("created", created.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("archivedRows", archivedRows.sum());
+        metrics.put("lastRunAt", lastRunAt);
+        metrics.put("lastRunMs", lastRunMs.get());
+        metrics.put("lastError", lastError);
+        return metrics;
+    }
+
+    private static final class PartitionInfo {
+        private final String name;
+        // Exclusive upper bound of the partition; null for pmax
+        private final LocalDate upperBound;
+        private final long estimatedRows;
+
+        PartitionInfo(String name, LocalDate upperBound, long estimatedRows) {
+            this.name = name;
+            this.upperBound = upperBound;
+            this.estimatedRows = estimatedRows;
+        }
+
+        String name() {
+            return name;
+        }
+
+        LocalDate upperBound() {
+            return upperBound;
+        }
+
+        long estimatedRows() {
+            return estimatedRows;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.dto.AuditEventFilter;
+import com.krouser.backend.audit.dto.AuditEventSummary;
+import com.krouser.backend.shared.dto.CursorPage;
+import com.krouser.backend.shared.util.CursorCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read side of {@code audit_event}: newest first, keyset-paginated on
+ * {@code (event_time_utc, id)}.
+ * <p>
+ * Each request is served from exactly one of the table's indexes, picked from the most
+ * selective filter present (request id, entity, actor, action, otherwise time). All of
+ * them end in the primary key, so the ones that also carry {@code event_time_utc} return
+ * rows already in keyset order. The remaining filters are applied as residual predicates.
+ */
+@Service
+public class AuditQueryService {
+
+    private static final long MAX_CURSOR_MICROS = toEpochMicros(LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_000));
+
+    private static final String COLUMNS = "id, event_id, event_time_utc, action, category, outcome, "
+            + "actor_user_id_public, actor_username, entity_type, entity_id_public, request_id, http_status, "
+            + "http_method, path, ip, occurrence_count, first_seen_utc, last_seen_utc";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.audit.query.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.audit.query.max-size:200}")
+    private int maxPageSize;
+
+    // Server-side cap for a single page query (MySQL MAX_EXECUTION_TIME hint)
+    @Value("${app.audit.query.max-execution-ms:5000}")
+    private long maxExecutionMs;
+
+    public AuditQueryService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public CursorPage<AuditEventSummary> findEvents(AuditEventFilter filter, String cursor, Integer size) {
+        if (filter.getEntityId() != null && filter.getEntityType() == null) {
+            throw new IllegalArgumentException("entityId requiere entityType");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().isBefore(filter.getTo())) {
+            throw new IllegalArgumentException("from debe ser anterior a to");
+        }
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        long[] after = CursorCodec.decodePair(cursor);
+        if (after != null && after[0] > MAX_CURSOR_MICROS) {
+            // Past the DATETIME range: no page could have produced it
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+
+        String index = indexFor(filter);
+        StringBuilder sql = new StringBuilder("SELECT /*+ MAX_EXECUTION_TIME(").append(maxExecutionMs).append(") */ ")
+                .append(COLUMNS)
+                .append(filter.isIncludeDetails() ? ", details" : "")
+                .append(" FROM audit_event")
+                .append(index != null ? " FORCE INDEX (" + index + ")" : "")
+                .append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendEquals(sql, params, "request_id", filter.getRequestId());
+        appendEquals(sql, params, "entity_type", filter.getEntityType());
+        appendEquals(sql, params, "entity_id_public", filter.getEntityId());
+        appendEquals(sql, params, "actor_user_id_public", filter.getActor());
+        appendEquals(sql, params, "action", filter.getAction());
+        if (filter.getFrom() != null) {
+            sql.append(" AND event_time_utc >= ?");
+            params.add(Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND event_time_utc < ?");
+            params.add(Timestamp.valueOf(filter.getTo()));
+        }
+        if (after != null) {
+            // Expanded form of (event_time_utc, id) < (?, ?), which MySQL can use as a range
+            Timestamp afterTime = Timestamp.valueOf(fromEpochMicros(after[0]));
+            sql.append(" AND (event_time_utc < ? OR (event_time_utc = ? AND id < ?))");
+            params.add(afterTime);
+            params.add(afterTime);
+            params.add(after[1]);
+        }
+        sql.append(" ORDER BY event_time_utc DESC, id DESC LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<AuditEventSummary> rows = jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> map(rs, filter.isIncludeDetails()), params.toArray());
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            AuditEventSummary last = rows.get(rows.size() - 1);
+            nextCursor = CursorCodec.encode(toEpochMicros(last.getEventTimeUtc()), last.getId());
+        }
+        return new CursorPage<>(new ArrayList<>(rows), nextCursor);
+    }
+
+    /**
+     * Most selective filter first, but only indexes that return rows in keyset order once
+     * their equality columns are fixed (InnoDB appends the primary key, so they end in
+     * event_time_utc, id): the page then stops after size + 1 index entries, with no
+     * filesort. A request id matches a handful of rows, so it gets no hint and the optimizer
+     * sorts them. An entity type alone matches too many rows to sort; it is filtered while
+     * walking the time index.
+     */
+    static String indexFor(AuditEventFilter filter) {
+        if (filter.getRequestId() != null) {
+            return null;
+        }
+        if (filter.getEntityType() != null && filter.getEntityId() != null) {
+            return "idx_audit_entity_time";
+        }
+        if (filter.getActor() != null) {
+            return "idx_audit_actor_time";
+        }
+        if (filter.getAction() != null) {
+            return "idx_audit_action_time";
+        }
+        return "idx_audit_event_time";
+    }
+
+    private static void appendEquals(StringBuilder sql, List<Object> params, String column, String value) {
+        if (value != null && !value.isBlank()) {
+            sql.append(" AND ").append(column).append(" = ?");
+            params.add(value.trim());
+        }
+    }
+
+    private static AuditEventSummary map(ResultSet rs, boolean includeDetails) throws SQLException {
+        AuditEventSummary event = new AuditEventSummary();
+        event.setId(rs.getLong("id"));
+        event.setEventId(rs.getString("event_id"));
+        event.setEventTimeUtc(rs.getTimestamp("event_time_utc").toLocalDateTime());
+        event.setAction(rs.getString("action"));
+        event.setCategory(rs.getString("category"));
+        event.setOutcome(rs.getString("outcome"));
+        event.setActorUserIdPublic(rs.getString("actor_user_id_public"));
+        event.setActorUsername(rs.getString("actor_username"));
+        event.setEntityType(rs.getString("entity_type"));
+        event.setEntityIdPublic(rs.getString("entity_id_public"));
+        event.setRequestId(rs.getString("request_id"));
+        int httpStatus = rs.getInt("http_status");
+        event.setHttpStatus(rs.wasNull() ? null : httpStatus);
+        event.setHttpMethod(rs.getString("http_method"));
+        event.setPath(rs.getString("path"));
+        event.setIp(rs.getString("ip"));
+        event.setOccurrenceCount(rs.getInt("occurrence_count"));
+        Timestamp firstSeen = rs.getTimestamp("first_seen_utc");
+        event.setFirstSeenUtc(firstSeen != null ? firstSeen.toLocalDateTime() : null);
+        Timestamp lastSeen = rs.getTimestamp("last_seen_utc");
+        event.setLastSeenUtc(lastSeen != null ? lastSeen.toLocalDateTime() : null);
+        if (includeDetails) {
+            event.setDetails(rs.getString("details"));
+        }
+        return event;
+    }
+
+    private static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
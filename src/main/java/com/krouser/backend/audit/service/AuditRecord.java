@@ -0,0 +1,195 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.entity.AuditEvent;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of an audit event, taken on the caller's thread (request context
+ * included) and handed to {@link AuditWriter}. Nothing in it is read from thread-locals
+ * later, so it can be written from any thread.
+ */
+public final class AuditRecord {
+
+    private final String eventId;
+    private final LocalDateTime eventTimeUtc;
+    private final String requestId;
+    private final String actorUserIdPublic;
+    private final String actorUsername;
+    private final String action;
+    private final String category;
+    private final String entityType;
+    private final String entityIdPublic;
+    private final AuditEvent.AuditOutcome outcome;
+    private final Integer httpStatus;
+    private final String errorCode;
+    private final String message;
+    private final String httpMethod;
+    private final String path;
+    private final String ip;
+    private final String userAgent;
+    private final String details;
+    private final int occurrenceCount;
+    private final LocalDateTime firstSeenUtc;
+    private final LocalDateTime lastSeenUtc;
+    private final LocalDateTime createdAt;
+    private final long enqueuedAtNanos;
+
+    private AuditRecord(AuditEvent event) {
+        this.eventId = event.getEventId() != null ? event.getEventId() : UUID.randomUUID().toString();
+        this.eventTimeUtc = event.getEventTimeUtc();
+        this.requestId = event.getRequestId();
+        this.actorUserIdPublic = event.getActorUserIdPublic();
+        this.actorUsername = event.getActorUsername();
+        this.action = event.getAction();
+        this.category = event.getCategory();
+        this.entityType = event.getEntityType();
+        this.entityIdPublic = event.getEntityIdPublic();
+        this.outcome = event.getOutcome();
+        this.httpStatus = event.getHttpStatus();
+        this.errorCode = event.getErrorCode();
+        this.message = event.getMessage();
+        this.httpMethod = event.getHttpMethod();
+        this.path = event.getPath();
+        this.ip = event.getIp();
+        this.userAgent = event.getUserAgent();
+        this.details = event.getDetails();
+        this.occurrenceCount = event.getOccurrenceCount();
+        this.firstSeenUtc = event.getFirstSeenUtc();
+        this.lastSeenUtc = event.getLastSeenUtc();
+        this.createdAt = event.getCreatedAt() != null ? event.getCreatedAt() : LocalDateTime.now();
+        this.enqueuedAtNanos = System.nanoTime();
+    }
+
+    // A new event (own event_id) for the latest of several coalesced occurrences
+    private AuditRecord(AuditRecord latest, LocalDateTime firstSeenUtc, int occurrenceCount) {
+        this.eventId = UUID.randomUUID().toString();
+        this.eventTimeUtc = latest.eventTimeUtc;
+        this.requestId = latest.requestId;
+        this.actorUserIdPublic = latest.actorUserIdPublic;
+        this.actorUsername = latest.actorUsername;
+        this.action = latest.action;
+        this.category = latest.category;
+        this.entityType = latest.entityType;
+        this.entityIdPublic = latest.entityIdPublic;
+        this.outcome = latest.outcome;
+        this.httpStatus = latest.httpStatus;
+        this.errorCode = latest.errorCode;
+        this.message = latest.message;
+        this.httpMethod = latest.httpMethod;
+        this.path = latest.path;
+        this.ip = latest.ip;
+        this.userAgent = latest.userAgent;
+        this.details = latest.details;
+        this.occurrenceCount = occurrenceCount;
+        this.firstSeenUtc = firstSeenUtc;
+        this.lastSeenUtc = latest.eventTimeUtc;
+        this.createdAt = LocalDateTime.now();
+        this.enqueuedAtNanos = System.nanoTime();
+    }
+
+    public static AuditRecord from(AuditEvent event) {
+        return new AuditRecord(event);
+    }
+
+    /**
+     * Record standing for {@code occurrenceCount} occurrences seen from {@code firstSeenUtc}
+     * to {@code latest}'s event time; everything else is taken from {@code latest}.
+     */
+    public static AuditRecord coalesced(AuditRecord latest, LocalDateTime firstSeenUtc, int occurrenceCount) {
+        return new AuditRecord(latest, firstSeenUtc, occurrenceCount);
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public LocalDateTime getEventTimeUtc() {
+        return eventTimeUtc;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getActorUserIdPublic() {
+        return actorUserIdPublic;
+    }
+
+    public String getActorUsername() {
+        return actorUsername;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getEntityIdPublic() {
+        return entityIdPublic;
+    }
+
+    public AuditEvent.AuditOutcome getOutcome() {
+        return outcome;
+    }
+
+    public Integer getHttpStatus() {
+        return httpStatus;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    public LocalDateTime getFirstSeenUtc() {
+        return firstSeenUtc;
+    }
+
+    public LocalDateTime getLastSeenUtc() {
+        return lastSeenUtc;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getEnqueuedAtNanos() {
+        return enqueuedAtNanos;
+    }
+}
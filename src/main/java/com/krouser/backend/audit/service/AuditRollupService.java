@@ -0,0 +1,221 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.dto.AuditCounterSeries;
+import com.krouser.backend.audit.dto.AuditCountersSnapshot;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cluster mode of {@link AuditCounters}: every node adds its minute buckets to
+ * {@code audit_event_rollup} (see {@code db/migration/V4__audit_event_rollup.sql}), one row
+ * per minute, node and (action, category, outcome) with events.
+ * <p>
+ * Only completed minutes are flushed, each once per process, with
+ * {@code event_count = event_count + new}; on shutdown the minute in progress is flushed
+ * too, and the next process adds its own share of that minute. A failed flush is retried
+ * on the next run for as long as the minutes are still in memory (one hour). Rows older
+ * than {@code retention-days} are purged.
+ */
+@Component
+public class AuditRollupService implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditRollupService.class);
+
+    private static final String UPSERT = "INSERT INTO audit_event_rollup "
+            + "(bucket_start, node_id, action, category, outcome, event_count) VALUES (?, ?, ?, ?, ?, ?) AS new "
+            + "ON DUPLICATE KEY UPDATE event_count = audit_event_rollup.event_count + new.event_count";
+    private static final int PURGE_CHUNK = 10_000;
+    private static final int MAX_MINUTE_BUCKETS = 1440;
+    private static final int MAX_HOUR_BUCKETS = 744;
+
+    private final AuditCounters counters;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final int retentionDays;
+
+    // Last minute slot already added to the table by this process
+    private volatile long flushedThrough;
+    private volatile long lastPurgeHour;
+
+    private final LongAdder rowsFlushed = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder rowsPurged = new LongAdder();
+
+    public AuditRollupService(AuditCounters counters, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.audit.rollup.enabled:false}") boolean enabled,
+            @Value("${app.audit.rollup.node-id:${HOSTNAME:local}}") String nodeId,
+            @Value("${app.audit.rollup.retention-days:90}") int retentionDays) {
+        this.counters = counters;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.nodeId = nodeId.length() > 64 ? nodeId.substring(0, 64) : nodeId;
+        this.retentionDays = retentionDays;
+        this.flushedThrough = currentMinute() - 1;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${app.audit.rollup.flush-interval-ms:60000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushThrough(currentMinute() - 1);
+        purgeExpired();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        if (enabled) {
+            flushThrough(currentMinute());
+        }
+    }
+
+    private synchronized void flushThrough(long toSlot) {
+        // Minutes that already left the in-memory ring are lost, not retried
+        long fromSlot = Math.max(flushedThrough + 1, currentMinute() - AuditCounters.Resolution.MINUTE.getBuckets() + 1);
+        if (fromSlot > toSlot) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        counters.forEachMinute(fromSlot, toSlot, (action, category, outcome, slot, count) -> rows.add(new Object[] {
+                Timestamp.valueOf(minuteStart(slot)), nodeId, action, category, outcome, count }));
+        try {
+            if (!rows.isEmpty()) {
+                // All or nothing, so a retry never adds a minute twice
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT, rows));
+            }
+            flushedThrough = toSlot;
+            rowsFlushed.add(rows.size());
+        } catch (DataAccessException e) {
+            failedFlushes.increment();
+            logger.warn("Could not flush {} audit rollup rows, retrying on the next run: {}", rows.size(),
+                    e.getMessage());
+        }
+    }
+
+    private void purgeExpired() {
+        long hour = System.currentTimeMillis() / 3_600_000L;
+        if (retentionDays <= 0 || hour == lastPurgeHour) {
+            return;
+        }
+        lastPurgeHour = hour;
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now(ZoneOffset.UTC).minusDays(retentionDays));
+        try {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update("DELETE FROM audit_event_rollup WHERE bucket_start < ? LIMIT ?",
+                        cutoff, PURGE_CHUNK);
+                rowsPurged.add(deleted);
+            } while (deleted == PURGE_CHUNK);
+        } catch (DataAccessException e) {
+            logger.warn("Could not purge expired audit rollup rows: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Counts of all nodes for the last {@code buckets} completed minutes or hours, read from
+     * {@code audit_event_rollup}. Lags behind the node counters by up to one flush interval.
+     */
+    public AuditCountersSnapshot clusterSnapshot(AuditCounters.Resolution resolution, Integer buckets,
+            String action, String category, String outcome) {
+        if (!enabled) {
+            throw new IllegalArgumentException("El modo cluster de contadores de auditoría no está habilitado");
+        }
+        if (resolution == AuditCounters.Resolution.SECOND) {
+            throw new IllegalArgumentException("scope=cluster admite resolution minute u hour");
+        }
+        int bucketMinutes = resolution == AuditCounters.Resolution.HOUR ? 60 : 1;
+        int maxBuckets = resolution == AuditCounters.Resolution.HOUR ? MAX_HOUR_BUCKETS : MAX_MINUTE_BUCKETS;
+        int count = buckets == null ? resolution.getBuckets() : Math.max(1, Math.min(buckets, maxBuckets));
+
+        // Last completed bucket, and the start of the oldest one
+        long lastSlot = currentMinute() / bucketMinutes - 1;
+        LocalDateTime last = minuteStart(lastSlot * bucketMinutes);
+        LocalDateTime first = last.minusMinutes((long) (count - 1) * bucketMinutes);
+
+        StringBuilder sql = new StringBuilder("SELECT TIMESTAMPDIFF(MINUTE, ?, bucket_start) DIV ? AS bucket, ")
+                .append("action, category, outcome, SUM(event_count) AS total FROM audit_event_rollup ")
+                .append("WHERE bucket_start >= ? AND bucket_start < ?");
+        List<Object> params = new ArrayList<>(List.of(Timestamp.valueOf(first), bucketMinutes,
+                Timestamp.valueOf(first), Timestamp.valueOf(last.plusMinutes(bucketMinutes))));
+        appendEquals(sql, params, "action", action);
+        appendEquals(sql, params, "category", category);
+        appendEquals(sql, params, "outcome", outcome);
+        sql.append(" GROUP BY bucket, action, category, outcome");
+
+        Map<String, AuditCounterSeries> series = new LinkedHashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            String rowAction = rs.getString("action");
+            String rowCategory = rs.getString("category");
+            String rowOutcome = rs.getString("outcome");
+            AuditCounterSeries item = series.computeIfAbsent(rowAction + '|' + rowCategory + '|' + rowOutcome,
+                    k -> new AuditCounterSeries(rowAction, rowCategory, rowOutcome, new long[count]));
+            long total = rs.getLong("total");
+            item.getCounts()[rs.getInt("bucket")] += total;
+            item.setTotal(item.getTotal() + total);
+        }, params.toArray());
+
+        List<AuditCounterSeries> result = new ArrayList<>(series.values());
+        result.sort(Comparator.comparingLong(AuditCounterSeries::getTotal).reversed());
+        return new AuditCountersSnapshot("cluster", resolution.name().toLowerCase(), bucketMinutes * 60L, last,
+                result);
+    }
+
+    private static void appendEquals(StringBuilder sql, List<Object> params, String column, String value) {
+        if (value != null && !value.isBlank()) {
+            sql.append(" AND ").append(column).append(" = ?");
+            params.add(value.trim());
+        }
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000L;
+    }
+
+    private static LocalDateTime minuteStart(long minuteSlot) {
+        return LocalDateTime.ofEpochSecond(minuteSlot * 60, 0, ZoneOffset.UTC);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "auditRollup";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("nodeId", nodeId);
+        metrics.put("flushedThrough", enabled ? minuteStart(flushedThrough).toString() : null);
+        metrics.put("rowsFlushed", rowsFlushed.sum());
+        metrics.put("failedFlushes", failedFlushes.sum());
+        metrics.put("rowsPurged", rowsPurged.sum());
+        return metrics;
+    }
+}
@@ -1,26 +1,34 @@
 package com.krouser.backend.audit.service;
 
 import com.krouser.backend.audit.entity.AuditEvent;
-import com.krouser.backend.audit.repository.AuditEventRepository;
 import com.krouser.backend.audit.filter.AuditRequestFilter;
+import com.krouser.backend.shared.util.HttpRequestUtils;
+import com.krouser.backend.shared.util.TransactionCallbacks;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
+/**
+ * Builds audit events on the caller's thread and hands them, through
+ * {@link AuditCoalescer}, to {@link AuditWriter}, which persists them in batches off the
+ * request path. Inside a transaction the event is handed over only once it commits, so a
+ * rolled-back operation leaves no audit row, as before. Events are counted in
+ * {@link AuditCounters} at the same point, before coalescing.
+ */
 @Service
 public class AuditService {
 
     private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
-    private final AuditEventRepository auditEventRepository;
+    private final AuditCoalescer auditCoalescer;
+    private final AuditCounters auditCounters;
 
-    public AuditService(AuditEventRepository auditEventRepository) {
-        this.auditEventRepository = auditEventRepository;
+    public AuditService(AuditCoalescer auditCoalescer, AuditCounters auditCounters) {
+        this.auditCoalescer = auditCoalescer;
+        this.auditCounters = auditCounters;
     }
 
     public void audit(String action, String category, AuditEvent.AuditOutcome outcome, String details) {
@@ -32,63 +40,67 @@ public class AuditService {
             String entityType, String entityIdPublic,
             String details) {
         try {
-            AuditEvent event = new AuditEvent();
+            AuditEvent event = prepare(action, category, outcome, actorUserIdPublic, actorUsername,
+                    entityType, entityIdPublic);
             event.setEventTimeUtc(LocalDateTime.now(ZoneOffset.UTC));
-            event.setAction(truncate(action, 80));
-            event.setCategory(truncate(category, 40));
-            event.setOutcome(outcome);
-            event.setActorUserIdPublic(actorUserIdPublic); // Assume passed or extracted if needed
-            event.setActorUsername(truncate(actorUsername, 80));
-            event.setEntityType(truncate(entityType, 60));
-            event.setEntityIdPublic(entityIdPublic); // UUID string
             event.setDetails(details); // Already built via builder
-
-            // Request Context
-            HttpServletRequest request = getCurrentHttpRequest();
-            if (request != null) {
-                event.setRequestId((String) request.getAttribute(AuditRequestFilter.REQUEST_ID_KEY));
-                event.setIp(truncate(getClientIp(request), 45));
-                event.setHttpMethod(truncate(request.getMethod(), 10));
-                event.setPath(truncate(request.getRequestURI(), 200));
-                event.setUserAgent(truncate(request.getHeader("User-Agent"), 255));
-
-                // Status code is harder to get here unless passed, usually from Response or
-                // Exception Handler
-            }
-
-            auditEventRepository.save(event);
+            submit(event);
         } catch (Exception e) {
             logger.error("Failed to save audit event: {}", e.getMessage(), e);
             // Non-blocking: swallow exception to not break business flow
         }
     }
 
+    /**
+     * Builds an event with the context of the current request (request id, ip, method, path,
+     * user agent), to be completed and passed to {@link #audit(AuditEvent)} later. Work handed
+     * to another thread, such as an async download, must call this before the handoff: the
+     * request is only bound to the thread that received it.
+     */
+    public AuditEvent prepare(String action, String category, AuditEvent.AuditOutcome outcome,
+            String actorUserIdPublic, String actorUsername,
+            String entityType, String entityIdPublic) {
+        AuditEvent event = new AuditEvent();
+        event.setAction(truncate(action, 80));
+        event.setCategory(truncate(category, 40));
+        event.setOutcome(outcome);
+        event.setActorUserIdPublic(actorUserIdPublic); // Assume passed or extracted if needed
+        event.setActorUsername(truncate(actorUsername, 80));
+        event.setEntityType(truncate(entityType, 60));
+        event.setEntityIdPublic(entityIdPublic); // UUID string
+
+        // Request Context
+        HttpServletRequest request = HttpRequestUtils.currentRequest();
+        if (request != null) {
+            event.setRequestId((String) request.getAttribute(AuditRequestFilter.REQUEST_ID_KEY));
+            event.setIp(truncate(HttpRequestUtils.getClientIp(request), 45));
+            event.setHttpMethod(truncate(request.getMethod(), 10));
+            event.setPath(truncate(request.getRequestURI(), 200));
+            event.setUserAgent(truncate(request.getHeader("User-Agent"), 255));
+
+            // Status code is harder to get here unless passed, usually from Response or
+            // Exception Handler
+        }
+        return event;
+    }
+
     public void audit(AuditEvent event) {
         try {
             if (event.getEventTimeUtc() == null) {
                 event.setEventTimeUtc(LocalDateTime.now(ZoneOffset.UTC));
             }
-            auditEventRepository.save(event);
+            submit(event);
         } catch (Exception e) {
             logger.error("Failed to save audit event: {}", e.getMessage(), e);
         }
     }
 
-    private HttpServletRequest getCurrentHttpRequest() {
-        try {
-            ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            return (attrs != null) ? attrs.getRequest() : null;
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private String getClientIp(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        return request.getRemoteAddr();
+    private void submit(AuditEvent event) {
+        AuditRecord record = AuditRecord.from(event);
+        TransactionCallbacks.afterCommit(() -> {
+            auditCounters.record(record.getAction(), record.getCategory(), record.getOutcome());
+            auditCoalescer.submit(record);
+        });
     }
 
     private String truncate(String input, int maxLength) {
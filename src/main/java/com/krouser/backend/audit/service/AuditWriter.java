@@ -0,0 +1,324 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.journal.AuditJournal;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Takes audit writes off the caller's thread.
+ * <p>
+ * Records go into a bounded queue and a single writer thread drains it into JDBC batch
+ * inserts (multi-row with {@code rewriteBatchedStatements=true}), flushing when a batch is
+ * full or {@code flush-interval-ms} after its first record, whichever comes first. What
+ * happens when the queue is full is set by {@code overflow-policy}. Batches the database
+ * rejects, and records that overflow, go to the {@link AuditJournal} when it is enabled
+ * instead of being lost.
+ */
+@Component
+public class AuditWriter implements MetricsSource {
+
+    public enum OverflowPolicy {
+        /** Wait up to {@code block-timeout-ms} for room, then spill the record. */
+        BLOCK,
+        /** Evict the oldest queued record to make room for the new one. */
+        DROP_OLDEST,
+        /** Append the record to the journal (or, without one, write it on the caller's thread). */
+        SPILL
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+
+    // A replayed event whose event_id is already stored is skipped by the no-op update; unlike
+    // INSERT IGNORE, truncation and other data errors still fail the insert
+    private static final String INSERT_SQL = "INSERT INTO audit_event (event_id, event_time_utc, request_id, "
+            + "actor_user_id_public, actor_username, action, category, entity_type, entity_id_public, outcome, "
+            + "http_status, error_code, message, http_method, path, ip, user_agent, details, occurrence_count, "
+            + "first_seen_utc, last_seen_utc, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE event_id = event_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditJournal journal;
+    private final TransactionTemplate separateTransaction;
+    private final ArrayBlockingQueue<AuditRecord> queue;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRecords = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder journaled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+
+    public AuditWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            AuditJournal journal,
+            @Value("${app.audit.writer.async:true}") boolean async,
+            @Value("${app.audit.writer.queue-capacity:8192}") int queueCapacity,
+            @Value("${app.audit.writer.batch-size:200}") int batchSize,
+            @Value("${app.audit.writer.flush-interval-ms:50}") long flushIntervalMs,
+            @Value("${app.audit.writer.overflow-policy:SPILL}") OverflowPolicy overflowPolicy,
+            @Value("${app.audit.writer.block-timeout-ms:100}") long blockTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.journal = journal;
+        this.separateTransaction = new TransactionTemplate(transactionManager);
+        this.separateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.async = async;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!async) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::drainLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Never throws and never waits on the database. Once the queue is full, BLOCK waits for
+     * room and SPILL writes to the journal (or, with the journal disabled, to the database).
+     */
+    public void enqueue(AuditRecord record) {
+        if (!running) {
+            writeNow(record);
+            return;
+        }
+        enqueued.increment();
+        if (queue.offer(record)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(record, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        spill(record);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    spill(record);
+                }
+            }
+            case DROP_OLDEST -> {
+                // Another producer may refill the slot between poll and offer; bounded retries
+                for (int attempt = 0; attempt < 3; attempt++) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                    if (queue.offer(record)) {
+                        return;
+                    }
+                }
+                dropped.increment();
+            }
+            case SPILL -> spill(record);
+        }
+    }
+
+    private void spill(AuditRecord record) {
+        spilled.increment();
+        if (!journal.isEnabled()) {
+            writeNow(record);
+        } else if (journal.append(List.of(record))) {
+            journaled.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditRecord first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    AuditRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<AuditRecord> batch) {
+        long start = System.nanoTime();
+        try {
+            insertBatch(batch);
+            written.add(batch.size());
+        } catch (RuntimeException e) {
+            logger.error("Failed to write {} audit events: {}", batch.size(), e.getMessage(), e);
+            toJournal(batch);
+        }
+        long elapsed = System.nanoTime() - start;
+        batches.increment();
+        batchedRecords.add(batch.size());
+        lastBatchSize = batch.size();
+        totalFlushNanos.add(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        maxLagNanos.accumulateAndGet(System.nanoTime() - batch.get(0).getEnqueuedAtNanos(), Math::max);
+    }
+
+    // Called from after-commit callbacks, where the caller's connection is still bound but
+    // will not commit again: the insert needs a transaction of its own
+    private void writeNow(AuditRecord record) {
+        try {
+            separateTransaction.executeWithoutResult(
+                    status -> jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, record)));
+            written.increment();
+        } catch (RuntimeException e) {
+            logger.error("Failed to save audit event: {}", e.getMessage(), e);
+            toJournal(List.of(record));
+        }
+    }
+
+    /**
+     * Inserts the records in one JDBC batch on the calling thread; failures propagate.
+     */
+    public void insertBatch(List<AuditRecord> records) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, records, records.size(), this::bind);
+    }
+
+    private void toJournal(List<AuditRecord> records) {
+        if (journal.append(records)) {
+            journaled.add(records.size());
+        } else {
+            failed.add(records.size());
+        }
+    }
+
+    private void bind(PreparedStatement ps, AuditRecord record) throws SQLException {
+        ps.setString(1, record.getEventId());
+        ps.setTimestamp(2, Timestamp.valueOf(record.getEventTimeUtc()));
+        ps.setString(3, record.getRequestId());
+        ps.setString(4, record.getActorUserIdPublic());
+        ps.setString(5, record.getActorUsername());
+        ps.setString(6, record.getAction());
+        ps.setString(7, record.getCategory());
+        ps.setString(8, record.getEntityType());
+        ps.setString(9, record.getEntityIdPublic());
+        ps.setString(10, record.getOutcome().name());
+        if (record.getHttpStatus() != null) {
+            ps.setInt(11, record.getHttpStatus());
+        } else {
+            ps.setNull(11, Types.INTEGER);
+        }
+        ps.setString(12, record.getErrorCode());
+        ps.setString(13, record.getMessage());
+        ps.setString(14, record.getHttpMethod());
+        ps.setString(15, record.getPath());
+        ps.setString(16, record.getIp());
+        ps.setString(17, record.getUserAgent());
+        ps.setString(18, record.getDetails());
+        ps.setInt(19, record.getOccurrenceCount());
+        ps.setTimestamp(20, record.getFirstSeenUtc() != null ? Timestamp.valueOf(record.getFirstSeenUtc()) : null);
+        ps.setTimestamp(21, record.getLastSeenUtc() != null ? Timestamp.valueOf(record.getLastSeenUtc()) : null);
+        ps.setTimestamp(22, Timestamp.valueOf(record.getCreatedAt()));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        // The loop exits once the queue is empty; whatever is still queued gets written first
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        if (writerThread.isAlive()) {
+            writerThread.interrupt();
+            return;
+        }
+        // Records offered while the loop was exiting
+        List<AuditRecord> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "auditWriter";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long flushes = batches.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("async", async);
+        metrics.put("overflowPolicy", overflowPolicy.name());
+        metrics.put("queueDepth", queue.size());
+        metrics.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        metrics.put("enqueued", enqueued.sum());
+        metrics.put("written", written.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("spilled", spilled.sum());
+        metrics.put("journaled", journaled.sum());
+        metrics.put("batches", flushes);
+        metrics.put("lastBatchSize", lastBatchSize);
+        metrics.put("avgBatchSize", flushes > 0 ? (double) batchedRecords.sum() / flushes : 0.0);
+        metrics.put("avgFlushMs", flushes > 0 ? totalFlushNanos.sum() / flushes / 1_000_000.0 : 0.0);
+        metrics.put("maxFlushMs", maxFlushNanos.get() / 1_000_000.0);
+        metrics.put("maxLagMs", maxLagNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+}
@@ -1,42 +1,213 @@
 package com.krouser.backend.audit.util;
 
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
-
+/**
+ * Builds the {@code details} of an audit event as a compact JSON object, e.g.
+ * {@code {"reason":"Bad credentials","attempts":3}}.
+ * <p>
+ * Fields are written straight into a per-thread {@link StringBuilder} that is reused from
+ * one builder to the next, and numbers and booleans have their own overloads, so building
+ * details allocates little more than the final string. Output is capped at
+ * {@link #MAX_BYTES} UTF-8 bytes: a string value that does not fit is cut on a character
+ * boundary, later fields are skipped and {@code "_truncated":true} is appended, so the
+ * result is always valid JSON. Lone surrogates have no UTF-8 form and are written as U+FFFD,
+ * as a UTF-8 encoder would. Null keys and values are ignored. A repeated key is written
+ * again; JSON readers, MySQL included, keep the last value.
+ */
 public class AuditDetailsBuilder {
 
-    private final Map<String, String> detailsMap = new LinkedHashMap<>();
+    /** Upper bound for the built string, in UTF-8 bytes. */
+    public static final int MAX_BYTES = 2000;
 
-    public AuditDetailsBuilder add(String key, Object value) {
-        if (key != null && value != null) {
-            detailsMap.put(key, String.valueOf(value));
+    private static final String TRUNCATED_FIELD = ",\"_truncated\":true";
+    // Room always left for the truncation marker and the closing brace
+    private static final int BUDGET = MAX_BYTES - TRUNCATED_FIELD.length() - 1;
+    // Larger buffers are not kept, so one huge event does not pin memory on every thread
+    private static final int MAX_RETAINED_CAPACITY = 4 * MAX_BYTES;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = new ThreadLocal<>();
+
+    private StringBuilder buffer;
+    private int bytes;
+    private boolean truncated;
+    // Where the field being written starts, to drop it if its value does not fit
+    private int fieldStart;
+    private int fieldStartBytes;
+
+    public AuditDetailsBuilder() {
+        // Check the buffer out, so a builder nested inside another's arguments gets its own
+        buffer = BUFFERS.get();
+        if (buffer == null) {
+            buffer = new StringBuilder(256);
+        } else {
+            BUFFERS.remove();
+            buffer.setLength(0);
+        }
+    }
+
+    public AuditDetailsBuilder add(String key, String value) {
+        if (key == null || value == null || !startField(key)) {
+            return this;
+        }
+        writeString(value, true);
+        return this;
+    }
+
+    public AuditDetailsBuilder add(String key, long value) {
+        if (key == null || !startField(key)) {
+            return this;
         }
+        writeLiteral(Long.toString(value));
         return this;
     }
 
+    public AuditDetailsBuilder add(String key, boolean value) {
+        if (key == null || !startField(key)) {
+            return this;
+        }
+        writeLiteral(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Integral numbers and booleans are written as JSON literals, anything else as its
+     * {@code toString()}.
+     */
+    public AuditDetailsBuilder add(String key, Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return add(key, ((Number) value).longValue());
+        }
+        if (value instanceof Boolean bool) {
+            return add(key, bool.booleanValue());
+        }
+        return add(key, value != null ? value.toString() : null);
+    }
+
+    /**
+     * Returns the JSON object, or null when no field was added. The builder must not be
+     * used afterwards.
+     */
     public String build() {
-        if (detailsMap.isEmpty()) {
-            return null;
+        StringBuilder out = buffer;
+        buffer = null;
+        String result = null;
+        if (out.length() > 0) {
+            if (truncated) {
+                out.append(TRUNCATED_FIELD);
+            }
+            out.append('}');
+            result = out.toString();
+        } else if (truncated) {
+            result = "{" + TRUNCATED_FIELD.substring(1) + "}";
+        }
+        if (out.capacity() <= MAX_RETAINED_CAPACITY) {
+            BUFFERS.set(out);
+        }
+        return result;
+    }
+
+    // Writes the separator and the key; false (and nothing written) when the field is skipped
+    private boolean startField(String key) {
+        if (truncated) {
+            return false;
+        }
+        fieldStart = buffer.length();
+        fieldStartBytes = bytes;
+        buffer.append(fieldStart == 0 ? '{' : ',');
+        bytes++;
+        if (!writeString(key, false) || !fits(1)) {
+            rollbackField();
+            return false;
+        }
+        buffer.append(':');
+        bytes++;
+        return true;
+    }
+
+    private void writeLiteral(String literal) {
+        if (!fits(literal.length())) {
+            rollbackField();
+            return;
+        }
+        buffer.append(literal);
+        bytes += literal.length();
+    }
+
+    /**
+     * Appends a quoted, escaped string. Values are cut at the last character that fits;
+     * keys are all or nothing. Returns false if the string was not written in full.
+     */
+    private boolean writeString(String value, boolean allowCut) {
+        if (!fits(2)) {
+            if (allowCut) {
+                rollbackField();
+            }
+            return false;
+        }
+        buffer.append('"');
+        bytes++;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            int size;
+            boolean pair = Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1));
+            if (pair) {
+                size = 4;
+            } else if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t') {
+                size = 2;
+            } else if (c < 0x20) {
+                size = 6;
+            } else if (Character.isSurrogate(c)) {
+                size = 3;
+            } else {
+                size = c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            }
+            // + 1 for the closing quote
+            if (!fits(size + 1)) {
+                buffer.append('"');
+                bytes++;
+                truncated = true;
+                return false;
+            }
+            if (pair) {
+                buffer.append(c).append(value.charAt(++i));
+            } else {
+                appendEscaped(c);
+            }
+            bytes += size;
+        }
+        buffer.append('"');
+        bytes++;
+        return true;
+    }
+
+    private void appendEscaped(char c) {
+        switch (c) {
+            case '"' -> buffer.append("\\\"");
+            case '\\' -> buffer.append("\\\\");
+            case '\n' -> buffer.append("\\n");
+            case '\r' -> buffer.append("\\r");
+            case '\t' -> buffer.append("\\t");
+            default -> {
+                if (c < 0x20) {
+                    buffer.append("\\u00").append(HEX[c >> 4 & 0xF]).append(HEX[c & 0xF]);
+                } else if (Character.isSurrogate(c)) {
+                    buffer.append('\uFFFD');
+                } else {
+                    buffer.append(c);
+                }
+            }
         }
-        String combined = detailsMap.entrySet().stream()
-                .map(e -> escape(e.getKey()) + "=" + escape(e.getValue()))
-                .collect(Collectors.joining(";"));
-        return truncate(combined, 2000);
     }
 
-    private String escape(String input) {
-        if (input == null)
-            return "";
-        return input.replace(";", "{semi}").replace("=", "{eq}");
+    private void rollbackField() {
+        buffer.setLength(fieldStart);
+        bytes = fieldStartBytes;
+        truncated = true;
     }
 
-    private String truncate(String input, int maxLength) {
-        if (input == null)
-            return null;
-        if (input.length() <= maxLength)
-            return input;
-        return input.substring(0, maxLength);
+    private boolean fits(int extra) {
+        return bytes + extra <= BUDGET;
     }
 }
@@ -8,8 +8,11 @@ import com.krouser.backend.auth.dto.TokenRefreshRequest;
 import com.krouser.backend.auth.dto.TokenRefreshResponse;
 import com.krouser.backend.auth.dto.ResetPasswordRequest;
 import com.krouser.backend.auth.dto.ForgotPasswordRequest;
+import com.krouser.backend.auth.security.JwtAuthFilter;
+import com.krouser.backend.auth.security.VerifiedToken;
 import com.krouser.backend.auth.service.AuthService;
 import com.krouser.backend.shared.dto.ApiResponse;
+import com.krouser.backend.shared.util.HttpRequestUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -51,7 +54,7 @@ public class AuthController {
     @ResponseBody
     public ResponseEntity<ApiResponse<LoginResponse>> login(@Valid @RequestBody LoginRequest request,
             HttpServletRequest httpRequest) {
-        LoginResponse response = authService.login(request);
+        LoginResponse response = authService.login(request, HttpRequestUtils.getClientIp(httpRequest));
         return ResponseEntity.ok(new ApiResponse<>(200, "Login successful", response, httpRequest.getRequestURI()));
     }
 
@@ -105,7 +108,9 @@ public class AuthController {
     @ResponseBody
     public ResponseEntity<ApiResponse<Void>> logout(HttpServletRequest httpRequest) {
         String username = httpRequest.getUserPrincipal().getName();
-        authService.logout(username);
+        VerifiedToken accessToken = (VerifiedToken) httpRequest
+                .getAttribute(JwtAuthFilter.VERIFIED_TOKEN_ATTRIBUTE);
+        authService.logout(username, accessToken);
         return ResponseEntity.ok(new ApiResponse<>(200, "Log out successful", null, httpRequest.getRequestURI()));
     }
 
@@ -4,6 +4,7 @@ import com.krouser.backend.auth.repository.VerificationTokenRepository;
 import com.krouser.backend.users.entity.User;
 import com.krouser.backend.users.entity.UserStatus;
 import com.krouser.backend.users.repository.UserRepository;
+import com.krouser.backend.users.service.UserSearchIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,10 +26,13 @@ public class UserCleanupTask {
 
     private final UserRepository userRepository;
     private final VerificationTokenRepository tokenRepository;
+    private final UserSearchIndex userSearchIndex;
 
-    public UserCleanupTask(UserRepository userRepository, VerificationTokenRepository tokenRepository) {
+    public UserCleanupTask(UserRepository userRepository, VerificationTokenRepository tokenRepository,
+            UserSearchIndex userSearchIndex) {
         this.userRepository = userRepository;
         this.tokenRepository = tokenRepository;
+        this.userSearchIndex = userSearchIndex;
     }
 
     @Scheduled(fixedRate = 43200000) // Run every 12 hours (12 * 60 * 60 * 1000)
@@ -52,6 +56,7 @@ public class UserCleanupTask {
             tokenRepository.deleteByUser(user);
             // Delete user
             userRepository.delete(user);
+            userSearchIndex.removeAfterCommit(user);
         }
 
         logger.info("Purged {} unverified users.", usersToDelete.size());
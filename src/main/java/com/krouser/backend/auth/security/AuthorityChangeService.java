@@ -0,0 +1,88 @@
+package com.krouser.backend.auth.security;
+
+import com.krouser.backend.shared.util.TransactionCallbacks;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.repository.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Single entry point for keeping authentication state in sync with user and RBAC writes.
+ * Bumps authority versions inside the caller's transaction and evicts cached
+ * {@code UserDetails} once it commits.
+ */
+@Service
+public class AuthorityChangeService {
+
+    private final UserRepository userRepository;
+    private final AuthorityVersionRegistry authorityVersionRegistry;
+    private final CustomUserDetailsService userDetailsService;
+    private final PermissionMatrix permissionMatrix;
+
+    public AuthorityChangeService(UserRepository userRepository, AuthorityVersionRegistry authorityVersionRegistry,
+            CustomUserDetailsService userDetailsService, PermissionMatrix permissionMatrix) {
+        this.userRepository = userRepository;
+        this.authorityVersionRegistry = authorityVersionRegistry;
+        this.userDetailsService = userDetailsService;
+        this.permissionMatrix = permissionMatrix;
+    }
+
+    /**
+     * Roles or status of the user changed: tokens issued before are no longer current.
+     */
+    public void userAuthoritiesChanged(User user) {
+        authorityVersionRegistry.bumpUser(user);
+        evictAfterCommit(List.of(user.getUsername()));
+    }
+
+    /**
+     * Cached fields such as the password hash or status changed, authorities did not.
+     */
+    public void userDetailsChanged(User user) {
+        evictAfterCommit(List.of(user.getUsername()));
+    }
+
+    public void roleChanged(Long roleId) {
+        rbacModelChanged();
+        usersChanged(userRepository.findUsernamesByRoleId(roleId));
+    }
+
+    /**
+     * Several roles changed in one transaction: one lookup and one bulk version bump for
+     * all the affected users.
+     */
+    public void rolesChanged(Collection<Long> roleIds) {
+        if (roleIds.isEmpty()) {
+            return;
+        }
+        rbacModelChanged();
+        usersChanged(userRepository.findUsernamesByRoleIdIn(roleIds));
+    }
+
+    public void privilegeChanged(Long privilegeId) {
+        rbacModelChanged();
+        usersChanged(userRepository.findUsernamesByPrivilegeId(privilegeId));
+    }
+
+    /**
+     * A role or privilege was created, changed or removed: recompile the permission matrix
+     * once the change commits.
+     */
+    public void rbacModelChanged() {
+        permissionMatrix.rebuildAfterCommit();
+    }
+
+    private void usersChanged(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        authorityVersionRegistry.bumpUsers(usernames);
+        evictAfterCommit(usernames);
+    }
+
+    private void evictAfterCommit(Collection<String> usernames) {
+        TransactionCallbacks.afterCommit(() -> userDetailsService.evictAll(usernames));
+    }
+}
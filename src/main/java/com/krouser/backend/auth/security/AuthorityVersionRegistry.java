@@ -0,0 +1,77 @@
+package com.krouser.backend.auth.security;
+
+import com.krouser.backend.shared.cache.BoundedTtlCache;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import com.krouser.backend.shared.util.TransactionCallbacks;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Tracks the current authority version of each user so tokens carrying their own
+ * authorities can be checked without loading roles and privileges.
+ * <p>
+ * Versions are cached for a short TTL; a miss costs one single-column lookup. Changes made
+ * on this node invalidate the cached value after commit, other nodes pick them up once the
+ * TTL elapses.
+ */
+@Component
+public class AuthorityVersionRegistry implements MetricsSource {
+
+    private static final long UNKNOWN_USER = -1L;
+
+    private final UserRepository userRepository;
+    private final BoundedTtlCache<String, Long> versions;
+
+    public AuthorityVersionRegistry(UserRepository userRepository,
+            @Value("${app.jwt.authority-version.cache-size:100000}") long cacheSize,
+            @Value("${app.jwt.authority-version.ttl-ms:30000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.versions = new BoundedTtlCache<>(cacheSize, ttlMs);
+    }
+
+    public boolean isCurrent(String username, long tokenVersion) {
+        return currentVersion(username) == tokenVersion;
+    }
+
+    public long currentVersion(String username) {
+        return versions.get(username,
+                key -> userRepository.findAuthorityVersionByUsername(key).orElse(UNKNOWN_USER));
+    }
+
+    /**
+     * Bumps the version of a managed user; the change is flushed with the surrounding
+     * transaction.
+     */
+    public void bumpUser(User user) {
+        user.setAuthorityVersion(user.getAuthorityVersion() + 1);
+        String username = user.getUsername();
+        TransactionCallbacks.afterCommit(() -> versions.invalidate(username));
+    }
+
+    /**
+     * Bumps the version of the given users with one bulk update. Must run inside a
+     * transaction.
+     */
+    public void bumpUsers(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        userRepository.incrementAuthorityVersion(usernames);
+        TransactionCallbacks.afterCommit(() -> versions.invalidateAll(usernames));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "authorityVersionCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        return versions.stats();
+    }
+}
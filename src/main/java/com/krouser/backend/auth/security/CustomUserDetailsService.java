@@ -2,43 +2,94 @@ package com.krouser.backend.auth.security;
 
 import com.krouser.backend.rbac.entity.Privilege;
 import com.krouser.backend.rbac.entity.Role;
+import com.krouser.backend.shared.cache.BoundedTtlCache;
+import com.krouser.backend.shared.metrics.MetricsSource;
 import com.krouser.backend.users.entity.User;
 import com.krouser.backend.users.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, MetricsSource {
 
     private final UserRepository userRepository;
+    private final boolean cacheEnabled;
+    private final BoundedTtlCache<String, UserDetails> cache;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository,
+            @Value("${app.security.user-cache.enabled:true}") boolean cacheEnabled,
+            @Value("${app.security.user-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.user-cache.ttl-ms:60000}") long ttlMs) {
         this.userRepository = userRepository;
+        this.cacheEnabled = cacheEnabled;
+        this.cache = new BoundedTtlCache<>(maxSize, ttlMs);
     }
 
+    // Not @Transactional: a cache hit must not borrow a connection. The repository call
+    // runs in its own read-only transaction and fetches roles and privileges eagerly.
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        if (!cacheEnabled) {
+            return loadFromDatabase(username);
+        }
+        // Concurrent misses for the same user share a single query. A copy is handed out
+        // because the authentication manager erases credentials on the instance it gets.
+        UserDetails cached = cache.get(username, this::loadFromDatabase);
+        return ((RbacUserDetails) cached).copy();
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public void evictAll(Collection<String> usernames) {
+        cache.invalidateAll(usernames);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "userDetailsCache";
+    }
 
-        return new org.springframework.security.core.userdetails.User(
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = cache.stats();
+        metrics.put("enabled", cacheEnabled);
+        return metrics;
+    }
+
+    /**
+     * Builds the principal from an already loaded user, for callers that have the entity
+     * at hand and must not pay for a second lookup.
+     */
+    public UserDetails toUserDetails(User user) {
+        List<String> roleNames = new ArrayList<>(user.getRoles().size());
+        for (Role role : user.getRoles()) {
+            roleNames.add(role.getName());
+        }
+        return new RbacUserDetails(
                 user.getUsername(),
                 user.getPasswordHash(),
                 user.isEnabled(),
                 true,
-                true,
-                true,
-                getAuthorities(user.getRoles()));
+                getAuthorities(user.getRoles()),
+                roleNames);
+    }
+
+    private UserDetails loadFromDatabase(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+        return toUserDetails(user);
     }
 
     private Collection<? extends GrantedAuthority> getAuthorities(Collection<Role> roles) {
@@ -1,12 +1,15 @@
 package com.krouser.backend.auth.security;
 
 import com.krouser.backend.auth.service.JwtService;
+import com.krouser.backend.auth.service.TokenRevocationService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,16 +19,28 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    // Request attribute holding the VerifiedToken of an authenticated request
+    public static final String VERIFIED_TOKEN_ATTRIBUTE = JwtAuthFilter.class.getName() + ".VERIFIED_TOKEN";
+
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final AuthorityVersionRegistry authorityVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService,
+            AuthorityVersionRegistry authorityVersionRegistry, TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.authorityVersionRegistry = authorityVersionRegistry;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -35,7 +50,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -44,16 +58,26 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         jwt = authHeader.substring(7);
         try {
-            userEmail = jwtService.extractUsername(jwt);
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+            // Signature and expiry are checked once here; everything below works from the result
+            VerifiedToken token = jwtService.verify(jwt);
+            String username = token.getSubject();
+            if (tokenRevocationService.isRevoked(token.getId())) {
+                logger.debug("Rejecting revoked token for user " + username);
+                username = null;
+            }
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = jwtService.isClaimsMode()
+                        && token.getClaim(JwtService.CLAIM_AUTHORITY_VERSION) != null
+                                ? userDetailsFromClaims(token)
+                                : this.userDetailsService.loadUserByUsername(username);
+                if (userDetails != null && userDetails.isEnabled() && jwtService.isTokenValid(token, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
                             userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                    request.setAttribute(VERIFIED_TOKEN_ATTRIBUTE, token);
                 }
             }
         } catch (io.jsonwebtoken.ExpiredJwtException e) {
@@ -75,4 +99,32 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Rebuilds the principal from the token alone. Returns null when the user's authorities
+     * changed after the token was issued, which leaves the request unauthenticated.
+     */
+    private UserDetails userDetailsFromClaims(VerifiedToken token) {
+        long tokenVersion = ((Number) token.getClaim(JwtService.CLAIM_AUTHORITY_VERSION)).longValue();
+        if (!authorityVersionRegistry.isCurrent(token.getSubject(), tokenVersion)) {
+            logger.debug("Rejecting token with stale authority version for user " + token.getSubject());
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        List<String> roleNames = new ArrayList<>();
+        for (Object role : claimList(token, JwtService.CLAIM_ROLES)) {
+            roleNames.add(String.valueOf(role));
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+        }
+        for (Object privilege : claimList(token, JwtService.CLAIM_PRIVILEGES)) {
+            authorities.add(new SimpleGrantedAuthority(String.valueOf(privilege)));
+        }
+        return new RbacUserDetails(token.getSubject(), "", true, true, authorities, roleNames);
+    }
+
+    private static Collection<?> claimList(VerifiedToken token, String name) {
+        Object value = token.getClaim(name);
+        return value instanceof Collection ? (Collection<?>) value : Collections.emptyList();
+    }
 }
@@ -0,0 +1,186 @@
+package com.krouser.backend.auth.security;
+
+import com.krouser.backend.shared.exception.TooManyAttemptsException;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import com.krouser.backend.shared.util.SlidingWindowCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts failed logins per username and per client IP in memory.
+ * <p>
+ * Attempts from an over-limit IP are rejected before the user is loaded or the password is
+ * hashed. Failures below the username threshold never touch the database; the caller persists
+ * the lock only when {@link #recordFailure} reports that the threshold was crossed, and that
+ * lock is what rejects the username from then on. Counters are per node, the durable lock is
+ * what every node shares.
+ */
+@Component
+public class LoginAttemptThrottler implements MetricsSource {
+
+    private static final String THROTTLED_MESSAGE = "Demasiados intentos de inicio de sesión, intente más tarde";
+
+    private final int userMaxFailures;
+    private final long userWindowMs;
+    private final int ipMaxFailures;
+    private final long ipWindowMs;
+    private final int buckets;
+    private final Duration lockDuration;
+
+    private final ConcurrentHashMap<String, SlidingWindowCounter> userFailures = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SlidingWindowCounter> ipFailures = new ConcurrentHashMap<>();
+
+    private final LongAdder failuresRecorded = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder userThresholdCrossed = new LongAdder();
+    private final LongAdder ipThresholdCrossed = new LongAdder();
+
+    public LoginAttemptThrottler(
+            @Value("${app.security.login-throttle.user.max-failures:5}") int userMaxFailures,
+            @Value("${app.security.login-throttle.user.window-ms:900000}") long userWindowMs,
+            @Value("${app.security.login-throttle.ip.max-failures:20}") int ipMaxFailures,
+            @Value("${app.security.login-throttle.ip.window-ms:300000}") long ipWindowMs,
+            @Value("${app.security.login-throttle.buckets:10}") int buckets,
+            @Value("${app.security.login-throttle.user.lock-minutes:15}") long lockMinutes) {
+        this.userMaxFailures = userMaxFailures;
+        this.userWindowMs = userWindowMs;
+        this.ipMaxFailures = ipMaxFailures;
+        this.ipWindowMs = ipWindowMs;
+        this.buckets = buckets;
+        this.lockDuration = Duration.ofMinutes(lockMinutes);
+    }
+
+    /**
+     * Rejects the attempt with a 429 when the client IP already reached its limit inside the
+     * window. A username never reaches its limit here: its counter is cleared when the
+     * threshold is crossed and the account lock takes over.
+     */
+    public void checkAllowed(String clientIp) {
+        if (clientIp != null && count(ipFailures, clientIp, System.currentTimeMillis()) >= ipMaxFailures) {
+            rejectedByIp.increment();
+            throw new TooManyAttemptsException(THROTTLED_MESSAGE, retryAfterSeconds(ipWindowMs));
+        }
+    }
+
+    /**
+     * Records a failed attempt and returns the outcome for the username. When the outcome
+     * says the threshold was crossed the caller must persist the lock; the counter is then
+     * cleared so the next window starts from zero once the lock expires. A null username
+     * (unknown account) only counts against the IP.
+     */
+    public FailureOutcome recordFailure(String username, String clientIp) {
+        failuresRecorded.increment();
+        long now = System.currentTimeMillis();
+
+        boolean ipCrossed = false;
+        if (clientIp != null) {
+            int ipCount = ipFailures.computeIfAbsent(clientIp, key -> newCounter(ipWindowMs)).increment(now);
+            ipCrossed = ipCount == ipMaxFailures;
+            if (ipCrossed) {
+                ipThresholdCrossed.increment();
+            }
+        }
+
+        if (username == null) {
+            return new FailureOutcome(0, false, ipCrossed);
+        }
+        String key = normalize(username);
+        SlidingWindowCounter counter = userFailures.computeIfAbsent(key, k -> newCounter(userWindowMs));
+        int userCount = counter.increment(now);
+        boolean userCrossed = userCount >= userMaxFailures;
+        if (userCrossed) {
+            userThresholdCrossed.increment();
+            userFailures.remove(key, counter);
+        }
+        return new FailureOutcome(userCount, userCrossed, ipCrossed);
+    }
+
+    public void recordSuccess(String username) {
+        userFailures.remove(normalize(username));
+    }
+
+    public Duration getLockDuration() {
+        return lockDuration;
+    }
+
+    // Drops counters whose window is empty so idle keys do not accumulate
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.cleanup-ms:60000}")
+    public void purgeIdle() {
+        long now = System.currentTimeMillis();
+        userFailures.values().removeIf(counter -> counter.sum(now) == 0);
+        ipFailures.values().removeIf(counter -> counter.sum(now) == 0);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "loginThrottle";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("userMaxFailures", userMaxFailures);
+        metrics.put("userWindowMs", userWindowMs);
+        metrics.put("userLockMinutes", lockDuration.toMinutes());
+        metrics.put("ipMaxFailures", ipMaxFailures);
+        metrics.put("ipWindowMs", ipWindowMs);
+        metrics.put("trackedUsernames", userFailures.size());
+        metrics.put("trackedIps", ipFailures.size());
+        metrics.put("failuresRecorded", failuresRecorded.sum());
+        metrics.put("rejectedByIp", rejectedByIp.sum());
+        metrics.put("userThresholdCrossed", userThresholdCrossed.sum());
+        metrics.put("ipThresholdCrossed", ipThresholdCrossed.sum());
+        return metrics;
+    }
+
+    private int count(ConcurrentHashMap<String, SlidingWindowCounter> counters, String key, long now) {
+        SlidingWindowCounter counter = counters.get(key);
+        return counter != null ? counter.sum(now) : 0;
+    }
+
+    private SlidingWindowCounter newCounter(long windowMs) {
+        return new SlidingWindowCounter(windowMs, buckets);
+    }
+
+    // A bucket is the smallest step at which the window forgets old failures
+    private long retryAfterSeconds(long windowMs) {
+        return Math.max(1, windowMs / buckets / 1000);
+    }
+
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    public static final class FailureOutcome {
+
+        private final int userFailures;
+        private final boolean userThresholdCrossed;
+        private final boolean ipThresholdCrossed;
+
+        FailureOutcome(int userFailures, boolean userThresholdCrossed, boolean ipThresholdCrossed) {
+            this.userFailures = userFailures;
+            this.userThresholdCrossed = userThresholdCrossed;
+            this.ipThresholdCrossed = ipThresholdCrossed;
+        }
+
+        public int getUserFailures() {
+            return userFailures;
+        }
+
+        public boolean isUserThresholdCrossed() {
+            return userThresholdCrossed;
+        }
+
+        public boolean isIpThresholdCrossed() {
+            return ipThresholdCrossed;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.krouser.backend.auth.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Builds the application's password encoder.
+ * <p>
+ * New hashes are written as {@code {bcrypt}...} or {@code {argon2}...} depending on
+ * {@code app.security.password.algorithm}; hashes without a prefix (everything stored
+ * before this encoder existed) are verified as plain BCrypt. When calibration is enabled
+ * the cost of the active algorithm is measured at startup and raised until one hash takes
+ * about {@code target-ms} on this hardware. Hashes with outdated parameters are reported by
+ * {@link PasswordEncoder#upgradeEncoding(String)} and rehashed on the next login.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+
+    @Value("${app.security.password.algorithm:bcrypt}")
+    private String algorithm;
+
+    @Value("${app.security.password.calibrate:true}")
+    private boolean calibrate;
+
+    @Value("${app.security.password.target-ms:250}")
+    private long targetMs;
+
+    @Value("${app.security.password.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.security.password.bcrypt.max-strength:16}")
+    private int bcryptMaxStrength;
+
+    @Value("${app.security.password.argon2.memory-kib:19456}")
+    private int argon2MemoryKib;
+
+    @Value("${app.security.password.argon2.parallelism:1}")
+    private int argon2Parallelism;
+
+    @Value("${app.security.password.argon2.iterations:2}")
+    private int argon2Iterations;
+
+    @Value("${app.security.password.argon2.max-iterations:10}")
+    private int argon2MaxIterations;
+
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        String idForEncode = ARGON2.equalsIgnoreCase(algorithm) ? ARGON2 : BCRYPT;
+
+        int strength = bcryptStrength;
+        int iterations = argon2Iterations;
+        if (calibrate && BCRYPT.equals(idForEncode)) {
+            strength = calibrate(BCRYPT, bcryptStrength, bcryptMaxStrength,
+                    cost -> new BCryptPasswordEncoder(cost), true);
+        } else if (calibrate) {
+            iterations = calibrate(ARGON2, argon2Iterations, argon2MaxIterations,
+                    cost -> argon2(cost), false);
+        }
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(ARGON2, argon2(iterations));
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(idForEncode, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        logger.info("Password encoder: {} (bcrypt strength {}, argon2 iterations {}, memory {} KiB)",
+                idForEncode, strength, iterations, argon2MemoryKib);
+        return encoder;
+    }
+
+    private Argon2PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH, argon2Parallelism,
+                argon2MemoryKib, iterations);
+    }
+
+    /**
+     * Measures one hash at the minimum cost and extrapolates to the largest cost that stays
+     * within the target. BCrypt doubles its work per strength step, Argon2 grows linearly
+     * with the iteration count. The configured cost is a floor: calibration never lowers it.
+     */
+    private int calibrate(String name, int minCost, int maxCost, IntFunction<PasswordEncoder> factory,
+            boolean exponential) {
+        PasswordEncoder probe = factory.apply(minCost);
+        probe.encode("calibration-warmup");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-sample");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double measuredMs = best / 1_000_000.0;
+
+        int cost = minCost;
+        double estimatedMs = measuredMs;
+        while (cost < maxCost) {
+            double next = exponential ? estimatedMs * 2 : measuredMs * (cost + 1) / minCost;
+            if (next > targetMs) {
+                break;
+            }
+            cost++;
+            estimatedMs = next;
+        }
+        logger.info("Calibrated {}: cost {} measured {} ms, selected cost {} (~{} ms, target {} ms)",
+                name, minCost, String.format("%.1f", measuredMs), cost, String.format("%.1f", estimatedMs),
+                targetMs);
+        return cost;
+    }
+}
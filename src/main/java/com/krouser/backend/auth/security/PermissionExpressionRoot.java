@@ -0,0 +1,144 @@
+package com.krouser.backend.auth.security;
+
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Root object of {@code @PreAuthorize} expressions. Authority and role checks on an
+ * {@link RbacUserDetails} principal are answered by the {@link PermissionMatrix}; anything
+ * else, and any other kind of principal, goes to Spring's default root.
+ */
+public class PermissionExpressionRoot implements MethodSecurityExpressionOperations {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final MethodSecurityExpressionOperations delegate;
+    private final PermissionMatrix permissionMatrix;
+
+    public PermissionExpressionRoot(MethodSecurityExpressionOperations delegate, PermissionMatrix permissionMatrix) {
+        this.delegate = delegate;
+        this.permissionMatrix = permissionMatrix;
+    }
+
+    @Override
+    public boolean hasAuthority(String authority) {
+        RbacUserDetails user = rbacPrincipal();
+        return user != null ? permissionMatrix.hasAuthority(user, authority) : delegate.hasAuthority(authority);
+    }
+
+    @Override
+    public boolean hasAnyAuthority(String... authorities) {
+        RbacUserDetails user = rbacPrincipal();
+        if (user == null) {
+            return delegate.hasAnyAuthority(authorities);
+        }
+        for (String authority : authorities) {
+            if (permissionMatrix.hasAuthority(user, authority)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasRole(String role) {
+        RbacUserDetails user = rbacPrincipal();
+        return user != null ? permissionMatrix.hasAuthority(user, withRolePrefix(role)) : delegate.hasRole(role);
+    }
+
+    @Override
+    public boolean hasAnyRole(String... roles) {
+        RbacUserDetails user = rbacPrincipal();
+        if (user == null) {
+            return delegate.hasAnyRole(roles);
+        }
+        for (String role : roles) {
+            if (permissionMatrix.hasAuthority(user, withRolePrefix(role))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RbacUserDetails rbacPrincipal() {
+        Authentication authentication = delegate.getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof RbacUserDetails user
+                ? user
+                : null;
+    }
+
+    // Mirrors SecurityExpressionRoot: hasRole('ADMIN') and hasRole('ROLE_ADMIN') are the same
+    private static String withRolePrefix(String role) {
+        return role.startsWith(ROLE_PREFIX) ? role : ROLE_PREFIX + role;
+    }
+
+    @Override
+    public Authentication getAuthentication() {
+        return delegate.getAuthentication();
+    }
+
+    @Override
+    public boolean permitAll() {
+        return delegate.permitAll();
+    }
+
+    @Override
+    public boolean denyAll() {
+        return delegate.denyAll();
+    }
+
+    @Override
+    public boolean isAnonymous() {
+        return delegate.isAnonymous();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return delegate.isAuthenticated();
+    }
+
+    @Override
+    public boolean isRememberMe() {
+        return delegate.isRememberMe();
+    }
+
+    @Override
+    public boolean isFullyAuthenticated() {
+        return delegate.isFullyAuthenticated();
+    }
+
+    @Override
+    public boolean hasPermission(Object target, Object permission) {
+        return delegate.hasPermission(target, permission);
+    }
+
+    @Override
+    public boolean hasPermission(Object targetId, String targetType, Object permission) {
+        return delegate.hasPermission(targetId, targetType, permission);
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        delegate.setFilterObject(filterObject);
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return delegate.getFilterObject();
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        delegate.setReturnObject(returnObject);
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return delegate.getReturnObject();
+    }
+
+    @Override
+    public Object getThis() {
+        return delegate.getThis();
+    }
+}
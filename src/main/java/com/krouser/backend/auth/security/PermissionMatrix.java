@@ -0,0 +1,226 @@
+package com.krouser.backend.auth.security;
+
+import com.krouser.backend.rbac.dto.RolePrivilegeView;
+import com.krouser.backend.rbac.repository.RoleRepository;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import com.krouser.backend.shared.util.TransactionCallbacks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiled RBAC model used by {@code @PreAuthorize} checks.
+ * <p>
+ * Every authority name ({@code ROLE_<name>} and each privilege) gets a dense bit index, every
+ * role becomes a bitset of its own role bit plus its privileges, and a user's permissions are
+ * the OR of its role bitsets. A check is then one map lookup and one bit test instead of a
+ * scan over the granted authority strings.
+ * <p>
+ * The model is immutable and swapped as a whole (copy-on-write) after every RBAC change
+ * commits. It is per node: the scheduled refresh picks up changes made on other nodes.
+ */
+@Component
+public class PermissionMatrix implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionMatrix.class);
+
+    private final RoleRepository roleRepository;
+
+    private volatile Snapshot snapshot;
+    private long nextVersion = 1;
+
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private volatile long lastRebuildMs;
+
+    public PermissionMatrix(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.security.permission-matrix.refresh-ms:60000}",
+            initialDelayString = "${app.security.permission-matrix.refresh-ms:60000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    public void rebuildAfterCommit() {
+        TransactionCallbacks.afterCommit(this::rebuild);
+    }
+
+    /**
+     * Reloads roles and privileges in one query and publishes a new model. Serialized so a
+     * slow rebuild can never overwrite a newer one.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        List<RolePrivilegeView> rows = roleRepository.findAllWithPrivilegeNames();
+
+        TreeSet<String> authorities = new TreeSet<>();
+        for (RolePrivilegeView row : rows) {
+            authorities.add(roleAuthority(row.getName()));
+            if (row.getPrivilegeName() != null) {
+                authorities.add(row.getPrivilegeName());
+            }
+        }
+        Map<String, Integer> bits = new HashMap<>();
+        for (String authority : authorities) {
+            bits.put(authority, bits.size());
+        }
+
+        int words = Math.max(1, (bits.size() + 63) >>> 6);
+        Map<String, long[]> roles = new HashMap<>();
+        for (RolePrivilegeView row : rows) {
+            long[] roleBits = roles.computeIfAbsent(row.getName(), name -> {
+                long[] initial = new long[words];
+                set(initial, bits.get(roleAuthority(name)));
+                return initial;
+            });
+            if (row.getPrivilegeName() != null) {
+                set(roleBits, bits.get(row.getPrivilegeName()));
+            }
+        }
+
+        snapshot = new Snapshot(nextVersion++, bits, roles, words);
+        rebuilds.increment();
+        lastRebuildMs = System.currentTimeMillis() - start;
+        logger.debug("Permission matrix rebuilt: {} roles, {} authorities in {} ms", roles.size(), bits.size(),
+                lastRebuildMs);
+    }
+
+    /**
+     * Whether the user holds the authority ({@code ROLE_X} or a privilege name). Unknown
+     * authorities are never granted. A user with a role the model does not know yet (created
+     * on another node since the last refresh) is answered from the authorities loaded with
+     * the user, as Spring's default expression root would.
+     */
+    public boolean hasAuthority(RbacUserDetails user, String authority) {
+        checks.increment();
+        Snapshot current = current();
+        Permissions permissions = permissionsOf(user, current);
+        if (!permissions.complete) {
+            fallbacks.increment();
+            for (GrantedAuthority granted : user.getAuthorities()) {
+                if (authority.equals(granted.getAuthority())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        Integer bit = current.bits.get(authority);
+        return bit != null && permissions.has(bit);
+    }
+
+    // Memoized on the principal (shared by its copies) until the model changes
+    private Permissions permissionsOf(RbacUserDetails user, Snapshot current) {
+        Permissions permissions = user.getPermissions();
+        if (permissions == null || permissions.version != current.version) {
+            permissions = current.combine(user.getRoleNames());
+            user.setPermissions(permissions);
+        }
+        return permissions;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // A request may arrive before ApplicationReadyEvent
+            rebuild();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "permissionMatrix";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Snapshot current = snapshot;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("version", current != null ? current.version : 0);
+        metrics.put("roles", current != null ? current.roles.size() : 0);
+        metrics.put("authorities", current != null ? current.bits.size() : 0);
+        metrics.put("rebuilds", rebuilds.sum());
+        metrics.put("lastRebuildMs", lastRebuildMs);
+        metrics.put("checks", checks.sum());
+        metrics.put("unknownRoleFallbacks", fallbacks.sum());
+        return metrics;
+    }
+
+    // Same naming as CustomUserDetailsService uses for granted authorities
+    private static String roleAuthority(String roleName) {
+        return "ROLE_" + roleName;
+    }
+
+    private static void set(long[] words, int bit) {
+        words[bit >>> 6] |= 1L << bit;
+    }
+
+    private static final class Snapshot {
+
+        private final long version;
+        private final Map<String, Integer> bits;
+        private final Map<String, long[]> roles;
+        private final int words;
+
+        Snapshot(long version, Map<String, Integer> bits, Map<String, long[]> roles, int words) {
+            this.version = version;
+            this.bits = bits;
+            this.roles = roles;
+            this.words = words;
+        }
+
+        Permissions combine(Collection<String> roleNames) {
+            long[] combined = new long[words];
+            boolean complete = true;
+            for (String roleName : roleNames) {
+                long[] roleBits = roles.get(roleName);
+                if (roleBits == null) {
+                    complete = false;
+                    continue;
+                }
+                for (int i = 0; i < words; i++) {
+                    combined[i] |= roleBits[i];
+                }
+            }
+            return new Permissions(version, combined, complete);
+        }
+    }
+
+    /**
+     * Effective permissions of one principal for one model version.
+     */
+    static final class Permissions {
+
+        private final long version;
+        private final long[] words;
+        // False when a role of the principal is missing from the model
+        private final boolean complete;
+
+        Permissions(long version, long[] words, boolean complete) {
+            this.version = version;
+            this.words = words;
+            this.complete = complete;
+        }
+
+        boolean has(int bit) {
+            return (words[bit >>> 6] & (1L << bit)) != 0;
+        }
+    }
+}
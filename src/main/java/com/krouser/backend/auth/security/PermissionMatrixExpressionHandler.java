@@ -0,0 +1,42 @@
+package com.krouser.backend.auth.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * Method security expression handler that evaluates {@code @PreAuthorize} against
+ * {@link PermissionExpressionRoot}. Expressions keep their usual syntax.
+ */
+public class PermissionMatrixExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+    // Resolved lazily: the handler is created early, before the repositories are ready
+    private final ObjectProvider<PermissionMatrix> permissionMatrix;
+
+    public PermissionMatrixExpressionHandler(ObjectProvider<PermissionMatrix> permissionMatrix) {
+        this.permissionMatrix = permissionMatrix;
+    }
+
+    @Override
+    public EvaluationContext createEvaluationContext(Supplier<Authentication> authentication, MethodInvocation mi) {
+        StandardEvaluationContext context = (StandardEvaluationContext) super.createEvaluationContext(authentication,
+                mi);
+        MethodSecurityExpressionOperations root = (MethodSecurityExpressionOperations) context.getRootObject()
+                .getValue();
+        context.setRootObject(new PermissionExpressionRoot(root, permissionMatrix.getObject()));
+        return context;
+    }
+
+    @Override
+    protected MethodSecurityExpressionOperations createSecurityExpressionRoot(Authentication authentication,
+            MethodInvocation invocation) {
+        return new PermissionExpressionRoot(super.createSecurityExpressionRoot(authentication, invocation),
+                permissionMatrix.getObject());
+    }
+}
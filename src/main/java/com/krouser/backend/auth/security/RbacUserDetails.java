@@ -0,0 +1,52 @@
+package com.krouser.backend.auth.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Principal that also keeps the user's role names, so {@link PermissionMatrix} can answer
+ * authority checks with bit tests. Copies share the memoized permissions of the original.
+ */
+public class RbacUserDetails extends User {
+
+    private final List<String> roleNames;
+    private final transient AtomicReference<PermissionMatrix.Permissions> permissions;
+
+    public RbacUserDetails(String username, String password, boolean enabled, boolean accountNonLocked,
+            Collection<? extends GrantedAuthority> authorities, List<String> roleNames) {
+        this(username, password, enabled, accountNonLocked, authorities, roleNames, new AtomicReference<>());
+    }
+
+    private RbacUserDetails(String username, String password, boolean enabled, boolean accountNonLocked,
+            Collection<? extends GrantedAuthority> authorities, List<String> roleNames,
+            AtomicReference<PermissionMatrix.Permissions> permissions) {
+        super(username, password, enabled, true, true, accountNonLocked, authorities);
+        this.roleNames = List.copyOf(roleNames);
+        this.permissions = permissions;
+    }
+
+    public List<String> getRoleNames() {
+        return roleNames;
+    }
+
+    /**
+     * Fresh instance for one authentication; credentials erased on it do not affect the
+     * cached original.
+     */
+    public RbacUserDetails copy() {
+        return new RbacUserDetails(getUsername(), getPassword(), isEnabled(), isAccountNonLocked(),
+                getAuthorities(), roleNames, permissions);
+    }
+
+    PermissionMatrix.Permissions getPermissions() {
+        return permissions.get();
+    }
+
+    void setPermissions(PermissionMatrix.Permissions value) {
+        permissions.set(value);
+    }
+}
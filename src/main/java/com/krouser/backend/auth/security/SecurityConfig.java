@@ -1,19 +1,20 @@
 package com.krouser.backend.auth.security;
 
 import com.krouser.backend.audit.filter.AuditRequestFilter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import com.krouser.backend.audit.handler.AuditAccessDeniedHandler;
 import com.krouser.backend.audit.handler.AuditAuthenticationEntryPoint;
@@ -30,16 +31,19 @@ public class SecurityConfig {
     private final AuditRequestFilter auditRequestFilter;
     private final AuditAccessDeniedHandler accessDeniedHandler;
     private final AuditAuthenticationEntryPoint authenticationEntryPoint;
+    private final PasswordEncoder passwordEncoder;
 
     public SecurityConfig(JwtAuthFilter jwtAuthFilter, UserDetailsService userDetailsService,
             AuditRequestFilter auditRequestFilter,
             AuditAccessDeniedHandler accessDeniedHandler,
-            AuditAuthenticationEntryPoint authenticationEntryPoint) {
+            AuditAuthenticationEntryPoint authenticationEntryPoint,
+            PasswordEncoder passwordEncoder) {
         this.jwtAuthFilter = jwtAuthFilter;
         this.userDetailsService = userDetailsService;
         this.auditRequestFilter = auditRequestFilter;
         this.accessDeniedHandler = accessDeniedHandler;
         this.authenticationEntryPoint = authenticationEntryPoint;
+        this.passwordEncoder = passwordEncoder;
     }
 
     @Bean
@@ -66,11 +70,18 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // Static so method security can be set up before this configuration class is instantiated
+    @Bean
+    static MethodSecurityExpressionHandler methodSecurityExpressionHandler(
+            ObjectProvider<PermissionMatrix> permissionMatrix) {
+        return new PermissionMatrixExpressionHandler(permissionMatrix);
+    }
+
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -79,8 +90,4 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
 }
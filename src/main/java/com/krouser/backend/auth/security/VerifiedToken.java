@@ -0,0 +1,62 @@
+package com.krouser.backend.auth.security;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable result of a successful JWT signature and expiry check.
+ * Built once per token by {@link com.krouser.backend.auth.service.JwtService#verify(String)}
+ * so callers never need to parse the compact token again.
+ */
+public final class VerifiedToken {
+
+    private final String id;
+    private final String subject;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+    private final Map<String, Object> claims;
+
+    public VerifiedToken(String id, String subject, Instant issuedAt, Instant expiresAt,
+            Map<String, Object> claims) {
+        this.id = id;
+        this.subject = subject;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.claims = claims != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<>(claims))
+                : Collections.emptyMap();
+    }
+
+    /**
+     * Token id ({@code jti}); null for tokens issued before ids were added.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    public Object getClaim(String name) {
+        return claims.get(name);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
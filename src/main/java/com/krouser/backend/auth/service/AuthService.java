@@ -2,16 +2,21 @@ package com.krouser.backend.auth.service;
 
 import com.krouser.backend.auth.dto.LoginRequest;
 import com.krouser.backend.auth.dto.LoginResponse;
-
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import com.krouser.backend.auth.security.AuthorityChangeService;
+import com.krouser.backend.auth.security.VerifiedToken;
+
+import com.krouser.backend.auth.security.CustomUserDetailsService;
+import com.krouser.backend.auth.security.LoginAttemptThrottler;
+import com.krouser.backend.auth.security.PasswordHashingExecutor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import com.krouser.backend.auth.dto.RegisterRequest;
 import com.krouser.backend.auth.dto.RegisterResponse;
 import com.krouser.backend.shared.exception.AccountLockedException;
 import com.krouser.backend.shared.exception.BusinessException;
 import com.krouser.backend.shared.exception.InvalidTokenException;
+import com.krouser.backend.shared.exception.ServiceOverloadedException;
 import com.krouser.backend.shared.exception.UserAlreadyExistsException;
 import com.krouser.backend.shared.exception.UserNotFoundException;
 import com.krouser.backend.shared.exception.WeakPasswordException;
@@ -19,15 +24,14 @@ import com.krouser.backend.rbac.entity.Role;
 import com.krouser.backend.rbac.repository.RoleRepository;
 import com.krouser.backend.users.entity.User;
 import com.krouser.backend.users.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.krouser.backend.users.service.TagAllocator;
+import com.krouser.backend.users.service.UserSearchIndex;
 import org.springframework.stereotype.Service;
 
-import com.krouser.backend.shared.util.TagGenerator;
 import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import org.springframework.dao.DataIntegrityViolationException;
 import com.krouser.backend.audit.service.AuditService;
 import com.krouser.backend.audit.entity.AuditEvent;
 import com.krouser.backend.audit.util.AuditDetailsBuilder;
@@ -35,18 +39,21 @@ import com.krouser.backend.audit.util.AuditDetailsBuilder;
 @Service
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
-    private final UserDetailsService userDetailsService;
+    private final CustomUserDetailsService userDetailsService;
     private final JwtService jwtService;
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final TagGenerator tagGenerator;
+    private final PasswordHashingExecutor passwordHashingExecutor;
     private final AuditService auditService;
     private final com.krouser.backend.email.service.EmailService emailService;
     private final com.krouser.backend.auth.repository.VerificationTokenRepository tokenRepository;
     private final RefreshTokenService refreshTokenService;
     private final com.krouser.backend.auth.repository.PasswordResetTokenRepository passwordResetTokenRepository;
+    private final AuthorityChangeService authorityChangeService;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginAttemptThrottler loginAttemptThrottler;
+    private final UserSearchIndex userSearchIndex;
+    private final TagAllocator tagAllocator;
 
     @org.springframework.beans.factory.annotation.Value("${app.frontend-url}")
     private String frontendUrl;
@@ -63,25 +70,33 @@ public class AuthService {
     @org.springframework.beans.factory.annotation.Value("${app.urls.mobile.reset}")
     private String mobileResetUrl;
 
-    public AuthService(AuthenticationManager authenticationManager, UserDetailsService userDetailsService,
+    public AuthService(CustomUserDetailsService userDetailsService,
             JwtService jwtService, UserRepository userRepository, RoleRepository roleRepository,
-            PasswordEncoder passwordEncoder, TagGenerator tagGenerator, AuditService auditService,
+            PasswordHashingExecutor passwordHashingExecutor, AuditService auditService,
             com.krouser.backend.email.service.EmailService emailService,
             com.krouser.backend.auth.repository.VerificationTokenRepository tokenRepository,
             RefreshTokenService refreshTokenService,
-            com.krouser.backend.auth.repository.PasswordResetTokenRepository passwordResetTokenRepository) {
-        this.authenticationManager = authenticationManager;
+            com.krouser.backend.auth.repository.PasswordResetTokenRepository passwordResetTokenRepository,
+            AuthorityChangeService authorityChangeService,
+            TokenRevocationService tokenRevocationService,
+            LoginAttemptThrottler loginAttemptThrottler,
+            UserSearchIndex userSearchIndex,
+            TagAllocator tagAllocator) {
         this.userDetailsService = userDetailsService;
         this.jwtService = jwtService;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.passwordEncoder = passwordEncoder;
-        this.tagGenerator = tagGenerator;
+        this.passwordHashingExecutor = passwordHashingExecutor;
         this.auditService = auditService;
         this.emailService = emailService;
         this.tokenRepository = tokenRepository;
         this.refreshTokenService = refreshTokenService;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.authorityChangeService = authorityChangeService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginAttemptThrottler = loginAttemptThrottler;
+        this.userSearchIndex = userSearchIndex;
+        this.tagAllocator = tagAllocator;
         // Ideally we should validate that these URLs are configured or have defaults
     }
 
@@ -102,6 +117,7 @@ public class AuthService {
         User user = verificationToken.getUser();
         user.setStatus(com.krouser.backend.users.entity.UserStatus.ACTIVE);
         userRepository.save(user);
+        authorityChangeService.userDetailsChanged(user);
 
         String clientType = verificationToken.getClientType();
         tokenRepository.delete(verificationToken);
@@ -112,10 +128,16 @@ public class AuthService {
         return clientType;
     }
 
-    public LoginResponse login(LoginRequest request) {
+    public LoginResponse login(LoginRequest request, String clientIp) {
+        // 0. Throttle in memory before any DB access or hashing
+        loginAttemptThrottler.checkAllowed(clientIp);
+
         // 1. Check User Existence & Locking
-        User user = userRepository.findByUsername(request.getUsername())
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
+        User user = userRepository.findByUsername(request.getUsername()).orElse(null);
+        if (user == null) {
+            loginAttemptThrottler.recordFailure(null, clientIp);
+            throw new UserNotFoundException("User not found");
+        }
 
         if (user.getStatus() == com.krouser.backend.users.entity.UserStatus.BLOCKED) {
             if (user.getLockUntil() != null && user.getLockUntil().isAfter(java.time.LocalDateTime.now())) {
@@ -129,24 +151,44 @@ public class AuthService {
                 user.setFailedAttempts(0);
                 user.setLockUntil(null);
                 userRepository.save(user);
+                authorityChangeService.userDetailsChanged(user);
             }
         }
 
         try {
-            // 2. Attempt Authentication
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            request.getUsername(),
-                            request.getPassword()));
-
-            // 3. Success -> Reset counters
-            if (user.getFailedAttempts() > 0) {
+            // 2. Attempt Authentication against the user loaded above (same checks and
+            // messages as DaoAuthenticationProvider, without reloading the user twice)
+            UserDetails userDetails = userDetailsService.toUserDetails(user);
+            if (!userDetails.isEnabled()) {
+                throw new DisabledException("User is disabled");
+            }
+            if (!passwordHashingExecutor.matches(request.getPassword(), user.getPasswordHash())) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+
+            // 3. Success -> Reset counters and upgrade outdated hashes while the raw
+            // password is at hand
+            boolean rehashed = false;
+            if (passwordHashingExecutor.needsRehash(user.getPasswordHash())) {
+                try {
+                    user.setPasswordHash(passwordHashingExecutor.encode(request.getPassword()));
+                    rehashed = true;
+                } catch (ServiceOverloadedException e) {
+                    // Not worth failing a valid login; the upgrade happens on a later one
+                }
+            }
+            loginAttemptThrottler.recordSuccess(request.getUsername());
+            if (user.getFailedAttempts() > 0 || rehashed) {
                 user.setFailedAttempts(0);
                 userRepository.save(user);
             }
+            if (rehashed) {
+                authorityChangeService.userDetailsChanged(user);
+                auditService.audit("AUTH_PASSWORD_REHASH", "AUTH", AuditEvent.AuditOutcome.SUCCESS,
+                        user.getIdPublic().toString(), request.getUsername(), "User", null, null);
+            }
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-            String jwtToken = jwtService.generateToken(userDetails);
+            String jwtToken = jwtService.generateToken(userDetails, user.getAuthorityVersion());
 
             // Extract role names
             Set<String> roleNames = user.getRoles().stream()
@@ -157,7 +199,7 @@ public class AuthService {
                     user.getIdPublic().toString(), request.getUsername(), "User", null, null);
 
             com.krouser.backend.auth.entity.RefreshToken refreshToken = refreshTokenService
-                    .createRefreshToken(user.getId());
+                    .createRefreshToken(user);
 
             return new LoginResponse(
                     jwtToken,
@@ -169,24 +211,31 @@ public class AuthService {
                     roleNames);
 
         } catch (org.springframework.security.core.AuthenticationException e) {
-            // 4. Failure -> Increment counters
-            user.setFailedAttempts(user.getFailedAttempts() + 1);
+            // 4. Failure -> Count in memory; the row is only written when the lock kicks in
+            LoginAttemptThrottler.FailureOutcome outcome = loginAttemptThrottler
+                    .recordFailure(request.getUsername(), clientIp);
 
-            if (user.getFailedAttempts() >= 5) {
+            if (outcome.isUserThresholdCrossed()) {
+                user.setFailedAttempts(outcome.getUserFailures());
                 user.setStatus(com.krouser.backend.users.entity.UserStatus.BLOCKED);
-                user.setLockUntil(java.time.LocalDateTime.now().plusMinutes(15));
+                user.setLockUntil(java.time.LocalDateTime.now().plus(loginAttemptThrottler.getLockDuration()));
+                userRepository.save(user);
+                authorityChangeService.userDetailsChanged(user);
                 auditService.audit("ACCOUNT_LOCKED", "AUTH", AuditEvent.AuditOutcome.FAIL,
                         user.getIdPublic().toString(), request.getUsername(), "User", null,
                         new AuditDetailsBuilder().add("reason", "Too many failed attempts").build());
             }
-
-            userRepository.save(user);
+            if (outcome.isIpThresholdCrossed()) {
+                auditService.audit("AUTH_IP_THROTTLED", "AUTH", AuditEvent.AuditOutcome.FAIL,
+                        null, request.getUsername(), "User", null,
+                        new AuditDetailsBuilder().add("ip", clientIp).build());
+            }
 
             auditService.audit("AUTH_LOGIN_FAIL", "AUTH", AuditEvent.AuditOutcome.FAIL,
                     user.getIdPublic() != null ? user.getIdPublic().toString() : null,
                     request.getUsername(), "User", null,
                     new AuditDetailsBuilder().add("reason", e.getMessage())
-                            .add("attempts", String.valueOf(user.getFailedAttempts())).build());
+                            .add("attempts", outcome.getUserFailures()).build());
 
             throw e;
         }
@@ -204,7 +253,7 @@ public class AuthService {
 
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+        user.setPasswordHash(passwordHashingExecutor.encode(request.getPassword()));
         user.setRoles(Collections.singleton(userRole));
         user.setRoles(Collections.singleton(userRole));
         user.setRoles(Collections.singleton(userRole));
@@ -220,32 +269,9 @@ public class AuthService {
         // Generate ID Public manually
         user.setIdPublic(UUID.randomUUID());
 
-        User savedUser = null;
-        int attempts = 0;
-        boolean saved = false;
-
-        while (!saved && attempts < 3) {
-            // Use getIdPublic for tag generation
-            String tag = tagGenerator.generateTagWithAlternateSuffix(user.getAlias(), user.getIdPublic(), attempts);
-            user.setTag(tag);
-            try {
-                savedUser = userRepository.save(user);
-                saved = true;
-            } catch (DataIntegrityViolationException e) {
-                // Determine if it was the tag or username
-                // Note: existsByTag might be false if transaction not committed, but usually
-                // works for retry logic
-                if (userRepository.existsByTag(tag)) {
-                    attempts++;
-                } else {
-                    throw e; // Likely username collision if concurrent register or other constraint
-                }
-            }
-        }
-
-        if (!saved || savedUser == null) {
-            throw new BusinessException("Could not generate unique tag after retries");
-        }
+        // The allocator picks a free tag up front; the unique constraint is only a backstop
+        User savedUser = tagAllocator.assignTagAndSave(user, userRepository::save);
+        userSearchIndex.indexAfterCommit(savedUser);
 
         auditService.audit("USER_REGISTER", "AUTH", AuditEvent.AuditOutcome.SUCCESS,
                 savedUser.getIdPublic().toString(), savedUser.getUsername(),
@@ -294,18 +320,23 @@ public class AuthService {
                             .rotateRefreshToken(token);
 
                     User user = token.getUser();
-                    String jwtToken = jwtService
-                            .generateToken(userDetailsService.loadUserByUsername(user.getUsername()));
+                    String jwtToken = jwtService.generateToken(
+                            userDetailsService.loadUserByUsername(user.getUsername()),
+                            user.getAuthorityVersion());
 
                     return new com.krouser.backend.auth.dto.TokenRefreshResponse(jwtToken, newToken.getToken());
                 })
                 .orElseThrow(() -> new InvalidTokenException("Refresh token is not in database!"));
     }
 
-    public void logout(String username) {
+    public void logout(String username, VerifiedToken accessToken) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
         refreshTokenService.deleteByUserId(user.getId());
+        // The access token would otherwise stay usable until it expires
+        if (accessToken != null) {
+            tokenRevocationService.revoke(accessToken.getId(), username, accessToken.getExpiresAt());
+        }
     }
 
     @org.springframework.transaction.annotation.Transactional
@@ -379,8 +410,9 @@ public class AuthService {
         }
 
         User user = resetToken.getUser();
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
+        user.setPasswordHash(passwordHashingExecutor.encode(newPassword));
         userRepository.save(user);
+        authorityChangeService.userDetailsChanged(user);
 
         passwordResetTokenRepository.delete(resetToken);
 
@@ -1,22 +1,44 @@
 package com.krouser.backend.auth.service;
 
+import com.krouser.backend.auth.security.VerifiedToken;
+import com.krouser.backend.shared.cache.BoundedTtlCache;
+import com.krouser.backend.shared.metrics.MetricsSource;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
-public class JwtService {
+public class JwtService implements MetricsSource {
+
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_PRIVILEGES = "privs";
+    public static final String CLAIM_AUTHORITY_VERSION = "av";
+
+    private static final String ROLE_PREFIX = "ROLE_";
 
     @Value("${app.jwt.secret}")
     private String secretKey;
@@ -24,8 +46,76 @@ public class JwtService {
     @Value("${app.jwt.expiration-ms}")
     private long jwtExpiration;
 
+    // "db": authorities are reloaded from the database per request (default)
+    // "claims": authorities travel inside the token, guarded by the authority version
+    @Value("${app.jwt.authority-mode:db}")
+    private String authorityMode;
+
+    @Value("${app.jwt.verified-cache.enabled:true}")
+    private boolean verifiedCacheEnabled;
+
+    @Value("${app.jwt.verified-cache.max-bytes:16777216}")
+    private long verifiedCacheMaxBytes;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    // Both are immutable and thread-safe, so they are built once instead of per call
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    // Verified claims keyed by the SHA-256 of the compact token. Only tokens whose signature
+    // verified are ever stored, and each entry expires at the token's own exp.
+    private BoundedTtlCache<ByteBuffer, VerifiedToken> verifiedCache;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+        this.verifiedCache = new BoundedTtlCache<>(verifiedCacheMaxBytes,
+                token -> token.getExpiresAt() != null ? token.getExpiresAt().toEpochMilli() : 0L,
+                JwtService::estimateSize);
+    }
+
+    /**
+     * Verifies signature and expiry exactly once and returns everything callers
+     * need from the token. Throws {@link io.jsonwebtoken.JwtException} (including
+     * {@link io.jsonwebtoken.ExpiredJwtException}) when the token is not valid.
+     */
+    public VerifiedToken verify(String token) {
+        if (!verifiedCacheEnabled) {
+            return parseAndVerify(token);
+        }
+        return verifiedCache.get(digest(token), key -> parseAndVerify(token));
+    }
+
+    private VerifiedToken parseAndVerify(String token) {
+        Claims claims = extractAllClaims(token);
+
+        Map<String, Object> customClaims = new LinkedHashMap<>(claims);
+        customClaims.remove(Claims.ID);
+        customClaims.remove(Claims.SUBJECT);
+        customClaims.remove(Claims.ISSUED_AT);
+        customClaims.remove(Claims.EXPIRATION);
+
+        return new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                toInstant(claims.getIssuedAt()),
+                toInstant(claims.getExpiration()),
+                customClaims);
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getSubject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -37,39 +127,96 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    /**
+     * In claims mode the token also carries role and privilege names plus the user's
+     * authority version; in db mode this is the same as {@link #generateToken(UserDetails)}.
+     */
+    public String generateToken(UserDetails userDetails, long authorityVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        if (isClaimsMode()) {
+            List<String> roles = new ArrayList<>();
+            List<String> privileges = new ArrayList<>();
+            for (GrantedAuthority authority : userDetails.getAuthorities()) {
+                String name = authority.getAuthority();
+                if (name.startsWith(ROLE_PREFIX)) {
+                    roles.add(name.substring(ROLE_PREFIX.length()));
+                } else {
+                    privileges.add(name);
+                }
+            }
+            claims.put(CLAIM_ROLES, roles);
+            claims.put(CLAIM_PRIVILEGES, privileges);
+            claims.put(CLAIM_AUTHORITY_VERSION, authorityVersion);
+        }
+        return generateToken(claims, userDetails);
+    }
+
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         return Jwts.builder()
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(verify(token), userDetails);
+    }
+
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.getSubject() != null
+                && token.getSubject().equals(userDetails.getUsername())
+                && !token.isExpired(Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.verified-cache.cleanup-ms:60000}")
+    public void evictExpiredTokens() {
+        if (verifiedCacheEnabled) {
+            verifiedCache.cleanUp();
+        }
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    @Override
+    public String getMetricsName() {
+        return "verifiedTokenCache";
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = verifiedCache.stats();
+        metrics.put("enabled", verifiedCacheEnabled);
+        return metrics;
+    }
+
+    public boolean isClaimsMode() {
+        return "claims".equalsIgnoreCase(authorityMode);
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static ByteBuffer digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        sha256.reset();
+        return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Rough heap footprint of one entry: key, node and map overhead plus the claim strings
+    private static int estimateSize(VerifiedToken token) {
+        int size = 256 + (token.getSubject() != null ? 2 * token.getSubject().length() : 0);
+        for (Map.Entry<String, Object> claim : token.getClaims().entrySet()) {
+            size += 64 + 2 * (claim.getKey().length() + String.valueOf(claim.getValue()).length());
+        }
+        return size;
+    }
+
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
     }
 }
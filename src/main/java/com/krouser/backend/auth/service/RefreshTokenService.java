@@ -2,6 +2,7 @@ package com.krouser.backend.auth.service;
 
 import com.krouser.backend.auth.entity.RefreshToken;
 import com.krouser.backend.auth.repository.RefreshTokenRepository;
+import com.krouser.backend.users.entity.User;
 import com.krouser.backend.users.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -30,9 +31,13 @@ public class RefreshTokenService {
     }
 
     public RefreshToken createRefreshToken(Long userId) {
+        return createRefreshToken(userRepository.findById(userId).get());
+    }
+
+    public RefreshToken createRefreshToken(User user) {
         RefreshToken refreshToken = new RefreshToken();
 
-        refreshToken.setUser(userRepository.findById(userId).get());
+        refreshToken.setUser(user);
         refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenDurationMs));
         refreshToken.setToken(UUID.randomUUID().toString());
 
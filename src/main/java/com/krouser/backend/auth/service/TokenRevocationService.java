@@ -0,0 +1,208 @@
+package com.krouser.backend.auth.service;
+
+import com.krouser.backend.auth.entity.RevokedToken;
+import com.krouser.backend.auth.repository.RevokedTokenRepository;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import com.krouser.backend.shared.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Denylist of revoked access-token ids ({@code jti}).
+ * <p>
+ * Revocations are persisted in {@code revoked_tokens} and mirrored in memory. Lookups first
+ * probe a Bloom filter, so the common case (token not revoked) is a lock-free bit test
+ * without touching the map or the database. Every node polls the table for rows above its
+ * high-water mark, and entries disappear once the token would have expired anyway.
+ * <p>
+ * Ids are assigned at insert but become visible at commit, so a row can show up after a
+ * higher id was already polled. Ids skipped below the high-water mark are therefore kept as
+ * open gaps for {@code gap-timeout-ms}, and each poll re-reads from the oldest open gap;
+ * a gap closes when its row appears or, for a rolled-back insert, when it times out.
+ * The first successful poll only seeds the high-water mark: ids missing below the rows it
+ * reads are purged or rolled-back rows, and tracking them would re-read the whole table on
+ * every poll until they time out.
+ */
+@Service
+public class TokenRevocationService implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final int PAGE_SIZE = 500;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedEntries;
+    private final double falsePositiveRate;
+    private final long gapTimeoutMs;
+    private final int maxOpenGaps;
+
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private final AtomicLong highWaterMark = new AtomicLong(0);
+    // Ids below the high-water mark not seen yet -> when they were first missed; guarded by pollLock
+    private final TreeMap<Long, Long> openGaps = new TreeMap<>();
+    // Set once a poll has completed; guarded by pollLock
+    private boolean loaded;
+    private final Object pollLock = new Object();
+    private volatile BloomFilter bloomFilter;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder bloomPositives = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder lateRows = new LongAdder();
+    private final LongAdder expiredGaps = new LongAdder();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+            @Value("${app.jwt.revocation.expected-entries:100000}") long expectedEntries,
+            @Value("${app.jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${app.jwt.revocation.gap-timeout-ms:120000}") long gapTimeoutMs,
+            @Value("${app.jwt.revocation.max-open-gaps:10000}") int maxOpenGaps) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.maxOpenGaps = maxOpenGaps;
+        this.bloomFilter = BloomFilter.create(expectedEntries, falsePositiveRate);
+    }
+
+    @PostConstruct
+    void loadExisting() {
+        try {
+            pollRevocations();
+        } catch (Exception e) {
+            logger.error("Could not load revoked tokens at startup: {}", e.getMessage());
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        checks.increment();
+        if (!bloomFilter.mightContain(jti)) {
+            return false;
+        }
+        bloomPositives.increment();
+        Long expiresAt = revoked.get(jti);
+        if (expiresAt != null && expiresAt > System.currentTimeMillis()) {
+            rejected.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Persists the revocation and applies it locally right away; other nodes see it on
+     * their next poll.
+     */
+    public void revoke(String jti, String username, Instant expiresAt) {
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        if (!revokedTokenRepository.existsByJti(jti)) {
+            revokedTokenRepository.save(new RevokedToken(jti, username, expiresAt));
+        }
+        add(jti, expiresAt.toEpochMilli());
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.poll-ms:5000}")
+    public void pollRevocations() {
+        synchronized (pollLock) {
+            long now = System.currentTimeMillis();
+            int before = openGaps.size();
+            openGaps.values().removeIf(missedAt -> now - missedAt > gapTimeoutMs);
+            expiredGaps.add(before - openGaps.size());
+
+            long cursor = openGaps.isEmpty() ? highWaterMark.get()
+                    : Math.min(openGaps.firstKey() - 1, highWaterMark.get());
+            List<RevokedToken> batch;
+            do {
+                batch = revokedTokenRepository.findTop500ByIdGreaterThanOrderByIdAsc(cursor);
+                for (RevokedToken token : batch) {
+                    accept(token, now, loaded);
+                    cursor = token.getId();
+                }
+            } while (batch.size() == PAGE_SIZE);
+            loaded = true;
+        }
+    }
+
+    private void accept(RevokedToken token, long now, boolean trackGaps) {
+        long id = token.getId();
+        long mark = highWaterMark.get();
+        if (id > mark) {
+            // Everything skipped between the old mark and this row may still be committing
+            for (long missing = mark + 1; trackGaps && missing < id && openGaps.size() < maxOpenGaps; missing++) {
+                openGaps.put(missing, now);
+            }
+            highWaterMark.set(id);
+        } else if (openGaps.remove(id) != null) {
+            lateRows.increment();
+        }
+        long expiresAt = token.getExpiresAt().toEpochMilli();
+        if (expiresAt > now && !revoked.containsKey(token.getJti())) {
+            add(token.getJti(), expiresAt);
+        }
+    }
+
+    /**
+     * Drops entries whose token has expired and rebuilds the Bloom filter so its bits
+     * do not fill up over time.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.purge-ms:300000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            BloomFilter rebuilt = BloomFilter.create(Math.max(expectedEntries, 2L * revoked.size()),
+                    falsePositiveRate);
+            revoked.keySet().forEach(rebuilt::put);
+            this.bloomFilter = rebuilt;
+        }
+        try {
+            revokedTokenRepository.deleteExpired(Instant.ofEpochMilli(now));
+        } catch (Exception e) {
+            logger.warn("Could not purge expired revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "tokenRevocation";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("entries", revoked.size());
+        metrics.put("highWaterMark", highWaterMark.get());
+        synchronized (pollLock) {
+            metrics.put("openGaps", openGaps.size());
+        }
+        metrics.put("lateRows", lateRows.sum());
+        metrics.put("expiredGaps", expiredGaps.sum());
+        metrics.put("checks", checks.sum());
+        metrics.put("bloomPositives", bloomPositives.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("bloomBits", bloomFilter.bitSize());
+        return metrics;
+    }
+
+    // Writers serialize with the rebuild so no entry is lost between snapshot and swap
+    private synchronized void add(String jti, long expiresAt) {
+        revoked.put(jti, expiresAt);
+        bloomFilter.put(jti);
+    }
+}
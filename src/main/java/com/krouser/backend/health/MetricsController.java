@@ -0,0 +1,34 @@
+package com.krouser.backend.health;
+
+import com.krouser.backend.shared.dto.ApiResponse;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final ObjectProvider<MetricsSource> sources;
+
+    public MetricsController(ObjectProvider<MetricsSource> sources) {
+        this.sources = sources;
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMetrics(HttpServletRequest request) {
+        Map<String, Object> metrics = new TreeMap<>();
+        sources.orderedStream().forEach(source -> metrics.put(source.getMetricsName(), source.getMetrics()));
+        return ResponseEntity.ok(new ApiResponse<>(200, "Metrics retrieved successfully", metrics,
+                request.getRequestURI()));
+    }
+}
@@ -40,9 +40,10 @@ public class RbacBootstrapService implements CommandLineRunner {
         Privilege pCreate = createPrivilegeIfNotFound("USERS_CREATE");
         Privilege pUpdate = createPrivilegeIfNotFound("USERS_UPDATE");
         Privilege pReadSelf = createPrivilegeIfNotFound("USERS_READ_SELF");
+        Privilege pAuditRead = createPrivilegeIfNotFound("AUDIT_READ");
 
         // 2. Create Roles
-        List<Privilege> adminPrivileges = Arrays.asList(pRead, pCreate, pUpdate, pReadSelf);
+        List<Privilege> adminPrivileges = Arrays.asList(pRead, pCreate, pUpdate, pReadSelf, pAuditRead);
         Role adminRole = createRoleIfNotFound("ADMIN", adminPrivileges);
 
         List<Privilege> userPrivileges = Arrays.asList(pReadSelf);
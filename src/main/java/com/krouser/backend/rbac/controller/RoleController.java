@@ -1,10 +1,12 @@
 package com.krouser.backend.rbac.controller;
 
 import com.krouser.backend.rbac.dto.AssignPrivilegesRequest;
+import com.krouser.backend.rbac.dto.BatchAssignPrivilegesRequest;
 import com.krouser.backend.rbac.dto.CreateRoleRequest;
 import com.krouser.backend.rbac.dto.RoleDto;
 import com.krouser.backend.rbac.service.RoleService;
 import com.krouser.backend.shared.dto.ApiResponse;
+import com.krouser.backend.shared.dto.BatchAssignmentResult;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -40,6 +42,15 @@ public class RoleController {
                         "/api/rbac/roles"));
     }
 
+    @PutMapping("/privileges")
+    @PreAuthorize("hasRole('ADMIN') or hasAuthority('RBAC_ROLE_UPDATE')")
+    public ResponseEntity<ApiResponse<BatchAssignmentResult>> assignPrivilegesToRoles(
+            @Valid @RequestBody BatchAssignPrivilegesRequest request) {
+        BatchAssignmentResult result = roleService.assignPrivilegesToRoles(request);
+        return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Privileges assigned successfully", result,
+                "/api/rbac/roles/privileges"));
+    }
+
     @GetMapping("/{roleName}")
     @PreAuthorize("hasRole('ADMIN') or hasAuthority('RBAC_ROLE_READ')")
     public ResponseEntity<ApiResponse<RoleDto>> getRole(@PathVariable String roleName) {
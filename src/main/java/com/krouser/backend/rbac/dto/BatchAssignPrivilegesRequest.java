@@ -0,0 +1,19 @@
+package com.krouser.backend.rbac.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import java.util.Map;
+import java.util.Set;
+
+public class BatchAssignPrivilegesRequest {
+    // Role name -> complete set of privileges the role must end up with
+    @NotEmpty(message = "Assignments are required")
+    private Map<String, Set<String>> assignments;
+
+    public Map<String, Set<String>> getAssignments() {
+        return assignments;
+    }
+
+    public void setAssignments(Map<String, Set<String>> assignments) {
+        this.assignments = assignments;
+    }
+}
@@ -0,0 +1,15 @@
+package com.krouser.backend.rbac.dto;
+
+/**
+ * One row per privilege of a role (a single row with a null privilege name when the role
+ * has none), so roles can be listed without loading the entity graph.
+ */
+public interface RolePrivilegeView {
+    String getName();
+
+    String getDescription();
+
+    boolean isActive();
+
+    String getPrivilegeName();
+}
@@ -1,11 +1,16 @@
 package com.krouser.backend.rbac.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Set;
 
 @Entity
 @Table(name = "roles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "rbac.role")
 public class Role {
 
     @Id
@@ -22,10 +27,11 @@ public class Role {
     private boolean active = true;
 
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "rbac.role.privileges")
     @JoinTable(name = "roles_privileges", joinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "privilege_id", referencedColumnName = "id"), indexes = {
             @Index(name = "idx_roles_privileges_role", columnList = "role_id"),
             @Index(name = "idx_roles_privileges_privilege", columnList = "privilege_id") })
-    private Collection<Privilege> privileges = new HashSet<>();
+    private Set<Privilege> privileges = new HashSet<>();
 
     public Role() {
     }
@@ -71,6 +77,6 @@ public class Role {
     }
 
     public void setPrivileges(Collection<Privilege> privileges) {
-        this.privileges = privileges;
+        this.privileges = new HashSet<>(privileges);
     }
 }
@@ -1,14 +1,24 @@
 package com.krouser.backend.rbac.repository;
 
 import com.krouser.backend.rbac.entity.Privilege;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PrivilegeRepository extends JpaRepository<Privilege, Long> {
+    // Result ids go to the query cache, the entities themselves come from the entity cache
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "rbac.queries") })
     Optional<Privilege> findByName(String name);
 
+    List<Privilege> findByNameIn(Collection<String> names);
+
     @Query("SELECT COUNT(r) > 0 FROM Role r JOIN r.privileges p WHERE p.id = :privilegeId")
     boolean isPrivilegeAssignedToRoles(@Param("privilegeId") Long privilegeId);
 }
@@ -1,14 +1,42 @@
 package com.krouser.backend.rbac.repository;
 
+import com.krouser.backend.rbac.dto.RolePrivilegeView;
 import com.krouser.backend.rbac.entity.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface RoleRepository extends JpaRepository<Role, Long> {
+    // Result ids go to the query cache, the entities themselves come from the entity cache
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "rbac.queries") })
     Optional<Role> findByName(String name);
 
+    List<Role> findByNameIn(Collection<String> names);
+
+    // Write paths: the cache is per node, so a role and its privileges cached here may predate
+    // a change made on another node. Diffing against that copy would re-insert or skip join rows.
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"))
+    Optional<Role> findUncachedByName(String name);
+
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, value = "BYPASS"))
+    List<Role> findUncachedByNameIn(Collection<String> names);
+
+    @Query("SELECT r.name AS name, r.description AS description, r.active AS active, p.name AS privilegeName "
+            + "FROM Role r LEFT JOIN r.privileges p ORDER BY r.name, p.name")
+    List<RolePrivilegeView> findAllWithPrivilegeNames();
+
+    @Query("SELECT r.name AS name, r.description AS description, r.active AS active, p.name AS privilegeName "
+            + "FROM Role r LEFT JOIN r.privileges p WHERE r.name = :name ORDER BY p.name")
+    List<RolePrivilegeView> findWithPrivilegeNamesByName(@Param("name") String name);
+
     @Query("SELECT COUNT(u) > 0 FROM User u JOIN u.roles r WHERE r.id = :roleId")
     boolean isRoleAssignedToUsers(@Param("roleId") Long roleId);
 }
@@ -3,6 +3,7 @@ package com.krouser.backend.rbac.service;
 import com.krouser.backend.audit.entity.AuditEvent;
 import com.krouser.backend.audit.service.AuditService;
 import com.krouser.backend.audit.util.AuditDetailsBuilder;
+import com.krouser.backend.auth.security.AuthorityChangeService;
 import com.krouser.backend.rbac.dto.CreatePrivilegeRequest;
 import com.krouser.backend.rbac.dto.PrivilegeDto;
 import com.krouser.backend.rbac.entity.Privilege;
@@ -22,10 +23,13 @@ public class PrivilegeService {
 
     private final PrivilegeRepository privilegeRepository;
     private final AuditService auditService;
+    private final AuthorityChangeService authorityChangeService;
 
-    public PrivilegeService(PrivilegeRepository privilegeRepository, AuditService auditService) {
+    public PrivilegeService(PrivilegeRepository privilegeRepository, AuditService auditService,
+            AuthorityChangeService authorityChangeService) {
         this.privilegeRepository = privilegeRepository;
         this.auditService = auditService;
+        this.authorityChangeService = authorityChangeService;
     }
 
     public List<PrivilegeDto> getAllPrivileges() {
@@ -52,6 +56,7 @@ public class PrivilegeService {
         privilege.setActive(true);
 
         Privilege saved = privilegeRepository.save(privilege);
+        authorityChangeService.rbacModelChanged();
 
         auditService.audit("PRIV_CREATED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 null, getCurrentUsername(),
@@ -75,6 +80,7 @@ public class PrivilegeService {
         // consistency.
 
         Privilege saved = privilegeRepository.save(privilege);
+        authorityChangeService.privilegeChanged(saved.getId());
 
         auditService.audit("PRIV_UPDATED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 null, getCurrentUsername(),
@@ -100,6 +106,7 @@ public class PrivilegeService {
         // But requested is deactivate/block
         privilege.setActive(false);
         privilegeRepository.save(privilege);
+        authorityChangeService.privilegeChanged(privilege.getId());
 
         auditService.audit("PRIV_DISABLED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 null, getCurrentUsername(),
@@ -3,22 +3,33 @@ package com.krouser.backend.rbac.service;
 import com.krouser.backend.audit.entity.AuditEvent;
 import com.krouser.backend.audit.service.AuditService;
 import com.krouser.backend.audit.util.AuditDetailsBuilder;
+import com.krouser.backend.auth.security.AuthorityChangeService;
 import com.krouser.backend.rbac.dto.CreateRoleRequest;
 import com.krouser.backend.rbac.dto.RoleDto;
 import com.krouser.backend.rbac.dto.AssignPrivilegesRequest;
+import com.krouser.backend.rbac.dto.BatchAssignPrivilegesRequest;
+import com.krouser.backend.rbac.dto.RolePrivilegeView;
 import com.krouser.backend.rbac.entity.Privilege;
 import com.krouser.backend.rbac.entity.Role;
 import com.krouser.backend.rbac.repository.PrivilegeRepository;
 import com.krouser.backend.rbac.repository.RoleRepository;
+import com.krouser.backend.shared.dto.BatchAssignmentResult;
 import com.krouser.backend.shared.exception.DuplicateResourceException;
 import com.krouser.backend.shared.exception.ResourceInUseException;
 import com.krouser.backend.shared.exception.ResourceNotFoundException;
+import com.krouser.backend.shared.util.BatchLookup;
+import com.krouser.backend.shared.util.CollectionSync;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -28,24 +39,26 @@ public class RoleService {
     private final RoleRepository roleRepository;
     private final PrivilegeRepository privilegeRepository;
     private final AuditService auditService;
+    private final AuthorityChangeService authorityChangeService;
 
     public RoleService(RoleRepository roleRepository, PrivilegeRepository privilegeRepository,
-            AuditService auditService) {
+            AuditService auditService, AuthorityChangeService authorityChangeService) {
         this.roleRepository = roleRepository;
         this.privilegeRepository = privilegeRepository;
         this.auditService = auditService;
+        this.authorityChangeService = authorityChangeService;
     }
 
     public List<RoleDto> getAllRoles() {
-        return roleRepository.findAll().stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        return toDtos(roleRepository.findAllWithPrivilegeNames());
     }
 
     public RoleDto getRole(String name) {
-        Role role = roleRepository.findByName(name)
-                .orElseThrow(() -> new ResourceNotFoundException("Role", name));
-        return mapToDto(role);
+        List<RoleDto> roles = toDtos(roleRepository.findWithPrivilegeNamesByName(name));
+        if (roles.isEmpty()) {
+            throw new ResourceNotFoundException("Role", name);
+        }
+        return roles.get(0);
     }
 
     @Transactional
@@ -59,16 +72,12 @@ public class RoleService {
         role.setDescription(request.getDescription());
         role.setActive(true);
 
-        Set<Privilege> privileges = new HashSet<>();
-        if (request.getPrivileges() != null) {
-            for (String pName : request.getPrivileges()) {
-                privileges.add(privilegeRepository.findByName(pName)
-                        .orElseThrow(() -> new ResourceNotFoundException("Privilege", pName)));
-            }
-        }
+        Set<String> privilegeNames = request.getPrivileges() != null ? request.getPrivileges() : Set.of();
+        Collection<Privilege> privileges = resolvePrivileges(privilegeNames).values();
         role.setPrivileges(privileges);
 
         Role saved = roleRepository.save(role);
+        authorityChangeService.rbacModelChanged();
 
         auditService.audit("ROLE_CREATED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 null, getCurrentUsername(),
@@ -83,7 +92,7 @@ public class RoleService {
 
     @Transactional
     public RoleDto updateRole(String name, CreateRoleRequest request) {
-        Role role = roleRepository.findByName(name)
+        Role role = roleRepository.findUncachedByName(name)
                 .orElseThrow(() -> new ResourceNotFoundException("Role", name));
 
         role.setDescription(request.getDescription());
@@ -91,6 +100,7 @@ public class RoleService {
         // or other fields if expanded.
 
         Role saved = roleRepository.save(role);
+        authorityChangeService.roleChanged(saved.getId());
 
         auditService.audit("ROLE_UPDATED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 null, getCurrentUsername(),
@@ -102,7 +112,7 @@ public class RoleService {
 
     @Transactional
     public void deleteRole(String name) {
-        Role role = roleRepository.findByName(name)
+        Role role = roleRepository.findUncachedByName(name)
                 .orElseThrow(() -> new ResourceNotFoundException("Role", name));
 
         // Check if role is in use
@@ -112,6 +122,7 @@ public class RoleService {
 
         role.setActive(false);
         roleRepository.save(role);
+        authorityChangeService.roleChanged(role.getId());
 
         auditService.audit("ROLE_DISABLED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 null, getCurrentUsername(),
@@ -121,24 +132,77 @@ public class RoleService {
 
     @Transactional
     public void assignPrivileges(String roleName, AssignPrivilegesRequest request) {
-        Role role = roleRepository.findByName(roleName)
+        Role role = roleRepository.findUncachedByName(roleName)
                 .orElseThrow(() -> new ResourceNotFoundException("Role", roleName));
 
-        Set<Privilege> newPrivileges = new HashSet<>();
-        if (request.getPrivileges() != null) {
-            for (String pName : request.getPrivileges()) {
-                newPrivileges.add(privilegeRepository.findByName(pName)
-                        .orElseThrow(() -> new ResourceNotFoundException("Privilege", pName)));
-            }
+        Set<String> privilegeNames = request.getPrivileges() != null ? request.getPrivileges() : Set.of();
+        Map<String, Privilege> privileges = resolvePrivileges(privilegeNames);
+        if (CollectionSync.replaceContents(role.getPrivileges(), privileges.values())) {
+            authorityChangeService.roleChanged(role.getId());
         }
 
-        role.setPrivileges(newPrivileges);
-        roleRepository.save(role);
-
         auditService.audit("ROLE_PRIV_REPLACED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 null, getCurrentUsername(),
                 "Role", role.getName(),
-                new AuditDetailsBuilder().add("privileges", request.getPrivileges().toString()).build());
+                new AuditDetailsBuilder().add("privileges", privilegeNames.toString()).build());
+    }
+
+    /**
+     * Replaces the privileges of several roles in one transaction. Roles and privileges are
+     * each resolved with one query; unknown names fail the whole request with a single error
+     * listing all of them. Only join rows that actually differ are written.
+     */
+    @Transactional
+    public BatchAssignmentResult assignPrivilegesToRoles(BatchAssignPrivilegesRequest request) {
+        Map<String, Set<String>> assignments = request.getAssignments();
+        Map<String, Role> roles = BatchLookup.byName("Role", assignments.keySet(),
+                roleRepository::findUncachedByNameIn, Role::getName);
+        Set<String> privilegeNames = new HashSet<>();
+        assignments.values().stream().filter(Objects::nonNull).forEach(privilegeNames::addAll);
+        Map<String, Privilege> privileges = resolvePrivileges(privilegeNames);
+
+        List<Long> changedRoleIds = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        List<String> unchanged = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> assignment : assignments.entrySet()) {
+            Role role = roles.get(assignment.getKey());
+            List<Privilege> desired = assignment.getValue() == null ? List.of()
+                    : assignment.getValue().stream().map(privileges::get).toList();
+            if (CollectionSync.replaceContents(role.getPrivileges(), desired)) {
+                changedRoleIds.add(role.getId());
+                changed.add(role.getName());
+            } else {
+                unchanged.add(role.getName());
+            }
+        }
+        authorityChangeService.rolesChanged(changedRoleIds);
+
+        auditService.audit("ROLE_PRIV_BATCH_REPLACED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
+                null, getCurrentUsername(),
+                "Role", null,
+                new AuditDetailsBuilder()
+                        .add("roles", assignments.size())
+                        .add("changed", changed.toString())
+                        .build());
+
+        return new BatchAssignmentResult(changed, unchanged);
+    }
+
+    private Map<String, Privilege> resolvePrivileges(Collection<String> names) {
+        return BatchLookup.byName("Privilege", names, privilegeRepository::findByNameIn, Privilege::getName);
+    }
+
+    // Rows arrive ordered by role name, one per privilege; consecutive rows are merged
+    private List<RoleDto> toDtos(List<RolePrivilegeView> rows) {
+        Map<String, RoleDto> roles = new LinkedHashMap<>();
+        for (RolePrivilegeView row : rows) {
+            RoleDto dto = roles.computeIfAbsent(row.getName(),
+                    name -> new RoleDto(name, row.getDescription(), row.isActive(), new HashSet<>()));
+            if (row.getPrivilegeName() != null) {
+                dto.getPrivileges().add(row.getPrivilegeName());
+            }
+        }
+        return new ArrayList<>(roles.values());
     }
 
     private RoleDto mapToDto(Role role) {
@@ -0,0 +1,294 @@
+package com.krouser.backend.shared.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small concurrent cache with a weight bound, per-entry expiry and single-flight loading.
+ * <p>
+ * Concurrent {@link #get(Object, Function)} calls for the same missing key share one
+ * loader invocation. When the total weight exceeds the bound, the oldest entries are
+ * evicted first. Loader failures and {@code null} results are never cached.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Node<K, V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedNodes = new AtomicInteger();
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    private final long maxWeight;
+    private final ToLongFunction<? super V> expiryMillis;
+    private final ToIntFunction<? super V> weigher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Every entry counts as 1 and lives {@code ttlMillis} after being loaded.
+     */
+    public BoundedTtlCache(long maxSize, long ttlMillis) {
+        this(maxSize, value -> System.currentTimeMillis() + ttlMillis, value -> 1);
+    }
+
+    /**
+     * @param maxWeight    upper bound for the sum of entry weights
+     * @param expiryMillis absolute expiry (epoch millis) computed from the loaded value
+     * @param weigher      weight of a single value, e.g. an estimated size in bytes
+     */
+    public BoundedTtlCache(long maxWeight, ToLongFunction<? super V> expiryMillis,
+            ToIntFunction<? super V> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        this.maxWeight = maxWeight;
+        this.expiryMillis = expiryMillis;
+        this.weigher = weigher;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        for (;;) {
+            long now = System.currentTimeMillis();
+            Node<K, V> node = map.get(key);
+            if (node != null) {
+                if (!node.isExpired(now)) {
+                    if (node.future.isDone()) {
+                        hits.increment();
+                    } else {
+                        coalescedLoads.increment();
+                    }
+                    return await(node);
+                }
+                if (map.remove(key, node)) {
+                    expirations.increment();
+                    release(node);
+                }
+                continue;
+            }
+
+            Node<K, V> created = new Node<>(key);
+            if (map.putIfAbsent(key, created) != null) {
+                continue;
+            }
+            misses.increment();
+            return load(created, loader);
+        }
+    }
+
+    public V getIfPresent(K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null || !node.future.isDone() || node.future.isCompletedExceptionally()) {
+            misses.increment();
+            return null;
+        }
+        if (node.isExpired(System.currentTimeMillis())) {
+            if (map.remove(key, node)) {
+                expirations.increment();
+                release(node);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.future.getNow(null);
+    }
+
+    public void invalidate(K key) {
+        Node<K, V> node = map.remove(key);
+        if (node != null) {
+            invalidations.increment();
+            release(node);
+        }
+    }
+
+    public void invalidateAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        for (K key : map.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Drops expired entries eagerly. Expired entries are otherwise removed lazily on access
+     * or when the weight bound pushes them out.
+     */
+    public void cleanUp() {
+        long now = System.currentTimeMillis();
+        for (Node<K, V> node : map.values()) {
+            if (node.isExpired(now) && map.remove(node.key, node)) {
+                expirations.increment();
+                release(node);
+            }
+        }
+        purgeReleasedNodes();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long weight() {
+        return totalWeight.get();
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum() + coalescedLoads.sum();
+        long requestCount = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", map.size());
+        stats.put("weight", totalWeight.get());
+        stats.put("maxWeight", maxWeight);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("coalescedLoads", coalescedLoads.sum());
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("hitRate", requestCount == 0 ? 0.0 : (double) hitCount / requestCount);
+        return stats;
+    }
+
+    private V load(Node<K, V> node, Function<? super K, ? extends V> loader) {
+        V value;
+        try {
+            value = loader.apply(node.key);
+        } catch (RuntimeException | Error e) {
+            map.remove(node.key, node);
+            loadFailures.increment();
+            node.future.completeExceptionally(e);
+            throw e;
+        }
+
+        if (value == null) {
+            map.remove(node.key, node);
+            node.future.complete(null);
+            return null;
+        }
+
+        long expiresAt = expiryMillis.applyAsLong(value);
+        int weight = Math.max(1, weigher.applyAsInt(value));
+        boolean admitted = node.admit(expiresAt, weight);
+        node.future.complete(value);
+
+        if (admitted) {
+            totalWeight.addAndGet(weight);
+            insertionOrder.add(node);
+            queuedNodes.incrementAndGet();
+            if (expiresAt <= System.currentTimeMillis() && map.remove(node.key, node)) {
+                expirations.increment();
+                release(node);
+            }
+            evictIfNeeded();
+        }
+        return value;
+    }
+
+    private void evictIfNeeded() {
+        while (totalWeight.get() > maxWeight) {
+            Node<K, V> victim = insertionOrder.poll();
+            if (victim == null) {
+                break;
+            }
+            queuedNodes.decrementAndGet();
+            if (map.remove(victim.key, victim)) {
+                evictions.increment();
+                release(victim);
+            }
+        }
+        // Invalidated nodes stay queued until polled; keep the queue from growing unbounded
+        if (queuedNodes.get() > 2 * map.size() + 64) {
+            purgeReleasedNodes();
+        }
+    }
+
+    private void purgeReleasedNodes() {
+        insertionOrder.removeIf(node -> {
+            if (node.isReleased()) {
+                queuedNodes.decrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void release(Node<K, V> node) {
+        int weight = node.release();
+        if (weight > 0) {
+            totalWeight.addAndGet(-weight);
+        }
+    }
+
+    private V await(Node<K, V> node) {
+        try {
+            return node.future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        volatile long expiresAt = Long.MAX_VALUE;
+        private int weight;
+        private boolean released;
+
+        Node(K key) {
+            this.key = key;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        synchronized boolean admit(long expiresAt, int weight) {
+            this.expiresAt = expiresAt;
+            if (released) {
+                return false;
+            }
+            this.weight = weight;
+            return true;
+        }
+
+        synchronized int release() {
+            if (released) {
+                return 0;
+            }
+            released = true;
+            return weight;
+        }
+
+        synchronized boolean isReleased() {
+            return released;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.krouser.backend.shared.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch assignment: which targets had their association rewritten and which
+ * already matched the request and were left untouched.
+ */
+public class BatchAssignmentResult {
+    private List<String> changed;
+    private List<String> unchanged;
+
+    public BatchAssignmentResult() {
+    }
+
+    public BatchAssignmentResult(List<String> changed, List<String> unchanged) {
+        this.changed = changed;
+        this.unchanged = unchanged;
+    }
+
+    public List<String> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<String> changed) {
+        this.changed = changed;
+    }
+
+    public List<String> getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(List<String> unchanged) {
+        this.unchanged = unchanged;
+    }
+}
@@ -2,6 +2,7 @@ package com.krouser.backend.shared.exception;
 
 import com.krouser.backend.shared.dto.ApiError;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -40,6 +41,38 @@ public class GlobalExceptionHandler {
                 return new ResponseEntity<>(apiError, ex.getStatus());
         }
 
+        @ExceptionHandler(ServiceOverloadedException.class)
+        public ResponseEntity<ApiError> handleServiceOverloaded(ServiceOverloadedException ex,
+                        HttpServletRequest request) {
+                ApiError apiError = new ApiError(
+                                ex.getStatus().value(),
+                                ex.getStatus().getReasonPhrase(),
+                                ex.getMessage(),
+                                null,
+                                request.getRequestURI());
+
+                // No audit here: this fires under load and would only add to it
+                return ResponseEntity.status(ex.getStatus())
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(apiError);
+        }
+
+        @ExceptionHandler(TooManyAttemptsException.class)
+        public ResponseEntity<ApiError> handleTooManyAttempts(TooManyAttemptsException ex,
+                        HttpServletRequest request) {
+                ApiError apiError = new ApiError(
+                                ex.getStatus().value(),
+                                ex.getStatus().getReasonPhrase(),
+                                ex.getMessage(),
+                                null,
+                                request.getRequestURI());
+
+                // Not audited per attempt: crossing the threshold is audited once by the caller
+                return ResponseEntity.status(ex.getStatus())
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                                .body(apiError);
+        }
+
         @ExceptionHandler(MethodArgumentNotValidException.class)
         public ResponseEntity<ApiError> handleValidationExceptions(MethodArgumentNotValidException ex,
                         HttpServletRequest request) {
@@ -0,0 +1,17 @@
+package com.krouser.backend.shared.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class TooManyAttemptsException extends BusinessException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyAttemptsException(String message, long retryAfterSeconds) {
+        super(message, HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,66 @@
+package com.krouser.backend.shared.metrics;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Second-level and query cache statistics, overall and per region. Needs
+ * {@code hibernate.generate_statistics=true}; otherwise every counter stays at zero.
+ */
+@Component
+public class HibernateCacheMetrics implements MetricsSource {
+
+    private final Statistics statistics;
+
+    public HibernateCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "hibernateCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        metrics.put("secondLevelHits", statistics.getSecondLevelCacheHitCount());
+        metrics.put("secondLevelMisses", statistics.getSecondLevelCacheMissCount());
+        metrics.put("secondLevelPuts", statistics.getSecondLevelCachePutCount());
+        metrics.put("secondLevelHitRatio",
+                hitRatio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()));
+        metrics.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        metrics.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        metrics.put("queryCachePuts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> regionMetrics = new LinkedHashMap<>();
+            regionMetrics.put("hits", region.getHitCount());
+            regionMetrics.put("misses", region.getMissCount());
+            regionMetrics.put("puts", region.getPutCount());
+            regionMetrics.put("hitRatio", hitRatio(region.getHitCount(), region.getMissCount()));
+            regionMetrics.put("entries", region.getElementCountInMemory());
+            regions.put(regionName, regionMetrics);
+        }
+        metrics.put("regions", regions);
+        return metrics;
+    }
+
+    private static double hitRatio(long hits, long misses) {
+        long total = hits + misses;
+        return total > 0 ? (double) hits / total : 0.0;
+    }
+}
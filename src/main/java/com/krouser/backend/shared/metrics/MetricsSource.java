@@ -0,0 +1,14 @@
+package com.krouser.backend.shared.metrics;
+
+import java.util.Map;
+
+/**
+ * Implemented by beans that keep in-process counters. Every source is listed under its
+ * name by {@code GET /api/metrics}.
+ */
+public interface MetricsSource {
+
+    String getMetricsName();
+
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,42 @@
+package com.krouser.backend.shared.util;
+
+import com.krouser.backend.shared.exception.ResourceNotFoundException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+public final class BatchLookup {
+
+    private BatchLookup() {
+    }
+
+    /**
+     * Resolves every name with a single {@code IN} query and fails once with all the missing
+     * names, instead of one lookup (and one error) per name. Keys are case-insensitive to
+     * match the column collation.
+     */
+    public static <T> Map<String, T> byName(String type, Collection<String> names,
+            Function<Collection<String>, List<T>> finder, Function<T, String> nameOf) {
+        Map<String, T> found = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (names.isEmpty()) {
+            return found;
+        }
+        for (T entity : finder.apply(names)) {
+            found.put(nameOf.apply(entity), entity);
+        }
+        TreeSet<String> missing = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : names) {
+            if (!found.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException(type, String.join(", ", missing));
+        }
+        return found;
+    }
+}
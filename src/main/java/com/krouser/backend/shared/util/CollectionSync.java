@@ -0,0 +1,29 @@
+package com.krouser.backend.shared.util;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public final class CollectionSync {
+
+    private CollectionSync() {
+    }
+
+    /**
+     * Makes {@code current} hold exactly the elements of {@code desired}, removing and adding
+     * only what differs. On a Hibernate-managed set this becomes one DELETE per removed and
+     * one INSERT per added join row, instead of rewriting the whole association as replacing
+     * the collection does. Returns whether anything changed.
+     */
+    public static <T> boolean replaceContents(Collection<T> current, Collection<? extends T> desired) {
+        Set<T> wanted = new HashSet<>(desired);
+        boolean changed = current.retainAll(wanted);
+        for (T element : wanted) {
+            if (!current.contains(element)) {
+                current.add(element);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
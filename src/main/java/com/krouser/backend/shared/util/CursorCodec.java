@@ -0,0 +1,109 @@
+package com.krouser.backend.shared.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque URL-safe cursors so clients do not depend on the
+ * underlying key format.
+ * <p>
+ * Cursors are plain base64, not signed: a client can read or build one, which only moves
+ * where its own page starts, since filters and authorization are applied to every page.
+ * Decoding accepts only what the encoders produce (version prefix, unsigned decimal parts,
+ * positive ids) and rejects anything else as {@code Cursor inválido}.
+ */
+public final class CursorCodec {
+
+    private static final String VERSION = "v1:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(long lastId) {
+        byte[] raw = (VERSION + lastId).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Returns the id after which the next page starts, or 0 for a missing cursor.
+     *
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode(long)}
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        String raw = unwrap(cursor);
+        long id = parsePart(raw, VERSION.length(), raw.length());
+        if (id <= 0) {
+            throw invalid();
+        }
+        return id;
+    }
+
+    /**
+     * Encodes a two-part keyset position, e.g. a timestamp and the id that breaks ties.
+     */
+    public static String encode(long first, long second) {
+        byte[] raw = (VERSION + first + ":" + second).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Returns the two parts of a cursor produced by {@link #encode(long, long)}, or null for
+     * a missing cursor. The first part may be 0, the second (an id) must be positive.
+     *
+     * @throws IllegalArgumentException if the cursor is not a two-part cursor
+     */
+    public static long[] decodePair(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String raw = unwrap(cursor);
+        int separator = raw.indexOf(':', VERSION.length());
+        if (separator < 0) {
+            throw invalid();
+        }
+        long first = parsePart(raw, VERSION.length(), separator);
+        long second = parsePart(raw, separator + 1, raw.length());
+        if (second <= 0) {
+            throw invalid();
+        }
+        return new long[] { first, second };
+    }
+
+    private static String unwrap(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (!raw.startsWith(VERSION)) {
+            throw invalid();
+        }
+        return raw;
+    }
+
+    // Digits only: Long.parseLong alone would also take signs, and overflow is rejected by it
+    private static long parsePart(String raw, int start, int end) {
+        if (start >= end) {
+            throw invalid();
+        }
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c < '0' || c > '9') {
+                throw invalid();
+            }
+        }
+        try {
+            return Long.parseLong(raw, start, end, 10);
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Cursor inválido");
+    }
+}
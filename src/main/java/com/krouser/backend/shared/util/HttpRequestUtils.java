@@ -0,0 +1,32 @@
+package com.krouser.backend.shared.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public final class HttpRequestUtils {
+
+    private HttpRequestUtils() {
+    }
+
+    /**
+     * Returns the request bound to the current thread, or null outside a request.
+     */
+    public static HttpServletRequest currentRequest() {
+        try {
+            ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+            return (attrs != null) ? attrs.getRequest() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Address of the client as resolved by the container. X-Forwarded-For is never read
+     * here: behind a proxy, Tomcat's RemoteIpValve rewrites the remote address from it only
+     * when the request comes from one of {@code server.tomcat.remoteip.internal-proxies}.
+     */
+    public static String getClientIp(HttpServletRequest request) {
+        return request != null ? request.getRemoteAddr() : null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.krouser.backend.shared.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free per-bucket event counter over the last {@code bucketCount} time buckets.
+ * <p>
+ * Same layout as {@link SlidingWindowCounter}, but each bucket keeps a 32-bit slot (the
+ * bucket's start divided by {@code bucketMillis}, unsigned) and a 32-bit count, so buckets
+ * of a second or more can be read back one by one, e.g. to chart them or to flush them.
+ * Counts saturate at 2^32 - 1.
+ */
+public final class RollingCounter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final long bucketMillis;
+    private final AtomicLongArray buckets;
+
+    public RollingCounter(long bucketMillis, int bucketCount) {
+        if (bucketMillis < 1000 || bucketCount <= 0) {
+            throw new IllegalArgumentException("bucketMillis must be at least 1000 and bucketCount positive");
+        }
+        this.bucketMillis = bucketMillis;
+        this.buckets = new AtomicLongArray(bucketCount);
+    }
+
+    public void increment(long nowMillis) {
+        long slot = slot(nowMillis);
+        int index = Math.floorMod(slot, buckets.length());
+        while (true) {
+            long current = buckets.get(index);
+            long next = (current >>> 32) == slot
+                    ? (current & COUNT_MASK) == COUNT_MASK ? current : current + 1
+                    : (slot << 32) | 1;
+            if (buckets.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    public long slot(long nowMillis) {
+        return (nowMillis / bucketMillis) & COUNT_MASK;
+    }
+
+    /**
+     * Count of the given slot, 0 if nothing was recorded in it or it is older than the ring.
+     */
+    public long count(long slot) {
+        long value = buckets.get(Math.floorMod(slot, buckets.length()));
+        return (value >>> 32) == slot ? value & COUNT_MASK : 0;
+    }
+
+    /**
+     * Counts of the last {@code bucketCount} buckets, oldest first; the last one is the
+     * bucket in progress.
+     */
+    public long[] counts(long nowMillis) {
+        long slot = slot(nowMillis);
+        int length = buckets.length();
+        long[] counts = new long[length];
+        for (int i = 0; i < length; i++) {
+            counts[i] = count(slot - length + 1 + i);
+        }
+        return counts;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public int getBucketCount() {
+        return buckets.length();
+    }
+}
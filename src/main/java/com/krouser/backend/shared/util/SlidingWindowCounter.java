@@ -0,0 +1,70 @@
+package com.krouser.backend.shared.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free event counter over a sliding time window.
+ * <p>
+ * The window is split into a ring of buckets. Each bucket is a single long holding the
+ * bucket's time slot in the high bits and its count in the low 20 bits, so recording an
+ * event is one CAS and a stale bucket is reset by the first writer that reaches it. The sum
+ * is approximate at bucket granularity, which is all rate limiting needs.
+ */
+public final class SlidingWindowCounter {
+
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final long bucketMillis;
+    private final AtomicLongArray buckets;
+
+    public SlidingWindowCounter(long windowMillis, int bucketCount) {
+        if (windowMillis <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("windowMillis and bucketCount must be positive");
+        }
+        this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+        this.buckets = new AtomicLongArray(bucketCount);
+    }
+
+    /**
+     * Records one event and returns the count in the window including it.
+     */
+    public int increment(long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        int index = (int) (slot % buckets.length());
+        while (true) {
+            long current = buckets.get(index);
+            long next = (current >>> COUNT_BITS) == slot
+                    ? (current & COUNT_MASK) == COUNT_MASK ? current : current + 1
+                    : (slot << COUNT_BITS) | 1;
+            if (buckets.compareAndSet(index, current, next)) {
+                break;
+            }
+        }
+        return sum(nowMillis);
+    }
+
+    public int sum(long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        long oldest = slot - buckets.length() + 1;
+        int total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            long value = buckets.get(i);
+            long bucketSlot = value >>> COUNT_BITS;
+            if (bucketSlot >= oldest && bucketSlot <= slot) {
+                total += (int) (value & COUNT_MASK);
+            }
+        }
+        return total;
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0L);
+        }
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+}
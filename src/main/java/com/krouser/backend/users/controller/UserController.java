@@ -1,32 +1,57 @@
 package com.krouser.backend.users.controller;
 
+import com.krouser.backend.audit.entity.AuditEvent;
 import com.krouser.backend.shared.dto.ApiResponse;
+import com.krouser.backend.shared.dto.BatchAssignmentResult;
+import com.krouser.backend.shared.dto.CursorPage;
 import com.krouser.backend.users.dto.AssignRolesRequest;
+import com.krouser.backend.users.dto.BatchAssignRolesRequest;
 import com.krouser.backend.users.dto.CreateUserRequest;
 import com.krouser.backend.users.dto.EnableUserRequest;
 import com.krouser.backend.users.dto.UpdateUserRequest;
+import com.krouser.backend.users.dto.UserFilter;
+import com.krouser.backend.users.dto.UserImportReport;
 import com.krouser.backend.users.dto.UserResponse;
+import com.krouser.backend.users.dto.UserSearchResult;
+import com.krouser.backend.users.service.UserExportService;
+import com.krouser.backend.users.service.UserImportService;
 import com.krouser.backend.users.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
     private final UserService userService;
+    private final UserExportService userExportService;
+    private final UserImportService userImportService;
 
-    public UserController(UserService userService) {
+    @Value("${app.users.export.timeout-ms:1800000}")
+    private long exportTimeoutMs;
+
+    public UserController(UserService userService, UserExportService userExportService,
+            UserImportService userImportService) {
         this.userService = userService;
+        this.userExportService = userExportService;
+        this.userImportService = userImportService;
     }
 
     @GetMapping("/me")
@@ -50,12 +75,58 @@ public class UserController {
 
     @GetMapping
     @PreAuthorize("hasAuthority('USERS_READ_ALL')")
-    public ResponseEntity<ApiResponse<List<UserResponse>>> getAllUsers(HttpServletRequest request) {
-        List<UserResponse> users = userService.getAllUsers();
+    public ResponseEntity<ApiResponse<CursorPage<UserResponse>>> getAllUsers(UserFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request) {
+        CursorPage<UserResponse> users = userService.listUsers(filter, cursor, size);
         return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Users retrieved successfully", users,
                 request.getRequestURI()));
     }
 
+    @GetMapping("/search")
+    @PreAuthorize("hasAuthority('USERS_READ_ALL')")
+    public ResponseEntity<ApiResponse<List<UserSearchResult>>> searchUsers(@RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
+        List<UserSearchResult> results = userService.searchUsers(q, limit);
+        return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Users retrieved successfully", results,
+                request.getRequestURI()));
+    }
+
+    @GetMapping("/search/tags")
+    @PreAuthorize("hasAuthority('USERS_READ_ALL')")
+    public ResponseEntity<ApiResponse<List<UserSearchResult>>> completeTags(@RequestParam String prefix,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
+        List<UserSearchResult> results = userService.completeTags(prefix, limit);
+        return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Users retrieved successfully", results,
+                request.getRequestURI()));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('USERS_READ_ALL')")
+    public WebAsyncTask<Void> exportUsers(UserFilter filter,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication,
+            HttpServletResponse response) {
+        UserExportService.Format exportFormat = "csv".equalsIgnoreCase(format)
+                ? UserExportService.Format.CSV
+                : UserExportService.Format.NDJSON;
+        String filename = "users-" + LocalDate.now() + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        // Ip, path and request id are read here: the task below runs after the request thread is released
+        AuditEvent auditEvent = userExportService.prepareAudit(authentication.getName());
+
+        response.setContentType(gzip ? "application/gzip" : exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        // The long timeout applies to this download only, other async requests keep the default
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            userExportService.export(filter, exportFormat, gzip, response.getOutputStream(), auditEvent);
+            return null;
+        });
+    }
+
     @PostMapping
     @PreAuthorize("hasAuthority('USERS_CREATE')")
     public ResponseEntity<ApiResponse<UserResponse>> createUser(@Valid @RequestBody CreateUserRequest createRequest,
@@ -68,6 +139,40 @@ public class UserController {
                         request.getRequestURI()));
     }
 
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('USERS_CREATE')")
+    public ResponseEntity<ApiResponse<UserImportReport>> importUsers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "1") long resumeFromRow,
+            Authentication authentication,
+            HttpServletRequest request) throws IOException {
+        UserExportService.Format importFormat = "csv".equalsIgnoreCase(format)
+                ? UserExportService.Format.CSV
+                : UserExportService.Format.NDJSON;
+        InputStream body = request.getInputStream();
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            body = new GZIPInputStream(body, 64 * 1024);
+        }
+
+        UserImportReport report = userImportService.importUsers(body, importFormat, resumeFromRow,
+                authentication.getName());
+        String message = report.isCompleted()
+                ? "Importación completada"
+                : "Importación detenida en la fila " + report.getNextRow();
+        return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), message, report,
+                request.getRequestURI()));
+    }
+
+    @PutMapping("/roles")
+    @PreAuthorize("hasRole('ADMIN') or hasAuthority('USERS_UPDATE')")
+    public ResponseEntity<ApiResponse<BatchAssignmentResult>> assignRolesToUsers(
+            @Valid @RequestBody BatchAssignRolesRequest assignRequest,
+            HttpServletRequest request) {
+        BatchAssignmentResult result = userService.assignRolesToUsers(assignRequest.getAssignments());
+        return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Roles assigned successfully", result,
+                request.getRequestURI()));
+    }
+
     @PutMapping("/{idPublic}")
     @PreAuthorize("hasRole('ADMIN') or hasAuthority('USERS_UPDATE')")
     public ResponseEntity<ApiResponse<UserResponse>> updateUser(@PathVariable UUID idPublic,
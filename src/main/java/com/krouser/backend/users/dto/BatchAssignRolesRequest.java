@@ -0,0 +1,20 @@
+package com.krouser.backend.users.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class BatchAssignRolesRequest {
+    // User public id -> complete list of roles the user must end up with
+    @NotEmpty(message = "Assignments are required")
+    private Map<UUID, List<String>> assignments;
+
+    public Map<UUID, List<String>> getAssignments() {
+        return assignments;
+    }
+
+    public void setAssignments(Map<UUID, List<String>> assignments) {
+        this.assignments = assignments;
+    }
+}
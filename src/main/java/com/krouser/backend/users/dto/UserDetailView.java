@@ -0,0 +1,9 @@
+package com.krouser.backend.users.dto;
+
+/**
+ * One row per role of a user (a single row with a null role name when the user has none).
+ * Lets a profile read fetch the user and its role names in one statement.
+ */
+public interface UserDetailView extends UserSummaryView {
+    String getRoleName();
+}
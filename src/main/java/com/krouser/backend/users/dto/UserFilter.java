@@ -0,0 +1,64 @@
+package com.krouser.backend.users.dto;
+
+import com.krouser.backend.users.entity.UserStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters for the user listing, bound from query parameters. Null fields do not
+ * filter. {@code createdFrom} is inclusive, {@code createdTo} exclusive.
+ */
+public class UserFilter {
+    private UserStatus status;
+    private String role;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    public UserStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(UserStatus status) {
+        this.status = status;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public LocalDateTime getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public void setCreatedFrom(LocalDateTime createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+
+    public LocalDateTime getCreatedTo() {
+        return createdTo;
+    }
+
+    public void setCreatedTo(LocalDateTime createdTo) {
+        this.createdTo = createdTo;
+    }
+
+    /**
+     * Role name as stored, accepting the {@code ROLE_} prefix clients see in tokens.
+     */
+    public String getNormalizedRole() {
+        if (role == null || role.isBlank()) {
+            return null;
+        }
+        String trimmed = role.trim();
+        return trimmed.startsWith("ROLE_") ? trimmed.substring("ROLE_".length()) : trimmed;
+    }
+}
@@ -0,0 +1,152 @@
+package com.krouser.backend.users.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. When {@code completed} is false the import stopped early and
+ * can be resumed by sending the same file again with {@code resumeFromRow = nextRow}; every
+ * row before {@code nextRow} has already been settled.
+ */
+public class UserImportReport {
+
+    private long firstRow;
+    private long rowsRead;
+    private long created;
+    private long existing;
+    private long invalid;
+    private long failed;
+    private int batches;
+    private boolean completed;
+    private Long nextRow;
+    private String stopReason;
+    private long durationMs;
+    private List<UserImportRowResult> results = new ArrayList<>();
+
+    public UserImportReport() {
+    }
+
+    public UserImportReport(long firstRow) {
+        this.firstRow = firstRow;
+    }
+
+    public void addResult(UserImportRowResult result) {
+        results.add(result);
+        switch (result.getStatus()) {
+            case CREATED -> created++;
+            case EXISTS -> existing++;
+            case INVALID -> invalid++;
+            case FAILED -> failed++;
+        }
+    }
+
+    public void rowRead() {
+        rowsRead++;
+    }
+
+    public void batchWritten() {
+        batches++;
+    }
+
+    public void stop(long nextRow, String reason) {
+        this.completed = false;
+        this.nextRow = nextRow;
+        this.stopReason = reason;
+    }
+
+    public long getFirstRow() {
+        return firstRow;
+    }
+
+    public void setFirstRow(long firstRow) {
+        this.firstRow = firstRow;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getExisting() {
+        return existing;
+    }
+
+    public void setExisting(long existing) {
+        this.existing = existing;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(long invalid) {
+        this.invalid = invalid;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public Long getNextRow() {
+        return nextRow;
+    }
+
+    public void setNextRow(Long nextRow) {
+        this.nextRow = nextRow;
+    }
+
+    public String getStopReason() {
+        return stopReason;
+    }
+
+    public void setStopReason(String stopReason) {
+        this.stopReason = stopReason;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public List<UserImportRowResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<UserImportRowResult> results) {
+        this.results = results;
+    }
+}
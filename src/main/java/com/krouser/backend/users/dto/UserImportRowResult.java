@@ -0,0 +1,82 @@
+package com.krouser.backend.users.dto;
+
+import java.util.UUID;
+
+public class UserImportRowResult {
+
+    public enum Status {
+        CREATED, EXISTS, INVALID, FAILED
+    }
+
+    private long row;
+    private String username;
+    private Status status;
+    private String message;
+    private UUID idPublic;
+    private String tag;
+
+    public UserImportRowResult() {
+    }
+
+    public UserImportRowResult(long row, String username, Status status, String message) {
+        this.row = row;
+        this.username = username;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static UserImportRowResult created(long row, String username, UUID idPublic, String tag) {
+        UserImportRowResult result = new UserImportRowResult(row, username, Status.CREATED, null);
+        result.setIdPublic(idPublic);
+        result.setTag(tag);
+        return result;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public UUID getIdPublic() {
+        return idPublic;
+    }
+
+    public void setIdPublic(UUID idPublic) {
+        this.idPublic = idPublic;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+}
@@ -32,6 +32,18 @@ public class UserResponse {
         this.roles = user.getRoles().stream().map(Role::getName).collect(Collectors.toList());
     }
 
+    public UserResponse(UserSummaryView user, List<String> roles) {
+        this.idPublic = user.getIdPublic();
+        this.username = user.getUsername();
+        this.alias = user.getAlias();
+        this.tag = user.getTag();
+        this.nombre = user.getNombre();
+        this.segundoNombre = user.getSegundoNombre();
+        this.apellidoPaterno = user.getApellidoPaterno();
+        this.apellidoMaterno = user.getApellidoMaterno();
+        this.roles = roles;
+    }
+
     public UUID getIdPublic() {
         return idPublic;
     }
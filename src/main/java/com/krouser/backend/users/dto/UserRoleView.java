@@ -0,0 +1,7 @@
+package com.krouser.backend.users.dto;
+
+public interface UserRoleView {
+    Long getUserId();
+
+    String getRoleName();
+}
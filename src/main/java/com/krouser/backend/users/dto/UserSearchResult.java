@@ -0,0 +1,83 @@
+package com.krouser.backend.users.dto;
+
+import java.util.UUID;
+
+public class UserSearchResult {
+    private UUID idPublic;
+    private String username;
+    private String alias;
+    private String tag;
+    private String nombre;
+    private String apellidoPaterno;
+    private String apellidoMaterno;
+
+    public UserSearchResult() {
+    }
+
+    public UserSearchResult(UUID idPublic, String username, String alias, String tag, String nombre,
+            String apellidoPaterno, String apellidoMaterno) {
+        this.idPublic = idPublic;
+        this.username = username;
+        this.alias = alias;
+        this.tag = tag;
+        this.nombre = nombre;
+        this.apellidoPaterno = apellidoPaterno;
+        this.apellidoMaterno = apellidoMaterno;
+    }
+
+    public UUID getIdPublic() {
+        return idPublic;
+    }
+
+    public void setIdPublic(UUID idPublic) {
+        this.idPublic = idPublic;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getApellidoPaterno() {
+        return apellidoPaterno;
+    }
+
+    public void setApellidoPaterno(String apellidoPaterno) {
+        this.apellidoPaterno = apellidoPaterno;
+    }
+
+    public String getApellidoMaterno() {
+        return apellidoMaterno;
+    }
+
+    public void setApellidoMaterno(String apellidoMaterno) {
+        this.apellidoMaterno = apellidoMaterno;
+    }
+}
@@ -0,0 +1,27 @@
+package com.krouser.backend.users.dto;
+
+import java.util.UUID;
+
+/**
+ * Column projection of a user row. Selecting it instead of the entity keeps the EAGER roles
+ * mapping out of list queries; roles are fetched for a whole page at once.
+ */
+public interface UserSummaryView {
+    Long getId();
+
+    UUID getIdPublic();
+
+    String getUsername();
+
+    String getAlias();
+
+    String getTag();
+
+    String getNombre();
+
+    String getSegundoNombre();
+
+    String getApellidoPaterno();
+
+    String getApellidoMaterno();
+}
@@ -4,10 +4,16 @@ import com.krouser.backend.rbac.entity.Role;
 import jakarta.persistence.*;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        // InnoDB appends the primary key, so these also serve keyset scans ordered by id
+        @Index(name = "idx_users_status", columnList = "status"),
+        @Index(name = "idx_users_created_at", columnList = "created_at"),
+        @Index(name = "idx_users_updated_at", columnList = "updated_at")
+})
 public class User {
 
     @Id
@@ -33,9 +39,19 @@ public class User {
     @Column(name = "lock_until")
     private java.time.LocalDateTime lockUntil;
 
+    // Bumped whenever roles, privileges or status change so self-contained tokens can be refused
+    @Column(name = "authority_version", nullable = false)
+    private long authorityVersion = 0;
+
     @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
     private java.time.LocalDateTime createdAt;
 
+    // Maintained by MySQL on every insert or changed row, JDBC writes included; read by
+    // UserSearchIndex to pick up writes of other nodes
+    @Column(name = "updated_at", insertable = false, updatable = false,
+            columnDefinition = "DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)")
+    private java.time.LocalDateTime updatedAt;
+
     @PrePersist
     protected void onCreate() {
         if (this.createdAt == null) {
@@ -64,7 +80,7 @@ public class User {
     @JoinTable(name = "users_roles", joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"), indexes = {
             @Index(name = "idx_users_roles_user", columnList = "user_id"),
             @Index(name = "idx_users_roles_role", columnList = "role_id") })
-    private Collection<Role> roles = new HashSet<>();
+    private Set<Role> roles = new HashSet<>();
 
     public User() {
     }
@@ -72,7 +88,7 @@ public class User {
     public User(String username, String passwordHash, Collection<Role> roles) {
         this.username = username;
         this.passwordHash = passwordHash;
-        this.roles = roles;
+        this.roles = new HashSet<>(roles);
     }
 
     public Long getId() {
@@ -135,10 +151,22 @@ public class User {
         this.lockUntil = lockUntil;
     }
 
+    public long getAuthorityVersion() {
+        return authorityVersion;
+    }
+
+    public void setAuthorityVersion(long authorityVersion) {
+        this.authorityVersion = authorityVersion;
+    }
+
     public java.time.LocalDateTime getCreatedAt() {
         return createdAt;
     }
 
+    public java.time.LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
     public void setCreatedAt(java.time.LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
@@ -148,7 +176,7 @@ public class User {
     }
 
     public void setRoles(Collection<Role> roles) {
-        this.roles = roles;
+        this.roles = new HashSet<>(roles);
     }
 
     public String getAlias() {
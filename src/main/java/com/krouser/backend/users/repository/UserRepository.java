@@ -1,7 +1,18 @@
 package com.krouser.backend.users.repository;
 
+import com.krouser.backend.users.dto.UserDetailView;
+import com.krouser.backend.users.dto.UserRoleView;
+import com.krouser.backend.users.dto.UserSummaryView;
 import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.entity.UserStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -9,6 +20,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByIdPublic(UUID idPublic);
 
+    // Roles are fetched in the same statement so a batch of users does not load them one by one
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.idPublic IN :idPublics")
+    List<User> findWithRolesByIdPublicIn(@Param("idPublics") Collection<UUID> idPublics);
+
     boolean existsByIdPublic(UUID idPublic);
 
     Optional<User> findByUsername(String username);
@@ -16,4 +31,56 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
 
     boolean existsByTag(String tag);
+
+    @Query("SELECT u.authorityVersion FROM User u WHERE u.username = :username")
+    Optional<Long> findAuthorityVersionByUsername(@Param("username") String username);
+
+    @Query("SELECT u.username FROM User u JOIN u.roles r WHERE r.id = :roleId")
+    List<String> findUsernamesByRoleId(@Param("roleId") Long roleId);
+
+    @Query("SELECT DISTINCT u.username FROM User u JOIN u.roles r WHERE r.id IN :roleIds")
+    List<String> findUsernamesByRoleIdIn(@Param("roleIds") Collection<Long> roleIds);
+
+    @Query("SELECT DISTINCT u.username FROM User u JOIN u.roles r JOIN r.privileges p WHERE p.id = :privilegeId")
+    List<String> findUsernamesByPrivilegeId(@Param("privilegeId") Long privilegeId);
+
+    // Keyset page ordered by the primary key; callers pass limit + 1 to detect a next page
+    @Query("SELECT u.id AS id, u.idPublic AS idPublic, u.username AS username, u.alias AS alias, u.tag AS tag, "
+            + "u.nombre AS nombre, u.segundoNombre AS segundoNombre, u.apellidoPaterno AS apellidoPaterno, "
+            + "u.apellidoMaterno AS apellidoMaterno FROM User u "
+            + "WHERE u.id > :afterId "
+            + "AND (:status IS NULL OR u.status = :status) "
+            + "AND (:createdFrom IS NULL OR u.createdAt >= :createdFrom) "
+            + "AND (:createdTo IS NULL OR u.createdAt < :createdTo) "
+            + "AND (:role IS NULL OR EXISTS (SELECT 1 FROM u.roles r WHERE r.name = :role)) "
+            + "ORDER BY u.id ASC")
+    List<UserSummaryView> findPageAfter(@Param("afterId") long afterId,
+            @Param("status") UserStatus status,
+            @Param("role") String role,
+            @Param("createdFrom") LocalDateTime createdFrom,
+            @Param("createdTo") LocalDateTime createdTo,
+            Limit limit);
+
+    // Read path for a single profile: user columns and role names in one LEFT JOIN
+    @Query("SELECT u.id AS id, u.idPublic AS idPublic, u.username AS username, u.alias AS alias, u.tag AS tag, "
+            + "u.nombre AS nombre, u.segundoNombre AS segundoNombre, u.apellidoPaterno AS apellidoPaterno, "
+            + "u.apellidoMaterno AS apellidoMaterno, r.name AS roleName FROM User u LEFT JOIN u.roles r "
+            + "WHERE u.idPublic = :idPublic ORDER BY r.name")
+    List<UserDetailView> findDetailByIdPublic(@Param("idPublic") UUID idPublic);
+
+    @Query("SELECT u.id AS id, u.idPublic AS idPublic, u.username AS username, u.alias AS alias, u.tag AS tag, "
+            + "u.nombre AS nombre, u.segundoNombre AS segundoNombre, u.apellidoPaterno AS apellidoPaterno, "
+            + "u.apellidoMaterno AS apellidoMaterno, r.name AS roleName FROM User u LEFT JOIN u.roles r "
+            + "WHERE u.username = :username ORDER BY r.name")
+    List<UserDetailView> findDetailByUsername(@Param("username") String username);
+
+    @Query("SELECT u.id AS userId, r.name AS roleName FROM User u JOIN u.roles r WHERE u.id IN :userIds")
+    List<UserRoleView> findRoleNamesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Modifying
+    @Query("UPDATE User u SET u.authorityVersion = u.authorityVersion + 1 WHERE u.username IN :usernames")
+    int incrementAuthorityVersion(@Param("usernames") Collection<String> usernames);
 }
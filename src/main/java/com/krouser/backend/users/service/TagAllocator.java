@@ -0,0 +1,207 @@
+package com.krouser.backend.users.service;
+
+import com.krouser.backend.shared.exception.BusinessException;
+import com.krouser.backend.shared.metrics.MetricsSource;
+import com.krouser.backend.shared.util.BloomFilter;
+import com.krouser.backend.shared.util.TagGenerator;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Picks a free tag before the insert instead of discovering collisions through it.
+ * <p>
+ * Taken tags are kept in a Bloom filter seeded from the table at startup and updated on
+ * every insert. Candidates come from {@link TagGenerator} and are skipped while the filter
+ * says they might be taken, so the first insert almost always succeeds. The unique constraint
+ * on {@code users.tag} is the backstop for tags the filter has not seen (written by another
+ * node or racing inserts): JPA inserts run in their own transaction and move on to the next
+ * candidate.
+ */
+@Component
+public class TagAllocator implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagAllocator.class);
+
+    // Attempts 0 and 1 are slices of the public id; from here on suffixes are random
+    private static final int FIRST_RANDOM_ATTEMPT = 2;
+
+    private final TagGenerator tagGenerator;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate insertTransaction;
+    private final BloomFilter takenTags;
+    private final long expectedTags;
+    private final int maxCandidates;
+    private final int maxInserts;
+
+    private final AtomicLong knownTags = new AtomicLong();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder probablyTaken = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder insertCollisions = new LongAdder();
+    private final LongAdder takenOnCheck = new LongAdder();
+
+    public TagAllocator(TagGenerator tagGenerator, UserRepository userRepository, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.users.tag.expected-tags:1000000}") long expectedTags,
+            @Value("${app.users.tag.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${app.users.tag.max-candidates:8}") int maxCandidates,
+            @Value("${app.users.tag.max-inserts:3}") int maxInserts) {
+        this.tagGenerator = tagGenerator;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // A failed persist marks its transaction rollback-only, and JPA has no savepoints
+        this.insertTransaction = new TransactionTemplate(transactionManager);
+        this.insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.expectedTags = expectedTags;
+        this.takenTags = BloomFilter.create(expectedTags, falsePositiveRate);
+        this.maxCandidates = maxCandidates;
+        this.maxInserts = maxInserts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT tag FROM users",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            return statement;
+        }, rs -> {
+            markTaken(rs.getString(1));
+        });
+        logger.info("Tag allocator seeded with {} tags in {} ms", knownTags.get(),
+                System.currentTimeMillis() - start);
+        if (knownTags.get() > expectedTags) {
+            logger.warn("Tag count {} exceeds app.users.tag.expected-tags={}; more candidates will be skipped",
+                    knownTags.get(), expectedTags);
+        }
+    }
+
+    /**
+     * Assigns a free tag and saves the user. A tag the filter says is free is inserted right
+     * away; only a fallback candidate the filter thinks is taken is checked first. The insert
+     * commits in its own transaction, so when it hits the constraint on the tag the caller's
+     * transaction survives and the next candidate is tried. Other violations are rethrown.
+     * The returned user is detached: callers must not change it expecting a later flush.
+     */
+    public User assignTagAndSave(User user, UnaryOperator<User> save) {
+        for (int insert = 0; insert < maxInserts; insert++) {
+            String tag = pickTag(user, insert == 0 ? 0 : FIRST_RANDOM_ATTEMPT);
+            if (takenTags.mightContain(normalize(tag)) && userRepository.existsByTag(tag)) {
+                takenOnCheck.increment();
+                continue;
+            }
+            user.setTag(tag);
+            try {
+                User saved = insertTransaction.execute(status -> save.apply(user));
+                markTaken(tag);
+                allocations.increment();
+                return saved;
+            } catch (DataIntegrityViolationException e) {
+                if (!userRepository.existsByTag(tag)) {
+                    throw e;
+                }
+                // Taken by another node or missed by the seed: remember it and move on
+                recordCollision(tag);
+            }
+        }
+        throw new BusinessException("Could not generate unique tag after retries");
+    }
+
+    /**
+     * Picks a probably-free tag for a row written outside JPA (bulk import) and reserves it
+     * right away, so later rows of the same batch do not pick it again. A reservation whose
+     * insert never happens only costs one bit in the filter.
+     */
+    public String reserveTag(User user, boolean retry) {
+        String tag = pickTag(user, retry ? FIRST_RANDOM_ATTEMPT : 0);
+        markTaken(tag);
+        allocations.increment();
+        return tag;
+    }
+
+    /**
+     * Records that an insert hit the unique constraint on a tag the filter did not know about.
+     */
+    public void recordCollision(String tag) {
+        insertCollisions.increment();
+        markTaken(tag);
+    }
+
+    private String pickTag(User user, int firstAttempt) {
+        for (int attempt = firstAttempt;; attempt++) {
+            String next = candidate(user, attempt);
+            if (!takenTags.mightContain(normalize(next))) {
+                return next;
+            }
+            if (attempt - firstAttempt + 1 >= maxCandidates) {
+                // Every candidate looked taken (full filter or crowded alias): let the
+                // constraint decide
+                fallbacks.increment();
+                return next;
+            }
+            probablyTaken.increment();
+        }
+    }
+
+    // First the UUID-derived suffix, then the alternate UUID slice, then random suffixes
+    private String candidate(User user, int attempt) {
+        return attempt == 0
+                ? tagGenerator.generateTag(user.getAlias(), user.getIdPublic())
+                : tagGenerator.generateTagWithAlternateSuffix(user.getAlias(), user.getIdPublic(), attempt);
+    }
+
+    public void markTaken(String tag) {
+        // Counts distinct tags only; re-marking a known tag (or a false positive) changes no bit
+        if (tag != null && takenTags.put(normalize(tag))) {
+            knownTags.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "tagAllocator";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long allocated = allocations.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("knownTags", knownTags.get());
+        metrics.put("expectedTags", expectedTags);
+        metrics.put("allocations", allocated);
+        metrics.put("probablyTakenSkipped", probablyTaken.sum());
+        metrics.put("fallbacks", fallbacks.sum());
+        metrics.put("takenOnCheck", takenOnCheck.sum());
+        metrics.put("insertCollisions", insertCollisions.sum());
+        metrics.put("collisionRate", allocated > 0 ? (double) insertCollisions.sum() / allocated : 0.0);
+        metrics.put("fallbackRate", allocated > 0 ? (double) fallbacks.sum() / allocated : 0.0);
+        return metrics;
+    }
+
+    // users.tag uses a case-insensitive collation, so "Ana#1" and "ana#1" collide
+    private static String normalize(String tag) {
+        return tag.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,344 @@
+package com.krouser.backend.users.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.audit.service.AuditService;
+import com.krouser.backend.audit.util.AuditDetailsBuilder;
+import com.krouser.backend.users.dto.UserFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the user directory as NDJSON or CSV straight from a forward-only JDBC result set.
+ * <p>
+ * Rows are written as they arrive, so memory stays constant whatever the number of users.
+ * The query runs as a single auto-commit statement (no JPA session, no surrounding
+ * transaction); the connection is held only while rows are being sent.
+ */
+@Service
+public class UserExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String[] COLUMNS = { "idPublic", "username", "alias", "tag", "nombre", "segundoNombre",
+            "apellidoPaterno", "apellidoMaterno", "status", "createdAt", "roles" };
+
+    private static final String BASE_QUERY = "SELECT u.id_public, u.username, u.alias, u.tag, u.nombre, "
+            + "u.segundo_nombre, u.apellido_paterno, u.apellido_materno, u.status, u.created_at, "
+            + "(SELECT GROUP_CONCAT(r.name ORDER BY r.name SEPARATOR ',') FROM users_roles ur "
+            + "JOIN roles r ON r.id = ur.role_id WHERE ur.user_id = u.id) AS roles "
+            + "FROM users u WHERE 1 = 1";
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuditService auditService;
+
+    // 0 = MySQL row-by-row streaming; a positive value needs useCursorFetch=true on the URL
+    @Value("${app.users.export.fetch-size:0}")
+    private int fetchSize;
+
+    public UserExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, AuditService auditService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.auditService = auditService;
+    }
+
+    /**
+     * Starts the audit event of an export. Call it on the request thread, since the export
+     * itself usually runs on an async one where the request context is no longer bound.
+     */
+    public AuditEvent prepareAudit(String requestedBy) {
+        return auditService.prepare("USERS_EXPORT", "USER", AuditEvent.AuditOutcome.SUCCESS,
+                null, requestedBy, "User", null);
+    }
+
+    /**
+     * Writes every matching user to {@code out} and returns the number of rows written.
+     * The stream is finished (and gzip trailer written) but not closed. {@code auditEvent}
+     * comes from {@link #prepareAudit(String)} and is recorded once the last row is sent.
+     */
+    public long export(UserFilter filter, Format format, boolean gzip, OutputStream out, AuditEvent auditEvent)
+            throws IOException {
+        GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+        OutputStream target = gzipStream != null ? gzipStream : out;
+
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(target) : new NdjsonRowWriter(target);
+        long rows;
+        try {
+            rows = streamRows(filter, writer);
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+        out.flush();
+
+        auditEvent.setDetails(new AuditDetailsBuilder()
+                .add("format", format.name())
+                .add("gzip", gzip)
+                .add("rows", rows)
+                .build());
+        auditService.audit(auditEvent);
+        return rows;
+    }
+
+    private long streamRows(UserFilter filter, RowWriter writer) {
+        StringBuilder sql = new StringBuilder(BASE_QUERY);
+        List<Object> params = new ArrayList<>();
+        if (filter.getStatus() != null) {
+            sql.append(" AND u.status = ?");
+            params.add(filter.getStatus().name());
+        }
+        if (filter.getCreatedFrom() != null) {
+            sql.append(" AND u.created_at >= ?");
+            params.add(Timestamp.valueOf(filter.getCreatedFrom()));
+        }
+        if (filter.getCreatedTo() != null) {
+            sql.append(" AND u.created_at < ?");
+            params.add(Timestamp.valueOf(filter.getCreatedTo()));
+        }
+        if (filter.getNormalizedRole() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM users_roles fr JOIN roles frr ON frr.id = fr.role_id"
+                    + " WHERE fr.user_id = u.id AND frr.name = ?)");
+            params.add(filter.getNormalizedRole());
+        }
+        sql.append(" ORDER BY u.id");
+
+        long[] count = { 0 };
+        RowCallbackHandler handler = rs -> {
+            writer.write(rs);
+            if (++count[0] % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        };
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            return statement;
+        }, handler);
+        return count[0];
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException;
+
+        void flush();
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private boolean empty = true;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            empty = false;
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("idPublic", toUuid(rs.getBytes(1)));
+                generator.writeStringField("username", rs.getString(2));
+                generator.writeStringField("alias", rs.getString(3));
+                generator.writeStringField("tag", rs.getString(4));
+                generator.writeStringField("nombre", rs.getString(5));
+                generator.writeStringField("segundoNombre", rs.getString(6));
+                generator.writeStringField("apellidoPaterno", rs.getString(7));
+                generator.writeStringField("apellidoMaterno", rs.getString(8));
+                generator.writeStringField("status", rs.getString(9));
+                generator.writeStringField("createdAt", toIso(rs.getTimestamp(10)));
+                generator.writeArrayFieldStart("roles");
+                String roles = rs.getString(11);
+                if (roles != null) {
+                    for (String role : roles.split(",")) {
+                        generator.writeString(role);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            try {
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!empty) {
+                generator.writeRaw('\n');
+            }
+            generator.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            writeLine(COLUMNS);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            String roles = rs.getString(11);
+            try {
+                writeLine(new String[] {
+                        toUuid(rs.getBytes(1)),
+                        rs.getString(2),
+                        rs.getString(3),
+                        rs.getString(4),
+                        rs.getString(5),
+                        rs.getString(6),
+                        rs.getString(7),
+                        rs.getString(8),
+                        rs.getString(9),
+                        toIso(rs.getTimestamp(10)),
+                        roles != null ? roles.replace(',', '|') : "" });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void flush() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void writeLine(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(values[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        // RFC 4180 quoting; a leading formula character is neutralised for spreadsheet users
+        private void writeField(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            value = escapeFormula(value);
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Prefixes a quote to a value that starts with {@code = + - @}, so spreadsheets show it as
+     * text. A value whose leading quotes are followed by one of those characters gets one more
+     * quote as well, so {@link #unescapeFormula(String)} restores every value exactly.
+     */
+    static String escapeFormula(String value) {
+        return isEscapedFormula("'" + value) ? "'" + value : value;
+    }
+
+    /**
+     * Reverses {@link #escapeFormula(String)} on a CSV value read back by the import.
+     */
+    static String unescapeFormula(String value) {
+        return isEscapedFormula(value) ? value.substring(1) : value;
+    }
+
+    // One or more quotes followed by a formula character
+    private static boolean isEscapedFormula(String value) {
+        int start = 0;
+        while (start < value.length() && value.charAt(start) == '\'') {
+            start++;
+        }
+        return start > 0 && start < value.length() && "=+-@".indexOf(value.charAt(start)) >= 0;
+    }
+
+    private static String toUuid(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+    private static String toIso(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+}
@@ -0,0 +1,596 @@
+package com.krouser.backend.users.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.audit.service.AuditService;
+import com.krouser.backend.audit.util.AuditDetailsBuilder;
+import com.krouser.backend.auth.security.PasswordHashingExecutor;
+import com.krouser.backend.rbac.entity.Role;
+import com.krouser.backend.rbac.repository.RoleRepository;
+import com.krouser.backend.shared.exception.BusinessException;
+import com.krouser.backend.users.dto.CreateUserRequest;
+import com.krouser.backend.users.dto.UserImportReport;
+import com.krouser.backend.users.dto.UserImportRowResult;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.entity.UserStatus;
+import com.krouser.backend.users.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users in bulk from a streamed CSV or NDJSON upload.
+ * <p>
+ * Rows are validated as they are read and written in batches: one query for existing
+ * usernames and one for unknown roles per batch, passwords hashed in parallel on the
+ * hashing pool, and the inserts sent as JDBC batches. Each batch commits on its own and is
+ * audited as a single event, so a failure only loses the batch in progress and the import
+ * can be resumed from the row reported in {@link UserImportReport#getNextRow()}.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final String INSERT_USER = "INSERT INTO users (id_public, username, password_hash, status, "
+            + "failed_attempts, authority_version, created_at, alias, tag, nombre, segundo_nombre, "
+            + "apellido_paterno, apellido_materno) VALUES (?, ?, ?, ?, 0, 0, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_USER_ROLE = "INSERT INTO users_roles (user_id, role_id) VALUES (?, ?)";
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("username", "password", "alias", "nombre",
+            "apellidopaterno", "apellidomaterno");
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TagAllocator tagAllocator;
+    private final UserSearchIndex userSearchIndex;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.users.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.users.import.max-rows:100000}")
+    private long maxRows;
+
+    @Value("${app.users.tag.max-inserts:3}")
+    private int maxTagInserts;
+
+    public UserImportService(UserRepository userRepository, RoleRepository roleRepository,
+            PasswordHashingExecutor passwordHashingExecutor, TagAllocator tagAllocator,
+            UserSearchIndex userSearchIndex, AuditService auditService, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, Validator validator, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.tagAllocator = tagAllocator;
+        this.userSearchIndex = userSearchIndex;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Imports every row from {@code resumeFromRow} on (1-based; rows are CSV records after the
+     * header, or NDJSON lines). Never throws for row-level problems: they are reported per row,
+     * and a failure that stops the import is reported through {@code nextRow}/{@code stopReason}.
+     * Only a malformed CSV header is rejected up front.
+     */
+    public UserImportReport importUsers(InputStream in, UserExportService.Format format, long resumeFromRow,
+            String requestedBy) throws IOException {
+        long start = System.currentTimeMillis();
+        long firstRow = Math.max(1, resumeFromRow);
+        UserImportReport report = new UserImportReport(firstRow);
+        RowReader reader = format == UserExportService.Format.CSV ? new CsvRowReader(in) : new NdjsonRowReader(in);
+
+        Map<String, Role> roles = new HashMap<>();
+        Set<String> seenUsernames = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        // Rows rejected since the last flush, reported with it: if the import stops before,
+        // those at or past nextRow are read again on resume and must not be reported twice
+        List<UserImportRowResult> invalid = new ArrayList<>();
+        long lastRow = firstRow - 1;
+        try {
+            ImportRow row;
+            while ((row = reader.next()) != null) {
+                if (row.number < firstRow) {
+                    continue;
+                }
+                if (report.getRowsRead() >= maxRows) {
+                    flush(batch, invalid, roles, report, requestedBy);
+                    report.stop(row.number, "Límite de " + maxRows + " filas por petición alcanzado");
+                    break;
+                }
+                report.rowRead();
+                lastRow = row.number;
+
+                if (row.error == null) {
+                    row.error = validate(row.request);
+                }
+                if (row.error == null && !seenUsernames.add(row.request.getUsername())) {
+                    row.error = "Nombre de usuario repetido en el archivo";
+                }
+                if (row.error != null) {
+                    invalid.add(new UserImportRowResult(row.number, row.username(),
+                            UserImportRowResult.Status.INVALID, row.error));
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    flush(batch, invalid, roles, report, requestedBy);
+                }
+            }
+            if (report.getNextRow() == null) {
+                flush(batch, invalid, roles, report, requestedBy);
+                report.setCompleted(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Batches already flushed are committed; the one in progress was rolled back whole
+            long nextRow = batch.isEmpty() ? lastRow + 1 : batch.get(0).number;
+            List<UserImportRowResult> settled = new ArrayList<>();
+            for (UserImportRowResult result : invalid) {
+                if (result.getRow() < nextRow) {
+                    settled.add(result);
+                }
+            }
+            for (ImportRow pending : batch) {
+                settled.add(new UserImportRowResult(pending.number, pending.username(),
+                        UserImportRowResult.Status.FAILED, "No importado: " + e.getMessage()));
+            }
+            settled.sort(Comparator.comparingLong(UserImportRowResult::getRow));
+            settled.forEach(report::addResult);
+            report.stop(nextRow, e.getMessage());
+            logger.warn("User import stopped before row {}: {}", nextRow, e.toString());
+        }
+        report.setDurationMs(System.currentTimeMillis() - start);
+
+        auditService.audit("USERS_IMPORT", "USER",
+                report.isCompleted() ? AuditEvent.AuditOutcome.SUCCESS : AuditEvent.AuditOutcome.FAIL,
+                null, requestedBy, "User", null,
+                new AuditDetailsBuilder()
+                        .add("format", format.name())
+                        .add("firstRow", firstRow)
+                        .add("rows", report.getRowsRead())
+                        .add("created", report.getCreated())
+                        .add("existing", report.getExisting())
+                        .add("invalid", report.getInvalid())
+                        .add("failed", report.getFailed())
+                        .add("nextRow", report.getNextRow())
+                        .build());
+        return report;
+    }
+
+    private void flush(List<ImportRow> batch, List<UserImportRowResult> invalid, Map<String, Role> roles,
+            UserImportReport report, String requestedBy) {
+        if (batch.isEmpty()) {
+            invalid.forEach(report::addResult);
+            invalid.clear();
+            return;
+        }
+        long firstRow = batch.get(0).number;
+        long lastRow = batch.get(batch.size() - 1).number;
+
+        // Results are only reported once the batch is committed; until then it can still fail whole
+        List<UserImportRowResult> results = new ArrayList<>(batch.size());
+        List<ImportRow> accepted = new ArrayList<>(batch.size());
+        Set<String> existing = new HashSet<>(userRepository.findExistingUsernames(
+                batch.stream().map(row -> row.request.getUsername()).toList()));
+        resolveRoles(batch, roles);
+        for (ImportRow row : batch) {
+            String unknownRole = firstUnknownRole(row.request, roles);
+            if (existing.contains(row.request.getUsername())) {
+                results.add(new UserImportRowResult(row.number, row.username(),
+                        UserImportRowResult.Status.EXISTS, "El usuario ya existe"));
+            } else if (unknownRole != null) {
+                results.add(new UserImportRowResult(row.number, row.username(),
+                        UserImportRowResult.Status.INVALID, "Rol no encontrado: " + unknownRole));
+            } else {
+                accepted.add(row);
+            }
+        }
+
+        List<String> hashes = passwordHashingExecutor.encodeAll(
+                accepted.stream().map(row -> row.request.getPassword()).toList());
+        LocalDateTime now = LocalDateTime.now();
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            users.add(toUser(accepted.get(i).request, hashes.get(i), roles, now));
+        }
+
+        Set<User> raced = transactionTemplate.execute(status -> insert(users));
+        for (int i = 0; i < accepted.size(); i++) {
+            ImportRow row = accepted.get(i);
+            User user = users.get(i);
+            if (raced.contains(user)) {
+                results.add(new UserImportRowResult(row.number, row.username(),
+                        UserImportRowResult.Status.EXISTS, "El usuario ya existe"));
+            } else {
+                results.add(UserImportRowResult.created(row.number, row.username(), user.getIdPublic(),
+                        user.getTag()));
+            }
+        }
+        int created = users.size() - raced.size();
+        int skipped = batch.size() - created;
+        results.addAll(invalid);
+        results.sort(Comparator.comparingLong(UserImportRowResult::getRow));
+        results.forEach(report::addResult);
+        report.batchWritten();
+        batch.clear();
+        invalid.clear();
+
+        auditService.audit("USERS_IMPORT_BATCH", "USER", AuditEvent.AuditOutcome.SUCCESS,
+                null, requestedBy, "User", null,
+                new AuditDetailsBuilder()
+                        .add("firstRow", firstRow)
+                        .add("lastRow", lastRow)
+                        .add("created", created)
+                        .add("skipped", skipped)
+                        .build());
+    }
+
+    // Loads only the role names this import has not resolved yet, in one query
+    private void resolveRoles(List<ImportRow> batch, Map<String, Role> roles) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (ImportRow row : batch) {
+            if (row.request.getRoles() != null) {
+                for (String name : row.request.getRoles()) {
+                    if (!roles.containsKey(name)) {
+                        missing.add(name);
+                    }
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Role role : roleRepository.findByNameIn(missing)) {
+                roles.put(role.getName(), role);
+            }
+        }
+    }
+
+    private String firstUnknownRole(CreateUserRequest request, Map<String, Role> roles) {
+        if (request.getRoles() != null) {
+            for (String name : request.getRoles()) {
+                if (!roles.containsKey(name)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private User toUser(CreateUserRequest request, String passwordHash, Map<String, Role> roles,
+            LocalDateTime now) {
+        User user = new User();
+        user.setIdPublic(UUID.randomUUID());
+        user.setUsername(request.getUsername());
+        user.setPasswordHash(passwordHash);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setCreatedAt(now);
+        user.setAlias(request.getAlias());
+        user.setNombre(request.getNombre());
+        user.setSegundoNombre(request.getSegundoNombre());
+        user.setApellidoPaterno(request.getApellidoPaterno());
+        user.setApellidoMaterno(request.getApellidoMaterno());
+        Set<Role> userRoles = new HashSet<>();
+        if (request.getRoles() != null) {
+            for (String name : request.getRoles()) {
+                userRoles.add(roles.get(name));
+            }
+        }
+        user.setRoles(userRoles);
+        user.setTag(tagAllocator.reserveTag(user, false));
+        return user;
+    }
+
+    /**
+     * Inserts the batch and its role links; returns the users skipped because their username
+     * was taken concurrently. Runs inside the batch transaction.
+     */
+    private Set<User> insert(List<User> users) {
+        if (users.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<User> raced = new HashSet<>();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_USER, users, users.size(), this::bindUser);
+        } catch (DataIntegrityViolationException e) {
+            // A rewritten multi-row insert is all or nothing: redo the batch row by row to
+            // find the offending rows (InnoDB rolls back only the failed statement)
+            for (User user : users) {
+                if (!insertOne(user)) {
+                    raced.add(user);
+                }
+            }
+        }
+
+        List<User> inserted = users.stream().filter(user -> !raced.contains(user)).toList();
+        assignIds(inserted);
+        List<Object[]> links = new ArrayList<>();
+        for (User user : inserted) {
+            for (Role role : user.getRoles()) {
+                links.add(new Object[] { user.getId(), role.getId() });
+            }
+            userSearchIndex.indexAfterCommit(user);
+        }
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_USER_ROLE, links);
+        }
+        return raced;
+    }
+
+    private boolean insertOne(User user) {
+        if (userRepository.existsByIdPublic(user.getIdPublic())) {
+            // Written by an earlier statement when the driver split the batch in several
+            return true;
+        }
+        for (int attempt = 0; attempt < maxTagInserts; attempt++) {
+            try {
+                jdbcTemplate.update(INSERT_USER, statement -> bindUser(statement, user));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                if (userRepository.existsByUsername(user.getUsername())) {
+                    return false;
+                }
+                if (!userRepository.existsByTag(user.getTag())) {
+                    throw e;
+                }
+                tagAllocator.recordCollision(user.getTag());
+                user.setTag(tagAllocator.reserveTag(user, true));
+            }
+        }
+        throw new BusinessException("No se pudo generar un tag único tras varios intentos");
+    }
+
+    private void bindUser(PreparedStatement statement, User user) throws SQLException {
+        statement.setBytes(1, toBytes(user.getIdPublic()));
+        statement.setString(2, user.getUsername());
+        statement.setString(3, user.getPasswordHash());
+        statement.setString(4, user.getStatus().name());
+        statement.setTimestamp(5, Timestamp.valueOf(user.getCreatedAt()));
+        statement.setString(6, user.getAlias());
+        statement.setString(7, user.getTag());
+        statement.setString(8, user.getNombre());
+        statement.setString(9, user.getSegundoNombre());
+        statement.setString(10, user.getApellidoPaterno());
+        statement.setString(11, user.getApellidoMaterno());
+    }
+
+    // One lookup for the generated ids of the whole batch instead of per-row generated keys
+    private void assignIds(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<UUID, User> byIdPublic = users.stream().collect(Collectors.toMap(User::getIdPublic, user -> user));
+        String placeholders = String.join(",", Collections.nCopies(users.size(), "?"));
+        Object[] params = users.stream().map(user -> toBytes(user.getIdPublic())).toArray();
+        jdbcTemplate.query("SELECT id, id_public FROM users WHERE id_public IN (" + placeholders + ")",
+                rs -> {
+                    ByteBuffer buffer = ByteBuffer.wrap(rs.getBytes(2));
+                    User user = byIdPublic.get(new UUID(buffer.getLong(), buffer.getLong()));
+                    if (user != null) {
+                        user.setId(rs.getLong(1));
+                    }
+                }, params);
+    }
+
+    private String validate(CreateUserRequest request) {
+        Set<ConstraintViolation<CreateUserRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    private static final class ImportRow {
+
+        private final long number;
+        private final CreateUserRequest request;
+        private String error;
+
+        ImportRow(long number, CreateUserRequest request, String error) {
+            this.number = number;
+            this.request = request;
+            this.error = error;
+        }
+
+        String username() {
+            return request != null ? request.getUsername() : null;
+        }
+    }
+
+    private interface RowReader {
+        /**
+         * Next row, or null at the end of the input. Blank lines are skipped.
+         */
+        ImportRow next() throws IOException;
+    }
+
+    private final class NdjsonRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        NdjsonRowReader(InputStream in) {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+            } while (line.isBlank());
+
+            try {
+                return new ImportRow(lineNumber, objectMapper.readValue(line, CreateUserRequest.class), null);
+            } catch (JsonProcessingException e) {
+                return new ImportRow(lineNumber, null, "JSON mal formado: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks.
+     * Uses the same columns as the export ({@code roles} separated by {@code |}) plus
+     * {@code password}; column order is free and unknown columns are ignored. The quote the
+     * export puts before a leading formula character is removed again.
+     */
+    private static final class CsvRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long recordNumber;
+
+        CsvRowReader(InputStream in) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+            List<String> header = readRecord();
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+                columns.put(name, i);
+            }
+            List<String> missing = REQUIRED_COLUMNS.stream().filter(name -> !columns.containsKey(name)).toList();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Faltan columnas en la cabecera CSV: " + missing);
+            }
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            if (columns.isEmpty()) {
+                return null;
+            }
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+            recordNumber++;
+
+            CreateUserRequest request = new CreateUserRequest();
+            request.setUsername(field(fields, "username"));
+            request.setPassword(field(fields, "password"));
+            request.setAlias(field(fields, "alias"));
+            request.setNombre(field(fields, "nombre"));
+            request.setSegundoNombre(field(fields, "segundonombre"));
+            request.setApellidoPaterno(field(fields, "apellidopaterno"));
+            request.setApellidoMaterno(field(fields, "apellidomaterno"));
+            String roles = field(fields, "roles");
+            if (roles != null) {
+                request.setRoles(List.of(roles.split("\\|")).stream()
+                        .map(String::trim)
+                        .filter(name -> !name.isEmpty())
+                        .toList());
+            }
+            if (fields.size() != columns.size()) {
+                return new ImportRow(recordNumber, request,
+                        "Se esperaban " + columns.size() + " columnas, se encontraron " + fields.size());
+            }
+            return new ImportRow(recordNumber, request, null);
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index);
+            return value.isEmpty() ? null : UserExportService.unescapeFormula(value);
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException(
+                                "CSV mal formado: comillas sin cerrar después de la fila " + recordNumber);
+                    }
+                    if (c == '"') {
+                        int next = reader.read();
+                        if (next != '"') {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+}
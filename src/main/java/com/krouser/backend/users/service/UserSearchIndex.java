@@ -0,0 +1,535 @@
+package com.krouser.backend.users.service;
+
+import com.krouser.backend.shared.metrics.MetricsSource;
+import com.krouser.backend.shared.util.TransactionCallbacks;
+import com.krouser.backend.users.dto.UserSearchResult;
+import com.krouser.backend.users.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-process search index over alias, tag, nombre and apellidos.
+ * <p>
+ * Substring search uses a trigram index: the immutable base segment maps each trigram to a
+ * sorted array of document ordinals, and queries intersect the arrays of their trigrams
+ * before verifying candidates. Writes after the last build go to a small delta (plus a set
+ * of user ids whose base document is stale) that is folded into a new base once it grows.
+ * Tag autocomplete is a prefix scan over a skip list. Reads never lock and never touch the
+ * database; the base is rebuilt from a streaming scan at startup.
+ * <p>
+ * Local writes are applied when their transaction commits. Writes of other nodes are picked
+ * up every {@code refresh-ms} by re-reading the rows whose {@code updated_at} is past the
+ * last one seen, minus {@code refresh-overlap-ms} for transactions that commit late.
+ * Deletes leave no row to re-read, so the base is also rebuilt every
+ * {@code full-rebuild-ms}.
+ */
+@Component
+public class UserSearchIndex implements MetricsSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final String COLUMNS = "SELECT u.id, u.id_public, u.username, u.alias, u.tag, u.nombre, "
+            + "u.apellido_paterno, u.apellido_materno, u.updated_at FROM users u";
+    private static final String SCAN_QUERY = COLUMNS + " ORDER BY u.id";
+    private static final String REFRESH_QUERY = COLUMNS + " WHERE u.updated_at >= ? ORDER BY u.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int compactThreshold;
+    private final long refreshOverlapMs;
+
+    private volatile Segment base = Segment.build(List.of());
+    private final ConcurrentHashMap<Long, Doc> delta = new ConcurrentHashMap<>();
+    private final Set<Long> stale = ConcurrentHashMap.newKeySet();
+    private volatile ConcurrentSkipListMap<String, Long> tags = new ConcurrentSkipListMap<>();
+
+    private final Object writeLock = new Object();
+    private final Object rebuildLock = new Object();
+    // Ids written while a rebuild scan runs, guarded by writeLock
+    private final Set<Long> racing = new HashSet<>();
+    private boolean rebuilding;
+    // Latest updated_at read from the table, null until the first build
+    private volatile LocalDateTime refreshedThrough;
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder refreshedDocs = new LongAdder();
+    private volatile long lastBuildMillis;
+
+    public UserSearchIndex(JdbcTemplate jdbcTemplate,
+            @Value("${app.users.search.compact-threshold:5000}") int compactThreshold,
+            @Value("${app.users.search.refresh-overlap-ms:30000}") long refreshOverlapMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.compactThreshold = compactThreshold;
+        this.refreshOverlapMs = refreshOverlapMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (writeLock) {
+                rebuilding = true;
+                racing.clear();
+            }
+            List<Doc> docs = new ArrayList<>();
+            LocalDateTime[] latest = new LocalDateTime[1];
+            try {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(SCAN_QUERY,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(Integer.MIN_VALUE);
+                    return statement;
+                }, rs -> {
+                    docs.add(toDoc(rs));
+                    latest[0] = later(latest[0], rs.getTimestamp(9));
+                });
+            } catch (RuntimeException e) {
+                synchronized (writeLock) {
+                    rebuilding = false;
+                    racing.clear();
+                }
+                throw e;
+            }
+            Segment segment = Segment.build(docs);
+
+            synchronized (writeLock) {
+                // Writes applied before the scan began are in it; only those that raced with it
+                // stay in the delta and still take precedence
+                ConcurrentSkipListMap<String, Long> rebuiltTags = new ConcurrentSkipListMap<>();
+                for (Doc doc : docs) {
+                    if (!racing.contains(doc.userId)) {
+                        rebuiltTags.put(tagKey(doc), doc.userId);
+                    }
+                }
+                for (Doc doc : delta.values()) {
+                    if (racing.contains(doc.userId) && !doc.normalizedTag.isEmpty()) {
+                        rebuiltTags.put(tagKey(doc), doc.userId);
+                    }
+                }
+                base = segment;
+                tags = rebuiltTags;
+                delta.keySet().retainAll(racing);
+                stale.retainAll(racing);
+                rebuilding = false;
+                racing.clear();
+                refreshedThrough = later(refreshedThrough, latest[0]);
+            }
+            lastBuildMillis = System.currentTimeMillis() - start;
+            logger.info("User search index built: {} users in {} ms", docs.size(), lastBuildMillis);
+        }
+    }
+
+    // Also the only way deletes made through other nodes leave this index
+    @Scheduled(fixedDelayString = "${app.users.search.full-rebuild-ms:3600000}",
+            initialDelayString = "${app.users.search.full-rebuild-ms:3600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Re-reads the users written since the last refresh, by any node, and indexes those that
+     * differ from what the index holds.
+     */
+    @Scheduled(fixedDelayString = "${app.users.search.refresh-ms:10000}")
+    public void refresh() {
+        LocalDateTime from = refreshedThrough;
+        if (from == null) {
+            return;
+        }
+        LocalDateTime[] latest = { from };
+        jdbcTemplate.query(REFRESH_QUERY, rs -> {
+            Doc doc = toDoc(rs);
+            latest[0] = later(latest[0], rs.getTimestamp(9));
+            if (!doc.sameAs(current(doc.userId)) && upsert(doc, true)) {
+                refreshedDocs.increment();
+            }
+        }, Timestamp.valueOf(from.minusNanos(refreshOverlapMs * 1_000_000L)));
+        refreshedThrough = later(refreshedThrough, latest[0]);
+    }
+
+    /**
+     * Indexes the user's current searchable fields once the surrounding transaction commits.
+     */
+    public void indexAfterCommit(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        Doc doc = new Doc(user.getId(), user.getIdPublic(), user.getUsername(), user.getAlias(), user.getTag(),
+                user.getNombre(), user.getApellidoPaterno(), user.getApellidoMaterno());
+        TransactionCallbacks.afterCommit(() -> upsert(doc, false));
+    }
+
+    public void removeAfterCommit(User user) {
+        Long userId = user.getId();
+        if (userId != null) {
+            TransactionCallbacks.afterCommit(() -> remove(userId));
+        }
+    }
+
+    /**
+     * Users whose alias, tag, nombre or apellidos contain {@code query}, ignoring case and
+     * accents. Queries shorter than {@link #MIN_QUERY_LENGTH} return nothing.
+     */
+    public List<UserSearchResult> search(String query, int limit) {
+        long start = System.nanoTime();
+        String needle = normalize(query);
+        if (needle.length() < MIN_QUERY_LENGTH || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, UserSearchResult> results = new LinkedHashMap<>();
+        Segment segment = base;
+        int[] candidates = segment.candidates(needle);
+        for (int ordinal : candidates) {
+            if (results.size() >= limit) {
+                break;
+            }
+            Doc doc = segment.docs[ordinal];
+            if (!stale.contains(doc.userId) && !delta.containsKey(doc.userId) && doc.matches(needle)) {
+                results.put(doc.userId, doc.toResult());
+            }
+        }
+        for (Doc doc : delta.values()) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (doc.matches(needle)) {
+                results.putIfAbsent(doc.userId, doc.toResult());
+            }
+        }
+
+        searches.increment();
+        searchNanos.add(System.nanoTime() - start);
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * Autocomplete over tags ({@code Alias#abc123}); the prefix may stop anywhere.
+     */
+    public List<UserSearchResult> completeTag(String prefix, int limit) {
+        String from = normalize(prefix);
+        if (from.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<UserSearchResult> results = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : tags.subMap(from, true, from + Character.MAX_VALUE, false)
+                .entrySet()) {
+            if (results.size() >= limit) {
+                break;
+            }
+            Doc doc = current(entry.getValue());
+            // The tag map is maintained separately, so confirm it still points at this user
+            if (doc != null && tagKey(doc).equals(entry.getKey())) {
+                results.add(doc.toResult());
+            }
+        }
+        return results;
+    }
+
+    // Folds the delta into a new base once it is large enough to slow searches down
+    @Scheduled(fixedDelayString = "${app.users.search.compact-check-ms:30000}")
+    public void compactIfNeeded() {
+        if (delta.size() + stale.size() >= compactThreshold) {
+            compact();
+        }
+    }
+
+    public void compact() {
+        synchronized (writeLock) {
+            if (rebuilding) {
+                // The rebuild replaces the base anyway and needs the racing writes in the delta
+                return;
+            }
+            Segment current = base;
+            List<Doc> docs = new ArrayList<>(current.docs.length + delta.size());
+            for (Doc doc : current.docs) {
+                if (!stale.contains(doc.userId) && !delta.containsKey(doc.userId)) {
+                    docs.add(doc);
+                }
+            }
+            docs.addAll(delta.values());
+            docs.sort(Comparator.comparingLong(doc -> doc.userId));
+            Map<Long, Doc> folded = new HashMap<>(delta);
+
+            base = Segment.build(docs);
+            // Readers in between see a user in both base and delta; results are keyed by id
+            folded.forEach(delta::remove);
+            stale.clear();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "userSearchIndex";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long count = searches.sum();
+        Segment segment = base;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("baseDocs", segment.docs.length);
+        metrics.put("trigrams", segment.postings.size());
+        metrics.put("deltaDocs", delta.size());
+        metrics.put("staleDocs", stale.size());
+        metrics.put("tags", tags.size());
+        metrics.put("searches", count);
+        metrics.put("avgSearchMicros", count > 0 ? searchNanos.sum() / count / 1000.0 : 0.0);
+        metrics.put("lastBuildMs", lastBuildMillis);
+        metrics.put("refreshedDocs", refreshedDocs.sum());
+        metrics.put("refreshedThrough", refreshedThrough != null ? refreshedThrough.toString() : null);
+        return metrics;
+    }
+
+    private boolean upsert(Doc doc, boolean fromRefresh) {
+        synchronized (writeLock) {
+            // A refresh may have read the row just before this node deleted it
+            if (fromRefresh && stale.contains(doc.userId) && !delta.containsKey(doc.userId)) {
+                return false;
+            }
+            if (rebuilding) {
+                racing.add(doc.userId);
+            }
+            Doc previous = current(doc.userId);
+            if (previous != null) {
+                tags.remove(tagKey(previous), doc.userId);
+            }
+            delta.put(doc.userId, doc);
+            if (base.ordinalOf(doc.userId) >= 0) {
+                stale.add(doc.userId);
+            }
+            if (!doc.normalizedTag.isEmpty()) {
+                tags.put(tagKey(doc), doc.userId);
+            }
+            return true;
+        }
+    }
+
+    private void remove(Long userId) {
+        synchronized (writeLock) {
+            if (rebuilding) {
+                racing.add(userId);
+            }
+            Doc previous = current(userId);
+            if (previous != null) {
+                tags.remove(tagKey(previous), userId);
+            }
+            delta.remove(userId);
+            // Marked even when absent from the base: a rebuild scan or a refresh may still bring it back
+            stale.add(userId);
+        }
+    }
+
+    private Doc current(Long userId) {
+        Doc doc = delta.get(userId);
+        if (doc != null) {
+            return doc;
+        }
+        if (stale.contains(userId)) {
+            return null;
+        }
+        Segment segment = base;
+        int ordinal = segment.ordinalOf(userId);
+        return ordinal >= 0 ? segment.docs[ordinal] : null;
+    }
+
+    // Normalizing can make two distinct tags equal (case, accents), so the id keeps keys unique
+    private static String tagKey(Doc doc) {
+        return doc.normalizedTag + '\u0000' + doc.userId;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static Doc toDoc(ResultSet rs) throws SQLException {
+        return new Doc(rs.getLong(1), toUuid(rs.getBytes(2)), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getString(6), rs.getString(7), rs.getString(8));
+    }
+
+    private static LocalDateTime later(LocalDateTime current, Timestamp candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        LocalDateTime value = candidate.toLocalDateTime();
+        return current == null || value.isAfter(current) ? value : current;
+    }
+
+    private static LocalDateTime later(LocalDateTime current, LocalDateTime candidate) {
+        return candidate == null ? current : later(current, Timestamp.valueOf(candidate));
+    }
+
+    private static UUID toUuid(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static final class Doc {
+        final long userId;
+        final UUID idPublic;
+        final String username;
+        final String alias;
+        final String tag;
+        final String nombre;
+        final String apellidoPaterno;
+        final String apellidoMaterno;
+        final String normalizedTag;
+        // Normalized fields joined by '\n' so a match never spans two fields
+        final String searchText;
+
+        Doc(long userId, UUID idPublic, String username, String alias, String tag, String nombre,
+                String apellidoPaterno, String apellidoMaterno) {
+            this.userId = userId;
+            this.idPublic = idPublic;
+            this.username = username;
+            this.alias = alias;
+            this.tag = tag;
+            this.nombre = nombre;
+            this.apellidoPaterno = apellidoPaterno;
+            this.apellidoMaterno = apellidoMaterno;
+            this.normalizedTag = normalize(tag);
+            this.searchText = String.join("\n", normalize(alias), normalizedTag, normalize(nombre),
+                    normalize(apellidoPaterno), normalize(apellidoMaterno));
+        }
+
+        boolean sameAs(Doc other) {
+            return other != null && Objects.equals(idPublic, other.idPublic) && Objects.equals(username, other.username)
+                    && Objects.equals(alias, other.alias) && Objects.equals(tag, other.tag)
+                    && Objects.equals(nombre, other.nombre) && Objects.equals(apellidoPaterno, other.apellidoPaterno)
+                    && Objects.equals(apellidoMaterno, other.apellidoMaterno);
+        }
+
+        boolean matches(String needle) {
+            return searchText.contains(needle);
+        }
+
+        Set<String> trigrams() {
+            Set<String> grams = new LinkedHashSet<>();
+            for (String field : searchText.split("\n")) {
+                for (int i = 0; i + MIN_QUERY_LENGTH <= field.length(); i++) {
+                    grams.add(field.substring(i, i + MIN_QUERY_LENGTH));
+                }
+            }
+            return grams;
+        }
+
+        UserSearchResult toResult() {
+            return new UserSearchResult(idPublic, username, alias, tag, nombre, apellidoPaterno, apellidoMaterno);
+        }
+    }
+
+    private static final class Segment {
+        final Doc[] docs;
+        final Map<String, int[]> postings;
+        final Map<Long, Integer> ordinals;
+
+        private Segment(Doc[] docs, Map<String, int[]> postings, Map<Long, Integer> ordinals) {
+            this.docs = docs;
+            this.postings = postings;
+            this.ordinals = ordinals;
+        }
+
+        static Segment build(Collection<Doc> source) {
+            Doc[] docs = source.toArray(new Doc[0]);
+            Map<String, int[]> building = new HashMap<>();
+            Map<String, Integer> sizes = new HashMap<>();
+            Map<Long, Integer> ordinals = new HashMap<>(docs.length * 2);
+            for (int ordinal = 0; ordinal < docs.length; ordinal++) {
+                ordinals.put(docs[ordinal].userId, ordinal);
+                for (String gram : docs[ordinal].trigrams()) {
+                    int size = sizes.getOrDefault(gram, 0);
+                    int[] list = building.get(gram);
+                    if (list == null) {
+                        list = new int[4];
+                    } else if (size == list.length) {
+                        list = Arrays.copyOf(list, size * 2);
+                    }
+                    list[size] = ordinal;
+                    building.put(gram, list);
+                    sizes.put(gram, size + 1);
+                }
+            }
+            // Ordinals are appended in increasing order, so every posting list is already sorted
+            Map<String, int[]> postings = new HashMap<>(building.size() * 2);
+            building.forEach((gram, list) -> postings.put(gram, Arrays.copyOf(list, sizes.get(gram))));
+            return new Segment(docs, postings, ordinals);
+        }
+
+        int ordinalOf(long userId) {
+            Integer ordinal = ordinals.get(userId);
+            return ordinal != null ? ordinal : -1;
+        }
+
+        int[] candidates(String needle) {
+            List<int[]> lists = new ArrayList<>();
+            for (int i = 0; i + MIN_QUERY_LENGTH <= needle.length(); i++) {
+                int[] list = postings.get(needle.substring(i, i + MIN_QUERY_LENGTH));
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.length));
+
+            int[] result = lists.get(0);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, lists.get(i));
+            }
+            return result;
+        }
+
+        private static int[] intersect(int[] small, int[] large) {
+            int[] out = new int[small.length];
+            int count = 0;
+            for (int value : small) {
+                if (Arrays.binarySearch(large, value) >= 0) {
+                    out[count++] = value;
+                }
+            }
+            return Arrays.copyOf(out, count);
+        }
+    }
+}
@@ -1,27 +1,44 @@
 package com.krouser.backend.users.service;
 
+import com.krouser.backend.auth.security.AuthorityChangeService;
+import com.krouser.backend.auth.security.PasswordHashingExecutor;
 import com.krouser.backend.rbac.entity.Role;
 import com.krouser.backend.rbac.repository.RoleRepository;
+import com.krouser.backend.shared.dto.BatchAssignmentResult;
+import com.krouser.backend.shared.dto.CursorPage;
 import com.krouser.backend.shared.exception.BusinessException;
 import com.krouser.backend.shared.exception.UserAlreadyExistsException;
 import com.krouser.backend.shared.exception.UserNotFoundException;
-import com.krouser.backend.shared.exception.ResourceNotFoundException;
-import com.krouser.backend.shared.util.TagGenerator;
+import com.krouser.backend.shared.util.BatchLookup;
+import com.krouser.backend.shared.util.CollectionSync;
+import com.krouser.backend.shared.util.CursorCodec;
 import com.krouser.backend.users.dto.CreateUserRequest;
+import com.krouser.backend.users.dto.UserDetailView;
+import com.krouser.backend.users.dto.UserFilter;
 import com.krouser.backend.users.dto.UserResponse;
+import com.krouser.backend.users.dto.UserRoleView;
+import com.krouser.backend.users.dto.UserSearchResult;
+import com.krouser.backend.users.dto.UserSummaryView;
 import com.krouser.backend.users.entity.User;
 import com.krouser.backend.users.repository.UserRepository;
 import com.krouser.backend.audit.entity.AuditEvent;
 import com.krouser.backend.audit.service.AuditService;
 import com.krouser.backend.audit.util.AuditDetailsBuilder;
 import com.krouser.backend.users.dto.UpdateUserRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -31,24 +48,66 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
     private final AuditService auditService;
+    private final AuthorityChangeService authorityChangeService;
 
-    private final TagGenerator tagGenerator;
+    private final UserSearchIndex userSearchIndex;
+    private final TagAllocator tagAllocator;
 
-    public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder,
-            TagGenerator tagGenerator, AuditService auditService) {
+    @Value("${app.users.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.users.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${app.users.search.max-results:50}")
+    private int maxSearchResults;
+
+    public UserService(UserRepository userRepository, RoleRepository roleRepository,
+            PasswordHashingExecutor passwordHashingExecutor,
+            AuditService auditService, AuthorityChangeService authorityChangeService,
+            UserSearchIndex userSearchIndex, TagAllocator tagAllocator) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.passwordEncoder = passwordEncoder;
-        this.tagGenerator = tagGenerator;
+        this.passwordHashingExecutor = passwordHashingExecutor;
         this.auditService = auditService;
+        this.authorityChangeService = authorityChangeService;
+        this.userSearchIndex = userSearchIndex;
+        this.tagAllocator = tagAllocator;
     }
 
-    public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(UserResponse::new)
-                .collect(Collectors.toList());
+    /**
+     * Keyset page of users ordered by id. Costs two queries regardless of page size: one for
+     * the rows and one for the roles of the whole page.
+     */
+    public CursorPage<UserResponse> listUsers(UserFilter filter, String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        long afterId = CursorCodec.decode(cursor);
+
+        List<UserSummaryView> rows = userRepository.findPageAfter(afterId, filter.getStatus(),
+                filter.getNormalizedRole(), filter.getCreatedFrom(), filter.getCreatedTo(),
+                Limit.of(pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        Map<Long, List<String>> rolesByUser = new HashMap<>();
+        if (!rows.isEmpty()) {
+            List<Long> ids = rows.stream().map(UserSummaryView::getId).collect(Collectors.toList());
+            for (UserRoleView userRole : userRepository.findRoleNamesByUserIds(ids)) {
+                rolesByUser.computeIfAbsent(userRole.getUserId(), id -> new ArrayList<>())
+                        .add(userRole.getRoleName());
+            }
+        }
+
+        List<UserResponse> items = new ArrayList<>(rows.size());
+        for (UserSummaryView row : rows) {
+            items.add(new UserResponse(row, rolesByUser.getOrDefault(row.getId(), new ArrayList<>())));
+        }
+        String nextCursor = hasMore ? CursorCodec.encode(rows.get(rows.size() - 1).getId()) : null;
+        return new CursorPage<>(items, nextCursor);
     }
 
     @Transactional
@@ -57,18 +116,11 @@ public class UserService {
             throw new UserAlreadyExistsException("User already exists: " + request.getUsername());
         }
 
-        Set<Role> roles = new HashSet<>();
-        if (request.getRoles() != null) {
-            for (String roleName : request.getRoles()) {
-                Role role = roleRepository.findByName(roleName)
-                        .orElseThrow(() -> new ResourceNotFoundException("Role", roleName));
-                roles.add(role);
-            }
-        }
+        Collection<Role> roles = resolveRoles(request.getRoles()).values();
 
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
+        user.setPasswordHash(passwordHashingExecutor.encode(request.getPassword()));
         user.setRoles(roles);
         user.setRoles(roles);
         user.setStatus(com.krouser.backend.users.entity.UserStatus.ACTIVE);
@@ -83,27 +135,8 @@ public class UserService {
         // Generate ID Public
         user.setIdPublic(UUID.randomUUID());
 
-        boolean saved = false;
-        int attempts = 0;
-        User savedUser = null;
-
-        while (!saved && attempts < 3) {
-            String tag = tagGenerator.generateTagWithAlternateSuffix(user.getAlias(), user.getIdPublic(), attempts);
-            user.setTag(tag);
-            try {
-                savedUser = userRepository.save(user);
-                saved = true;
-            } catch (org.springframework.dao.DataIntegrityViolationException e) {
-                if (userRepository.existsByTag(tag)) {
-                    attempts++;
-                } else {
-                    throw e;
-                }
-            }
-        }
-
-        if (!saved || savedUser == null)
-            throw new BusinessException("Could not generate unique tag");
+        User savedUser = tagAllocator.assignTagAndSave(user, userRepository::save);
+        userSearchIndex.indexAfterCommit(savedUser);
 
         auditService.audit("USER_CREATED_ADMIN", "USER", AuditEvent.AuditOutcome.SUCCESS,
                 getCurrentUsername(), getCurrentUsername(),
@@ -116,16 +149,39 @@ public class UserService {
         return new UserResponse(savedUser);
     }
 
+    /**
+     * Served entirely from the in-memory index; see {@link UserSearchIndex}.
+     */
+    public List<UserSearchResult> searchUsers(String query, Integer limit) {
+        return userSearchIndex.search(query, clampSearchLimit(limit));
+    }
+
+    public List<UserSearchResult> completeTags(String prefix, Integer limit) {
+        return userSearchIndex.completeTag(prefix, clampSearchLimit(limit));
+    }
+
     public UserResponse getUserByUsername(String username) {
-        User user = userRepository.findByUsername(username)
+        return toResponse(userRepository.findDetailByUsername(username))
                 .orElseThrow(() -> new UserNotFoundException("username", username));
-        return new UserResponse(user);
     }
 
     public UserResponse getUserByIdPublic(UUID idPublic) {
-        User user = userRepository.findByIdPublic(idPublic)
+        return toResponse(userRepository.findDetailByIdPublic(idPublic))
                 .orElseThrow(() -> new UserNotFoundException("ID", idPublic.toString()));
-        return new UserResponse(user);
+    }
+
+    // Collapses the one-row-per-role result of a profile read; entities stay on the write path
+    private Optional<UserResponse> toResponse(List<UserDetailView> rows) {
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        List<String> roles = new ArrayList<>(rows.size());
+        for (UserDetailView row : rows) {
+            if (row.getRoleName() != null) {
+                roles.add(row.getRoleName());
+            }
+        }
+        return Optional.of(new UserResponse(rows.get(0), roles));
     }
 
     @Transactional
@@ -150,6 +206,8 @@ public class UserService {
             user.setApellidoMaterno(request.getApellidoMaterno());
 
         User saved = userRepository.save(user);
+        authorityChangeService.userDetailsChanged(saved);
+        userSearchIndex.indexAfterCommit(saved);
 
         auditService.audit("USER_UPDATED", "USER", AuditEvent.AuditOutcome.SUCCESS,
                 getCurrentUsername(), getCurrentUsername(),
@@ -164,6 +222,7 @@ public class UserService {
                 .orElseThrow(() -> new UserNotFoundException("ID", idPublic.toString()));
         user.setStatus(enabled ? com.krouser.backend.users.entity.UserStatus.ACTIVE
                 : com.krouser.backend.users.entity.UserStatus.BLOCKED);
+        authorityChangeService.userAuthoritiesChanged(user);
         userRepository.save(user);
 
         auditService.audit(enabled ? "USER_UNBLOCKED" : "USER_BLOCKED", "USER", AuditEvent.AuditOutcome.SUCCESS,
@@ -176,15 +235,10 @@ public class UserService {
         User user = userRepository.findByIdPublic(idPublic)
                 .orElseThrow(() -> new UserNotFoundException("ID", idPublic.toString()));
 
-        Set<Role> roles = new HashSet<>();
-        if (roleNames != null && !roleNames.isEmpty()) {
-            for (String name : roleNames) {
-                roles.add(roleRepository.findByName(name)
-                        .orElseThrow(() -> new ResourceNotFoundException("Role", name)));
-            }
+        Map<String, Role> roles = resolveRoles(roleNames);
+        if (CollectionSync.replaceContents(user.getRoles(), roles.values())) {
+            authorityChangeService.userAuthoritiesChanged(user);
         }
-        user.setRoles(roles);
-        userRepository.save(user);
 
         auditService.audit("USER_ROLE_REPLACED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
                 getCurrentUsername(), getCurrentUsername(),
@@ -192,6 +246,64 @@ public class UserService {
                 new AuditDetailsBuilder().add("roles", roleNames != null ? roleNames.toString() : "[]").build());
     }
 
+    /**
+     * Replaces the roles of several users in one transaction. Users (with their current
+     * roles) and roles are each loaded with one query; unknown ids or role names fail the
+     * whole request with a single error listing all of them. Only join rows that actually
+     * differ are written, and only users whose roles changed get a new authority version.
+     */
+    @Transactional
+    public BatchAssignmentResult assignRolesToUsers(Map<UUID, List<String>> assignments) {
+        Map<UUID, User> users = new HashMap<>();
+        for (User user : userRepository.findWithRolesByIdPublicIn(assignments.keySet())) {
+            users.put(user.getIdPublic(), user);
+        }
+        List<String> missingUsers = assignments.keySet().stream()
+                .filter(id -> !users.containsKey(id))
+                .map(UUID::toString)
+                .sorted()
+                .toList();
+        if (!missingUsers.isEmpty()) {
+            throw new UserNotFoundException("ID", String.join(", ", missingUsers));
+        }
+        Set<String> roleNames = new HashSet<>();
+        assignments.values().stream().filter(Objects::nonNull).forEach(roleNames::addAll);
+        Map<String, Role> roles = resolveRoles(roleNames);
+
+        List<String> changed = new ArrayList<>();
+        List<String> unchanged = new ArrayList<>();
+        for (Map.Entry<UUID, List<String>> assignment : assignments.entrySet()) {
+            User user = users.get(assignment.getKey());
+            List<Role> desired = assignment.getValue() == null ? List.of()
+                    : assignment.getValue().stream().map(roles::get).toList();
+            if (CollectionSync.replaceContents(user.getRoles(), desired)) {
+                authorityChangeService.userAuthoritiesChanged(user);
+                changed.add(assignment.getKey().toString());
+            } else {
+                unchanged.add(assignment.getKey().toString());
+            }
+        }
+
+        auditService.audit("USER_ROLE_BATCH_REPLACED", "RBAC", AuditEvent.AuditOutcome.SUCCESS,
+                getCurrentUsername(), getCurrentUsername(),
+                "User", null,
+                new AuditDetailsBuilder()
+                        .add("users", assignments.size())
+                        .add("changed", changed.toString())
+                        .build());
+
+        return new BatchAssignmentResult(changed, unchanged);
+    }
+
+    private Map<String, Role> resolveRoles(Collection<String> names) {
+        return BatchLookup.byName("Role", names != null ? names : List.of(),
+                roleRepository::findByNameIn, Role::getName);
+    }
+
+    private int clampSearchLimit(Integer limit) {
+        return limit == null ? 20 : Math.max(1, Math.min(limit, maxSearchResults));
+    }
+
     private String getCurrentUsername() {
         try {
             return SecurityContextHolder.getContext().getAuthentication().getName();
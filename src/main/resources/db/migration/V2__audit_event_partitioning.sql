@@ -0,0 +1,101 @@
+-- ============================================================================
+-- audit_event: monthly RANGE COLUMNS partitions on event_time_utc
+-- ============================================================================
+-- Rebuilds audit_event as a partitioned table so retention can drop whole months
+-- (ALTER TABLE ... DROP PARTITION) instead of deleting rows.
+--
+-- * One partition per month, named pYYYYMM, holding rows with
+--   event_time_utc < first day of the following month; pmax catches anything beyond the
+--   pre-created months. From then on AuditPartitionManager keeps partitions created
+--   ahead and drops expired ones.
+-- * MySQL requires every unique key of a partitioned table to include the partitioning
+--   column, so the primary key becomes (id, event_time_utc) and the replay key
+--   (uk_audit_event_id) becomes (event_id, event_time_utc). A replayed event keeps its
+--   original event_time_utc, so the replay insert still deduplicates it.
+-- * Every secondary index of V1 is recreated as is, idx_audit_category and
+--   idx_audit_outcome included.
+-- * Run with the application stopped (audit events written meanwhile would land in the
+--   old table). The old table is kept as audit_event_legacy until you drop it.
+--
+-- Database: MySQL 8.0+
+-- ============================================================================
+
+SET SESSION group_concat_max_len = 1000000;
+
+-- First month: oldest stored event (or the current month on an empty table)
+SET @first_month = CAST(DATE_FORMAT(COALESCE((SELECT MIN(event_time_utc) FROM audit_event), UTC_TIMESTAMP()),
+        '%Y-%m-01') AS DATE);
+-- Last month created up front: three months ahead of the current one
+SET @last_month = CAST(DATE_FORMAT(UTC_TIMESTAMP(), '%Y-%m-01') AS DATE) + INTERVAL 3 MONTH;
+
+SELECT GROUP_CONCAT(
+           CONCAT('PARTITION p', DATE_FORMAT(m, '%Y%m'),
+                  ' VALUES LESS THAN (''', DATE_FORMAT(m + INTERVAL 1 MONTH, '%Y-%m-%d'), ' 00:00:00'')')
+           ORDER BY m SEPARATOR ', ')
+INTO @partitions
+FROM (
+    WITH RECURSIVE months (m) AS (
+        SELECT @first_month
+        UNION ALL
+        SELECT m + INTERVAL 1 MONTH FROM months WHERE m < @last_month
+    )
+    SELECT m FROM months
+) month_list;
+
+SET @ddl = CONCAT('CREATE TABLE audit_event_partitioned (',
+    'id BIGINT NOT NULL AUTO_INCREMENT, ',
+    'event_id VARCHAR(36) NULL, ',
+    'event_time_utc DATETIME(6) NOT NULL, ',
+    'request_id VARCHAR(64) NULL, ',
+    'actor_user_id_public VARCHAR(36) NULL, ',
+    'actor_username VARCHAR(80) NULL, ',
+    'action VARCHAR(80) NOT NULL, ',
+    'category VARCHAR(40) NOT NULL, ',
+    'entity_type VARCHAR(60) NULL, ',
+    'entity_id_public VARCHAR(36) NULL, ',
+    'outcome VARCHAR(20) NOT NULL, ',
+    'http_status INT NULL, ',
+    'error_code VARCHAR(80) NULL, ',
+    'message VARCHAR(255) NULL, ',
+    'http_method VARCHAR(10) NULL, ',
+    'path VARCHAR(200) NULL, ',
+    'ip VARCHAR(45) NULL, ',
+    'user_agent VARCHAR(255) NULL, ',
+    'details TEXT NULL, ',
+    'created_at DATETIME(6) NOT NULL, ',
+    'PRIMARY KEY (id, event_time_utc), ',
+    'UNIQUE KEY uk_audit_event_id (event_id, event_time_utc), ',
+    'KEY idx_audit_event_time (event_time_utc), ',
+    'KEY idx_audit_request_id (request_id), ',
+    'KEY idx_audit_actor_time (actor_user_id_public, event_time_utc), ',
+    'KEY idx_audit_entity_type_id (entity_type, entity_id_public), ',
+    'KEY idx_audit_action_time (action, event_time_utc), ',
+    'KEY idx_audit_category (category), ',
+    'KEY idx_audit_outcome (outcome)',
+    ') ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ',
+    'PARTITION BY RANGE COLUMNS (event_time_utc) (', @partitions,
+    ', PARTITION pmax VALUES LESS THAN (MAXVALUE))');
+
+PREPARE create_partitioned FROM @ddl;
+EXECUTE create_partitioned;
+DEALLOCATE PREPARE create_partitioned;
+
+-- Copy keeping ids, so audit references and keyset cursors stay valid
+INSERT INTO audit_event_partitioned (id, event_id, event_time_utc, request_id, actor_user_id_public,
+        actor_username, action, category, entity_type, entity_id_public, outcome, http_status, error_code,
+        message, http_method, path, ip, user_agent, details, created_at)
+SELECT id, event_id, event_time_utc, request_id, actor_user_id_public,
+        actor_username, action, category, entity_type, entity_id_public, outcome, http_status, error_code,
+        message, http_method, path, ip, user_agent, details, created_at
+FROM audit_event;
+
+RENAME TABLE audit_event TO audit_event_legacy, audit_event_partitioned TO audit_event;
+
+-- Verify, then reclaim the space:
+-- SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS FROM INFORMATION_SCHEMA.PARTITIONS
+--   WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_event' ORDER BY PARTITION_ORDINAL_POSITION;
+-- DROP TABLE audit_event_legacy;
+
+-- ============================================================================
+-- END OF MIGRATION SCRIPT
+-- ============================================================================
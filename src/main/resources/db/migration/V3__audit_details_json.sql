@@ -0,0 +1,40 @@
+-- ============================================================================
+-- audit_event.details: TEXT (key=value) -> JSON
+-- ============================================================================
+-- AuditDetailsBuilder now writes details as a compact JSON object, e.g.
+-- {"reason":"Bad credentials","attempts":3}. This script:
+--
+-- * Wraps rows written in the old key=value format as {"legacy": "<old text>"}, so the
+--   column can become JSON without losing them.
+-- * Changes details to a native JSON column (MySQL validates and stores it in binary form).
+-- * Adds virtual generated columns for the keys that are searched most, with an index on
+--   each: details_reason (failed logins, access denied) and details_attempts (lockouts).
+--   Virtual columns take no space in the rows; only their indexes are stored.
+--
+-- Example:
+--   SELECT id, event_time_utc, actor_username FROM audit_event
+--   WHERE details_attempts >= 5 ORDER BY event_time_utc DESC LIMIT 50;
+--
+-- Run after V2__audit_event_partitioning.sql, with the application stopped: old instances
+-- still write key=value text, which a JSON column rejects. Let the audit journal drain
+-- first (auditJournal.sealedSegments = 0 in /api/metrics) for the same reason.
+--
+-- Database: MySQL 8.0+
+-- ============================================================================
+
+UPDATE audit_event
+SET details = JSON_OBJECT('legacy', details)
+WHERE details IS NOT NULL AND JSON_VALID(details) = 0;
+
+ALTER TABLE audit_event
+    MODIFY details JSON NULL,
+    ADD COLUMN details_reason VARCHAR(255)
+        GENERATED ALWAYS AS (LEFT(JSON_UNQUOTE(JSON_EXTRACT(details, '$.reason')), 255)) VIRTUAL,
+    ADD COLUMN details_attempts INT
+        GENERATED ALWAYS AS (CAST(JSON_EXTRACT(details, '$.attempts') AS SIGNED)) VIRTUAL,
+    ADD INDEX idx_audit_details_reason (details_reason),
+    ADD INDEX idx_audit_details_attempts (details_attempts);
+
+-- ============================================================================
+-- END OF MIGRATION SCRIPT
+-- ============================================================================
@@ -0,0 +1,31 @@
+-- ============================================================================
+-- audit_event_rollup: per-minute audit event counts, one row per node
+-- ============================================================================
+-- Written by AuditRollupService when app.audit.rollup.enabled=true: every node adds the
+-- counts of its completed minutes, per (action, category, outcome), so dashboards can
+-- read cluster-wide rates from here instead of running COUNT(*) over audit_event.
+-- Only minutes with events produce rows; rows older than app.audit.rollup.retention-days
+-- are purged by the application.
+--
+-- Example (login failures per hour over the last day, all nodes):
+--   SELECT DATE_FORMAT(bucket_start, '%Y-%m-%d %H:00') AS hour, SUM(event_count)
+--   FROM audit_event_rollup
+--   WHERE bucket_start >= UTC_TIMESTAMP() - INTERVAL 1 DAY AND action = 'LOGIN_FAIL'
+--   GROUP BY hour ORDER BY hour;
+--
+-- Database: MySQL 8.0.19+ (the flush uses INSERT ... AS new ON DUPLICATE KEY UPDATE)
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS audit_event_rollup (
+    bucket_start DATETIME NOT NULL COMMENT 'Inicio del minuto (UTC)',
+    action VARCHAR(80) NOT NULL,
+    category VARCHAR(40) NOT NULL,
+    outcome VARCHAR(20) NOT NULL,
+    node_id VARCHAR(64) NOT NULL,
+    event_count INT UNSIGNED NOT NULL,
+    PRIMARY KEY (bucket_start, action, category, outcome, node_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- END OF MIGRATION SCRIPT
+-- ============================================================================
@@ -0,0 +1,26 @@
+-- ============================================================================
+-- audit_event: occurrence_count, first_seen_utc, last_seen_utc
+-- ============================================================================
+-- AuditCoalescer collapses repeats of noisy events (same action, actor, ip, path and
+-- outcome within app.audit.coalescer.window-ms) into one row. Such a row has
+-- occurrence_count > 1 and the time span of the repeats in first_seen_utc/last_seen_utc;
+-- every other row has occurrence_count = 1 and both times NULL.
+--
+-- Counting events must therefore sum occurrence_count instead of counting rows:
+--   SELECT action, SUM(occurrence_count) FROM audit_event
+--   WHERE event_time_utc >= UTC_TIMESTAMP() - INTERVAL 1 HOUR GROUP BY action;
+--
+-- Run with the application stopped: old instances do not write these columns and new
+-- ones need them.
+--
+-- Database: MySQL 8.0+
+-- ============================================================================
+
+ALTER TABLE audit_event
+    ADD COLUMN occurrence_count INT UNSIGNED NOT NULL DEFAULT 1 AFTER details,
+    ADD COLUMN first_seen_utc DATETIME(6) NULL AFTER occurrence_count,
+    ADD COLUMN last_seen_utc DATETIME(6) NULL AFTER first_seen_utc;
+
+-- ============================================================================
+-- END OF MIGRATION SCRIPT
+-- ============================================================================
@@ -0,0 +1,24 @@
+-- ============================================================================
+-- users: updated_at
+-- ============================================================================
+-- UserSearchIndex keeps an in-memory index per node. Every node re-reads the rows whose
+-- updated_at moved since its last refresh (app.users.search.refresh-ms), so users created
+-- or edited through another node show up in its searches too.
+--
+-- The column is maintained by MySQL itself (DEFAULT / ON UPDATE), so JDBC writes such as
+-- the bulk import are covered without touching their SQL. ON UPDATE only fires when a
+-- value of the row actually changes.
+--
+-- Existing rows get the time of the migration, which is harmless: each node builds its
+-- index from a full scan at startup.
+--
+-- Database: MySQL 8.0+
+-- ============================================================================
+
+ALTER TABLE users
+    ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    ADD INDEX idx_users_updated_at (updated_at);
+
+-- ============================================================================
+-- END OF MIGRATION SCRIPT
+-- ============================================================================
@@ -0,0 +1,23 @@
+-- ============================================================================
+-- audit_event: idx_audit_entity_time
+-- ============================================================================
+-- GET /api/audit/events pages by (event_time_utc, id) and forces one index per filter.
+-- idx_audit_entity_type_id (entity_type, entity_id_public) returned an entity's rows in
+-- id order, so every page needed a filesort of all of them. The replacement ends in
+-- event_time_utc: with entity_type and entity_id_public fixed, the index (plus the
+-- primary key InnoDB appends) is already in keyset order and a page reads size + 1
+-- entries. The old index is a prefix of the new one and is dropped.
+--
+-- Secondary index changes are done in place, without blocking the audit writer.
+--
+-- Database: MySQL 8.0+
+-- ============================================================================
+
+ALTER TABLE audit_event
+    ADD INDEX idx_audit_entity_time (entity_type, entity_id_public, event_time_utc),
+    DROP INDEX idx_audit_entity_type_id,
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- ============================================================================
+-- END OF MIGRATION SCRIPT
+-- ============================================================================
@@ -0,0 +1,235 @@
+package com.krouser.backend.audit.journal;
+
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.audit.service.AuditRecord;
+import com.krouser.backend.audit.service.AuditWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays real segment files from a temporary directory into a mocked {@link AuditWriter}.
+ */
+class AuditJournalReplayerTest {
+
+    @TempDir
+    Path directory;
+
+    private AuditJournal journal;
+    private AuditWriter auditWriter;
+    private final List<String> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new AuditJournal(true, directory.toString(), directory.resolve("quarantine").toString(), 4096,
+                false);
+        auditWriter = mock(AuditWriter.class);
+        doAnswer(invocation -> {
+            List<AuditRecord> batch = invocation.getArgument(0);
+            batch.forEach(record -> inserted.add(record.getEventId()));
+            return null;
+        }).when(auditWriter).insertBatch(anyList());
+    }
+
+    @Test
+    void intactSegmentIsReplayedAndDeleted() {
+        journal.append(List.of(record("e1"), record("e2")));
+
+        replayer().replay();
+
+        assertThat(inserted).containsExactly("e1", "e2");
+        assertThat(journal.hasPending()).isFalse();
+        assertThat(segmentFiles(directory)).isEmpty();
+    }
+
+    @Test
+    void corruptSegmentIsQuarantinedAfterItsValidPrefix() throws IOException {
+        journal.append(List.of(record("e1"), record("e2"), record("e3")));
+        journal.sealActive();
+        Path segment = journal.sealedSegments().get(0);
+        corruptSecondFrame(segment);
+
+        AuditJournalReplayer replayer = replayer();
+        replayer.replay();
+
+        assertThat(inserted).containsExactly("e1");
+        assertThat(Files.exists(segment)).isFalse();
+        assertThat(directory.resolve("quarantine").resolve(segment.getFileName())).exists();
+        assertThat(journal.hasPending()).isFalse();
+        assertThat(replayer.getMetrics()).containsEntry("segmentsQuarantined", 1L);
+    }
+
+    @Test
+    void segmentRejectedAsInvalidDataIsQuarantinedAndLaterOnesGoOn() {
+        journal.append(List.of(record("bad")));
+        journal.sealActive();
+        journal.append(List.of(record("good")));
+        doThrow(new DataIntegrityViolationException("Data too long for column 'path'"))
+                .doAnswer(invocation -> {
+                    List<AuditRecord> batch = invocation.getArgument(0);
+                    batch.forEach(record -> inserted.add(record.getEventId()));
+                    return null;
+                }).when(auditWriter).insertBatch(anyList());
+
+        replayer().replay();
+
+        assertThat(inserted).containsExactly("good");
+        assertThat(segmentFiles(directory.resolve("quarantine"))).hasSize(1);
+        assertThat(journal.hasPending()).isFalse();
+    }
+
+    @Test
+    void unreachableDatabaseKeepsTheSegmentForTheNextRound() {
+        journal.append(List.of(record("e1")));
+        doThrow(new DataAccessResourceFailureException("Communications link failure"))
+                .when(auditWriter).insertBatch(anyList());
+
+        AuditJournalReplayer replayer = replayer();
+        replayer.replay();
+
+        assertThat(journal.sealedSegments()).hasSize(1);
+        assertThat(Files.exists(directory.resolve("quarantine"))).isFalse();
+        assertThat(replayer.getMetrics()).containsEntry("failedRounds", 1L);
+    }
+
+    @Test
+    void segmentInFormatVersionZeroIsReplayedAsSingleOccurrences() throws IOException {
+        // Left by a release before coalescing: no occurrence count, no first/last seen
+        Path segment = directory.resolve(String.format("%020d.seg", 7));
+        writeVersionZeroSegment(segment, "old1", "old2");
+        AuditJournal restarted = new AuditJournal(true, directory.toString(),
+                directory.resolve("quarantine").toString(), 4096, false);
+        List<AuditRecord> replayed = new ArrayList<>();
+        doAnswer(invocation -> replayed.addAll(invocation.getArgument(0)))
+                .when(auditWriter).insertBatch(anyList());
+
+        new AuditJournalReplayer(restarted, auditWriter, 200).replay();
+
+        assertThat(replayed).extracting(AuditRecord::getEventId).containsExactly("old1", "old2");
+        AuditRecord first = replayed.get(0);
+        assertThat(first.getOccurrenceCount()).isEqualTo(1);
+        assertThat(first.getFirstSeenUtc()).isNull();
+        assertThat(first.getLastSeenUtc()).isNull();
+        assertThat(first.getEventTimeUtc()).isEqualTo(LocalDateTime.of(2026, 10, 18, 12, 0));
+        assertThat(first.getOutcome()).isEqualTo(AuditEvent.AuditOutcome.FAIL);
+        assertThat(first.getHttpStatus()).isEqualTo(400);
+        assertThat(first.getPath()).isEqualTo("/api/users");
+        assertThat(first.getDetails()).isEqualTo("{\"reason\":\"x\"}");
+        assertThat(first.getCreatedAt()).isEqualTo(LocalDateTime.of(2026, 10, 18, 12, 0, 1));
+        assertThat(Files.exists(segment)).isFalse();
+        assertThat(restarted.hasPending()).isFalse();
+    }
+
+    private AuditJournalReplayer replayer() {
+        return new AuditJournalReplayer(journal, auditWriter, 200);
+    }
+
+    // Header "AUJ1" + version 0, then [length][crc32][payload] frames in the original field order
+    private static void writeVersionZeroSegment(Path segment, String... eventIds) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+        out.writeInt(0x41554a31);
+        out.writeInt(0);
+        for (String eventId : eventIds) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(payload);
+            writeString(record, eventId);
+            writeTime(record, LocalDateTime.of(2026, 10, 18, 12, 0));
+            writeString(record, "req-1");
+            writeString(record, null);
+            writeString(record, "ana@example.com");
+            writeString(record, "VALIDATION_FAIL");
+            writeString(record, "API");
+            writeString(record, null);
+            writeString(record, null);
+            writeString(record, "FAIL");
+            record.writeInt(400);
+            writeString(record, null);
+            writeString(record, null);
+            writeString(record, "POST");
+            writeString(record, "/api/users");
+            writeString(record, "10.0.0.1");
+            writeString(record, null);
+            writeString(record, "{\"reason\":\"x\"}");
+            writeTime(record, LocalDateTime.of(2026, 10, 18, 12, 0, 1));
+            byte[] bytes = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            out.writeInt(bytes.length);
+            out.writeInt((int) crc.getValue());
+            out.write(bytes);
+        }
+        // Unused tail of a preallocated segment
+        out.write(new byte[64]);
+        Files.write(segment, file.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    // Flips a payload byte of the second record so its CRC no longer matches
+    private static void corruptSecondFrame(Path segment) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(8);
+            int firstLength = file.readInt();
+            long secondPayload = 8 + 8 + firstLength + 8;
+            file.seek(secondPayload);
+            int value = file.read();
+            file.seek(secondPayload);
+            file.write(value ^ 0xFF);
+        }
+    }
+
+    private static List<Path> segmentFiles(Path dir) {
+        try (var files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static AuditRecord record(String eventId) {
+        AuditEvent event = new AuditEvent();
+        event.setEventId(eventId);
+        event.setEventTimeUtc(LocalDateTime.of(2026, 10, 18, 12, 0));
+        event.setAction("VALIDATION_FAIL");
+        event.setCategory("API");
+        event.setOutcome(AuditEvent.AuditOutcome.FAIL);
+        event.setPath("/api/users");
+        event.setIp("10.0.0.1");
+        return AuditRecord.from(event);
+    }
+}
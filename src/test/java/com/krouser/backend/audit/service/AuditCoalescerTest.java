@@ -0,0 +1,168 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.entity.AuditEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Drives the coalescer against a mocked {@link AuditWriter} and looks at the rows it is
+ * handed. Windows are closed through {@code flush()} or by letting a short window expire.
+ */
+class AuditCoalescerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 18, 12, 0);
+    private static final List<String> ACTIONS = List.of("VALIDATION_FAIL", "ACCESS_DENIED", "ACCOUNT_LOCKED");
+    private static final List<String> NEVER = List.of("ACCOUNT_LOCKED", "AUTH_LOGIN_LOCKED");
+
+    private final AuditWriter auditWriter = mock(AuditWriter.class);
+    private final List<AuditRecord> written = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> written.add(invocation.getArgument(0))).when(auditWriter).enqueue(any());
+    }
+
+    @Test
+    void firstEventIsWrittenAtOnce() {
+        AuditCoalescer coalescer = coalescer(60_000, 100);
+        AuditRecord first = record("VALIDATION_FAIL", "10.0.0.1", T0, "{\"n\":0}");
+
+        coalescer.submit(first);
+
+        assertThat(written).containsExactly(first);
+        coalescer.flush();
+        // A window without repeats closes without a summary row
+        assertThat(written).containsExactly(first);
+    }
+
+    @Test
+    void repeatsBecomeOneRowWithCountAndSeenRange() {
+        AuditCoalescer coalescer = coalescer(60_000, 100);
+        AuditRecord first = record("VALIDATION_FAIL", "10.0.0.1", T0, "{\"n\":0}");
+        coalescer.submit(first);
+        for (int i = 1; i <= 3; i++) {
+            coalescer.submit(record("VALIDATION_FAIL", "10.0.0.1", T0.plusSeconds(i), "{\"n\":" + i + "}"));
+        }
+
+        assertThat(written).containsExactly(first);
+        coalescer.flush();
+
+        assertThat(written).hasSize(2);
+        AuditRecord summary = written.get(1);
+        assertThat(summary.getOccurrenceCount()).isEqualTo(3);
+        assertThat(summary.getFirstSeenUtc()).isEqualTo(T0.plusSeconds(1));
+        assertThat(summary.getLastSeenUtc()).isEqualTo(T0.plusSeconds(3));
+        assertThat(summary.getEventTimeUtc()).isEqualTo(T0.plusSeconds(3));
+        assertThat(summary.getDetails()).isEqualTo("{\"n\":3}");
+        assertThat(summary.getEventId()).isNotEqualTo(first.getEventId());
+        assertThat(coalescer.getMetrics()).containsEntry("absorbed", 3L).containsEntry("coalescedRowsWritten", 1L)
+                .containsEntry("openWindows", 0);
+    }
+
+    @Test
+    void expiredWindowIsSummarizedBeforeTheNextOneOpens() throws InterruptedException {
+        AuditCoalescer coalescer = coalescer(20, 100);
+        AuditRecord first = record("VALIDATION_FAIL", "10.0.0.1", T0, null);
+        coalescer.submit(first);
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.1", T0.plusSeconds(1), null));
+        Thread.sleep(50);
+
+        AuditRecord next = record("VALIDATION_FAIL", "10.0.0.1", T0.plusSeconds(2), null);
+        coalescer.submit(next);
+
+        assertThat(written).hasSize(3);
+        assertThat(written.get(0)).isSameAs(first);
+        assertThat(written.get(1).getOccurrenceCount()).isEqualTo(1);
+        assertThat(written.get(2)).isSameAs(next);
+    }
+
+    @Test
+    void differentKeysAreCountedApart() {
+        AuditCoalescer coalescer = coalescer(60_000, 100);
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.1", T0, null));
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.2", T0, null));
+        coalescer.submit(record("ACCESS_DENIED", "10.0.0.1", T0, null));
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.2", T0.plusSeconds(1), null));
+
+        assertThat(written).hasSize(3);
+        coalescer.flush();
+        assertThat(written).hasSize(4);
+        assertThat(written.get(3).getIp()).isEqualTo("10.0.0.2");
+    }
+
+    @Test
+    void neverActionsAreWrittenOneByOne() {
+        // Listed in actions too: never wins
+        AuditCoalescer coalescer = coalescer(60_000, 100);
+        for (int i = 0; i < 3; i++) {
+            coalescer.submit(record("ACCOUNT_LOCKED", "10.0.0.1", T0.plusSeconds(i), null));
+            coalescer.submit(record("AUTH_LOGIN_LOCKED", "10.0.0.1", T0.plusSeconds(i), null));
+        }
+        coalescer.flush();
+
+        assertThat(written).hasSize(6).allSatisfy(record -> assertThat(record.getOccurrenceCount()).isEqualTo(1));
+        assertThat(coalescer.isCoalesced("ACCOUNT_LOCKED")).isFalse();
+        assertThat(coalescer.getMetrics()).containsEntry("absorbed", 0L).containsEntry("openWindows", 0);
+    }
+
+    @Test
+    void newKeysBypassCoalescingPastMaxKeys() {
+        AuditCoalescer coalescer = coalescer(60_000, 1);
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.1", T0, null));
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.1", T0.plusSeconds(1), null));
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.2", T0, null));
+        coalescer.submit(record("VALIDATION_FAIL", "10.0.0.2", T0.plusSeconds(1), null));
+
+        // The open key still coalesces; the new one is written as it comes
+        assertThat(written).extracting(AuditRecord::getIp).containsExactly("10.0.0.1", "10.0.0.2", "10.0.0.2");
+        assertThat(coalescer.getMetrics()).containsEntry("bypassedFull", 2L).containsEntry("absorbed", 1L);
+        coalescer.flush();
+        assertThat(written).hasSize(4);
+        assertThat(written.get(3).getIp()).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void openWindowsAreFlushedWhenTheContextCloses() {
+        AuditCoalescer coalescer = coalescer(60_000, 100);
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(AuditCoalescer.class, () -> coalescer);
+            context.refresh();
+            coalescer.submit(record("VALIDATION_FAIL", "10.0.0.1", T0, null));
+            coalescer.submit(record("VALIDATION_FAIL", "10.0.0.1", T0.plusSeconds(1), null));
+            assertThat(written).hasSize(1);
+        }
+
+        assertThat(written).hasSize(2);
+        assertThat(written.get(1).getOccurrenceCount()).isEqualTo(1);
+        assertThat(written.get(1).getLastSeenUtc()).isEqualTo(T0.plusSeconds(1));
+    }
+
+    private AuditCoalescer coalescer(long windowMs, int maxKeys) {
+        return new AuditCoalescer(auditWriter, true, windowMs, maxKeys, ACTIONS, NEVER);
+    }
+
+    private static AuditRecord record(String action, String ip, LocalDateTime time, String details) {
+        AuditEvent event = new AuditEvent();
+        event.setEventId(UUID.randomUUID().toString());
+        event.setEventTimeUtc(time);
+        event.setAction(action);
+        event.setCategory("API");
+        event.setOutcome(AuditEvent.AuditOutcome.FAIL);
+        event.setActorUsername("ana@example.com");
+        event.setPath("/api/users");
+        event.setIp(ip);
+        event.setDetails(details);
+        return AuditRecord.from(event);
+    }
+}
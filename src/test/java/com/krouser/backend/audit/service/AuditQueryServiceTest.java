@@ -0,0 +1,163 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.dto.AuditEventFilter;
+import com.krouser.backend.audit.dto.AuditEventSummary;
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.audit.journal.AuditJournal;
+import com.krouser.backend.shared.dto.CursorPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Walks the keyset pages on H2 and checks the SQL sent for each filter. H2 has no
+ * FORCE INDEX, so the statements are recorded as sent and run with USE INDEX.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The recording DataSource takes its own connections, so the rows must be committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuditQueryServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<String> statements = new ArrayList<>();
+    private AuditQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM audit_event");
+        AuditWriter writer = new AuditWriter(jdbcTemplate, transactionManager, mock(AuditJournal.class), false, 16,
+                200, 50, AuditWriter.OverflowPolicy.SPILL, 100);
+        // Three events share a timestamp, so pages must break ties on id
+        writer.insertBatch(List.of(
+                record("e1", T0, "u1", "req-1"),
+                record("e2", T0.plusSeconds(1), "u1", "req-1"),
+                record("e3", T0.plusSeconds(1), "u2", "req-2"),
+                record("e4", T0.plusSeconds(1), "u1", "req-2"),
+                record("e5", T0.plusSeconds(2), "u1", "req-3"),
+                record("e6", T0.plusSeconds(3), "u2", "req-3"),
+                record("e7", T0.plusSeconds(4), "u1", "req-4")));
+
+        service = new AuditQueryService(recording(jdbcTemplate));
+        ReflectionTestUtils.setField(service, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(service, "maxPageSize", 200);
+        ReflectionTestUtils.setField(service, "maxExecutionMs", 5000L);
+    }
+
+    @Test
+    void pagesFollowTimeThenIdWithoutGapsOrRepeats() {
+        List<String> all = walk(new AuditEventFilter(), 2);
+
+        assertThat(all).containsExactly("e7", "e6", "e5", "e4", "e3", "e2", "e1");
+        // Four pages of two, the last one without a cursor
+        assertThat(statements).hasSize(4);
+        assertThat(statements).allSatisfy(sql -> assertThat(sql)
+                .startsWith("SELECT /*+ MAX_EXECUTION_TIME(5000) */ ")
+                .contains("FORCE INDEX (idx_audit_event_time)")
+                .endsWith("ORDER BY event_time_utc DESC, id DESC LIMIT ?"));
+        assertThat(statements.get(0)).doesNotContain("event_time_utc < ?");
+        assertThat(statements.get(1)).contains("AND (event_time_utc < ? OR (event_time_utc = ? AND id < ?))");
+    }
+
+    @Test
+    void entityFilterUsesTheIndexEndingInTime() {
+        AuditEventFilter filter = new AuditEventFilter();
+        filter.setEntityType("User");
+        filter.setEntityId("u1");
+
+        assertThat(walk(filter, 2)).containsExactly("e7", "e5", "e4", "e2", "e1");
+        assertThat(statements).allSatisfy(sql -> assertThat(sql).contains("FORCE INDEX (idx_audit_entity_time)"));
+    }
+
+    @Test
+    void indexesThatCannotServeTheOrderAreNotForced() {
+        AuditEventFilter byType = new AuditEventFilter();
+        byType.setEntityType("User");
+        assertThat(AuditQueryService.indexFor(byType)).isEqualTo("idx_audit_event_time");
+
+        AuditEventFilter byRequest = new AuditEventFilter();
+        byRequest.setRequestId("req-2");
+        byRequest.setEntityType("User");
+        byRequest.setEntityId("u1");
+        assertThat(walk(byRequest, 50)).containsExactly("e4");
+        assertThat(statements).singleElement().satisfies(sql -> assertThat(sql).doesNotContain("INDEX"));
+    }
+
+    private List<String> walk(AuditEventFilter filter, int size) {
+        List<String> eventIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<AuditEventSummary> page = service.findEvents(filter, cursor, size);
+            page.getItems().forEach(event -> eventIds.add(event.getEventId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return eventIds;
+    }
+
+    private JdbcTemplate recording(JdbcTemplate target) {
+        return new JdbcTemplate(new DelegatingDataSource(target.getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                            if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                                statements.add(sql);
+                                args[0] = sql.replace("FORCE INDEX", "USE INDEX");
+                            }
+                            return invoke(method, connection, args);
+                        });
+            }
+        });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static AuditRecord record(String eventId, LocalDateTime time, String entityId, String requestId) {
+        AuditEvent event = new AuditEvent();
+        event.setEventId(eventId);
+        event.setEventTimeUtc(time);
+        event.setAction("USER_UPDATED");
+        event.setCategory("USER");
+        event.setOutcome(AuditEvent.AuditOutcome.SUCCESS);
+        event.setEntityType("User");
+        event.setEntityIdPublic(entityId);
+        event.setRequestId(requestId);
+        return AuditRecord.from(event);
+    }
+}
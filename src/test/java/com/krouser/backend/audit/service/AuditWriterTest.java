@@ -0,0 +1,71 @@
+package com.krouser.backend.audit.service;
+
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.audit.journal.AuditJournal;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The batch insert that journal replays go through: duplicates of an event_id are skipped,
+ * anything else wrong with a row still fails the insert.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AuditWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void replayedEventIdIsInsertedOnce() {
+        AuditWriter writer = writer();
+        AuditRecord first = record("e1", "/api/users");
+
+        writer.insertBatch(List.of(first, record("e2", "/api/users")));
+        writer.insertBatch(List.of(first, record("e3", "/api/roles")));
+
+        assertThat(jdbcTemplate.queryForList("SELECT event_id FROM audit_event ORDER BY event_id", String.class))
+                .containsExactly("e1", "e2", "e3");
+    }
+
+    @Test
+    void invalidDataStillFailsTheInsert() {
+        AuditWriter writer = writer();
+
+        assertThatThrownBy(() -> writer.insertBatch(List.of(record("e4", "/" + "x".repeat(1000)))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private AuditWriter writer() {
+        return new AuditWriter(jdbcTemplate, transactionManager, mock(AuditJournal.class), false, 16, 200, 50,
+                AuditWriter.OverflowPolicy.SPILL, 100);
+    }
+
+    private static AuditRecord record(String eventId, String path) {
+        AuditEvent event = new AuditEvent();
+        event.setEventId(eventId);
+        event.setEventTimeUtc(LocalDateTime.of(2026, 10, 18, 12, 0));
+        event.setAction("VALIDATION_FAIL");
+        event.setCategory("API");
+        event.setOutcome(AuditEvent.AuditOutcome.FAIL);
+        event.setPath(path);
+        return AuditRecord.from(event);
+    }
+}
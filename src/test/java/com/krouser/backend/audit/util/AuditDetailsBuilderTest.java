@@ -0,0 +1,88 @@
+package com.krouser.backend.audit.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every output is parsed back with Jackson, so an escaping or truncation slip shows up as
+ * invalid JSON or a changed value.
+ */
+class AuditDetailsBuilderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesStringsNumbersAndBooleans() throws Exception {
+        String json = new AuditDetailsBuilder().add("reason", "Bad credentials").add("attempts", 3)
+                .add("gzip", true).add("rows", (Object) 12_480L).add("skipped", (String) null).build();
+
+        assertThat(json).isEqualTo("{\"reason\":\"Bad credentials\",\"attempts\":3,\"gzip\":true,\"rows\":12480}");
+        assertThat(parse(json).get("attempts").isIntegralNumber()).isTrue();
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() throws Exception {
+        String value = "say \"hi\" \\ path\nline\r\ttab\u0000nul\u001fus\u007fdel";
+
+        String json = new AuditDetailsBuilder().add("k\"ey", value).build();
+
+        JsonNode node = parse(json);
+        assertThat(node.get("k\"ey").asText()).isEqualTo(value);
+        assertThat(json).contains("\\u0000", "\\u001f").doesNotContain("\u0000");
+    }
+
+    @Test
+    void keepsSurrogatePairsAndReplacesLoneSurrogates() throws Exception {
+        String json = new AuditDetailsBuilder().add("emoji", "ok \uD83D\uDE00").add("lone", "a\uD800b\uDC00").build();
+
+        JsonNode node = parse(json);
+        assertThat(node.get("emoji").asText()).isEqualTo("ok \uD83D\uDE00");
+        assertThat(node.get("lone").asText()).isEqualTo("a\uFFFDb\uFFFD");
+    }
+
+    @Test
+    void cutsAnOversizedValueAndMarksTheResultTruncated() throws Exception {
+        String json = new AuditDetailsBuilder().add("action", "IMPORT").add("error", "x".repeat(5000))
+                .add("after", "skipped").build();
+
+        assertThat(json.getBytes(StandardCharsets.UTF_8)).hasSizeLessThanOrEqualTo(AuditDetailsBuilder.MAX_BYTES);
+        JsonNode node = parse(json);
+        assertThat(node.get("action").asText()).isEqualTo("IMPORT");
+        assertThat(node.get("error").asText()).startsWith("xxx").hasSizeGreaterThan(1900);
+        assertThat(node.has("after")).isFalse();
+        assertThat(node.get("_truncated").asBoolean()).isTrue();
+    }
+
+    @Test
+    void cutsMultiByteValuesOnACharacterBoundaryWithinTheByteLimit() throws Exception {
+        String value = "\u00f1\u20ac\uD83D\uDE00\"\u0001".repeat(400);
+
+        String json = new AuditDetailsBuilder().add("value", value).build();
+
+        assertThat(json.getBytes(StandardCharsets.UTF_8)).hasSizeLessThanOrEqualTo(AuditDetailsBuilder.MAX_BYTES);
+        JsonNode node = parse(json);
+        assertThat(value).startsWith(node.get("value").asText());
+        assertThat(node.get("_truncated").asBoolean()).isTrue();
+    }
+
+    @Test
+    void returnsNullWithoutFieldsAndDoesNotLeakBetweenBuilders() throws Exception {
+        assertThat(new AuditDetailsBuilder().add("ignored", (String) null).build()).isNull();
+
+        AuditDetailsBuilder outer = new AuditDetailsBuilder().add("outer", 1);
+        String inner = new AuditDetailsBuilder().add("inner", 2).build();
+        String json = outer.add("nested", inner).build();
+
+        assertThat(parse(json).get("nested").asText()).isEqualTo("{\"inner\":2}");
+        assertThat(new AuditDetailsBuilder().add("next", 3).build()).isEqualTo("{\"next\":3}");
+    }
+
+    private JsonNode parse(String json) throws Exception {
+        return objectMapper.readTree(json);
+    }
+}
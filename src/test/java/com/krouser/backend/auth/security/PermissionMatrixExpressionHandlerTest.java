@@ -0,0 +1,135 @@
+package com.krouser.backend.auth.security;
+
+import com.krouser.backend.rbac.dto.RolePrivilegeView;
+import com.krouser.backend.rbac.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.krouser.backend.auth.security.PermissionMatrixTest.row;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Evaluates the same {@code @PreAuthorize} expressions with {@link PermissionMatrixExpressionHandler}
+ * and with Spring's {@link DefaultMethodSecurityExpressionHandler}: as long as the principal's
+ * authorities match the RBAC tables, every decision must be the same.
+ */
+class PermissionMatrixExpressionHandlerTest {
+
+    private static final List<String> EXPRESSIONS = List.of(
+            "hasRole('ADMIN')", "hasRole('ROLE_ADMIN')", "hasRole('USER')", "hasRole('AUDITOR')",
+            "hasRole('GHOST')", "hasRole('admin')", "hasAnyRole('GHOST', 'USER')", "hasAnyRole('GHOST', 'ROLE_ADMIN')",
+            "hasAnyRole('GHOST', 'AUDITOR')",
+            "hasAuthority('USERS_READ_ALL')", "hasAuthority('USERS_UPDATE')", "hasAuthority('AUDIT_READ')",
+            "hasAuthority('NOT_A_PRIVILEGE')", "hasAuthority('ROLE_ADMIN')", "hasAuthority('ADMIN')",
+            "hasAnyAuthority('NOT_A_PRIVILEGE', 'USERS_READ_SELF')", "hasAnyAuthority('NOT_A_PRIVILEGE', 'AUDIT_READ')",
+            "isAuthenticated()", "isAnonymous()", "isFullyAuthenticated()", "permitAll()", "denyAll()",
+            "hasAuthority('USERS_READ_ALL') or hasRole('AUDITOR')",
+            "hasRole('ADMIN') and hasAuthority('USERS_READ_SELF')");
+
+    private final List<RolePrivilegeView> rows = new ArrayList<>();
+    private final DefaultMethodSecurityExpressionHandler defaultHandler = new DefaultMethodSecurityExpressionHandler();
+    private PermissionMatrixExpressionHandler matrixHandler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        rows.add(row("ADMIN", "USERS_READ_ALL"));
+        rows.add(row("ADMIN", "USERS_UPDATE"));
+        rows.add(row("USER", "USERS_READ_SELF"));
+        rows.add(row("AUDITOR", "AUDIT_READ"));
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAllWithPrivilegeNames()).thenAnswer(invocation -> List.copyOf(rows));
+        PermissionMatrix matrix = new PermissionMatrix(roleRepository);
+        matrix.rebuild();
+
+        ObjectProvider<PermissionMatrix> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(matrix);
+        matrixHandler = new PermissionMatrixExpressionHandler(provider);
+    }
+
+    @Test
+    void rbacPrincipalGetsTheSameDecisionsAsTheDefaultRoot() {
+        assertSameDecisions(rbacAuthentication("ADMIN", "USER"));
+        assertSameDecisions(rbacAuthentication("USER"));
+        assertSameDecisions(rbacAuthentication());
+        // Unknown role names carry no privileges in either model
+        assertSameDecisions(rbacAuthentication("GHOST"));
+    }
+
+    @Test
+    void otherPrincipalsAreDelegatedToTheDefaultRoot() {
+        assertSameDecisions(new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        assertSameDecisions(UsernamePasswordAuthenticationToken.authenticated("service", null,
+                AuthorityUtils.createAuthorityList("ROLE_ADMIN", "AUDIT_READ")));
+    }
+
+    @Test
+    void rbacPrincipalIsAnsweredFromTheMatrix() {
+        // Authorities on the token are ignored for an RBAC principal: the role names decide
+        RbacUserDetails user = new RbacUserDetails("maria", "{noop}secret", true, true,
+                AuthorityUtils.createAuthorityList("AUDIT_READ"), List.of("USER"));
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(user, null,
+                user.getAuthorities());
+
+        assertThat(evaluate(matrixHandler, authentication, "hasAuthority('USERS_READ_SELF')")).isTrue();
+        assertThat(evaluate(matrixHandler, authentication, "hasAuthority('AUDIT_READ')")).isFalse();
+    }
+
+    private void assertSameDecisions(Authentication authentication) {
+        for (String expression : EXPRESSIONS) {
+            assertThat(evaluate(matrixHandler, authentication, expression))
+                    .as("%s for %s", expression, authentication.getName())
+                    .isEqualTo(evaluate(defaultHandler, authentication, expression));
+        }
+    }
+
+    private static boolean evaluate(DefaultMethodSecurityExpressionHandler handler, Authentication authentication,
+            String expression) {
+        SimpleMethodInvocation invocation;
+        try {
+            invocation = new SimpleMethodInvocation(new Object(), Object.class.getMethod("toString"));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        EvaluationContext context = handler.createEvaluationContext(() -> authentication, invocation);
+        Expression parsed = handler.getExpressionParser().parseExpression(expression);
+        return ExpressionUtils.evaluateAsBoolean(parsed, context);
+    }
+
+    // Authorities built exactly as CustomUserDetailsService does from the same tables
+    private RbacUserDetails rbacUser(String... roleNames) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String roleName : roleNames) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + roleName));
+            for (RolePrivilegeView row : rows) {
+                if (row.getName().equals(roleName) && row.getPrivilegeName() != null) {
+                    authorities.add(new SimpleGrantedAuthority(row.getPrivilegeName()));
+                }
+            }
+        }
+        return new RbacUserDetails("maria", "{noop}secret", true, true, authorities, List.of(roleNames));
+    }
+
+    private Authentication rbacAuthentication(String... roleNames) {
+        RbacUserDetails user = rbacUser(roleNames);
+        return UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+    }
+}
@@ -0,0 +1,130 @@
+package com.krouser.backend.auth.security;
+
+import com.krouser.backend.rbac.dto.RolePrivilegeView;
+import com.krouser.backend.rbac.repository.RoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bit model of {@link PermissionMatrix} against the rows of {@code findAllWithPrivilegeNames}.
+ */
+class PermissionMatrixTest {
+
+    private final List<RolePrivilegeView> rows = new ArrayList<>();
+    private PermissionMatrix matrix;
+
+    @BeforeEach
+    void setUp() {
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAllWithPrivilegeNames()).thenAnswer(invocation -> List.copyOf(rows));
+        matrix = new PermissionMatrix(roleRepository);
+        rows.add(row("ADMIN", "USERS_READ_ALL"));
+        rows.add(row("ADMIN", "USERS_UPDATE"));
+        rows.add(row("USER", "USERS_READ_SELF"));
+        rows.add(row("EMPTY", null));
+        matrix.rebuild();
+    }
+
+    @Test
+    void grantsRoleAuthoritiesAndPrivilegesOfEveryRole() {
+        RbacUserDetails user = user("ADMIN", "USER");
+
+        assertThat(matrix.hasAuthority(user, "ROLE_ADMIN")).isTrue();
+        assertThat(matrix.hasAuthority(user, "ROLE_USER")).isTrue();
+        assertThat(matrix.hasAuthority(user, "USERS_UPDATE")).isTrue();
+        assertThat(matrix.hasAuthority(user, "USERS_READ_SELF")).isTrue();
+        assertThat(matrix.hasAuthority(user, "ROLE_EMPTY")).isFalse();
+    }
+
+    @Test
+    void neverGrantsUnknownNamesOrPrivilegesOfOtherRoles() {
+        RbacUserDetails user = user("USER");
+
+        assertThat(matrix.hasAuthority(user, "USERS_UPDATE")).isFalse();
+        assertThat(matrix.hasAuthority(user, "ROLE_ADMIN")).isFalse();
+        assertThat(matrix.hasAuthority(user, "NOT_A_PRIVILEGE")).isFalse();
+        assertThat(matrix.hasAuthority(user, "ADMIN")).isFalse();
+        assertThat(matrix.hasAuthority(user("EMPTY"), "ROLE_EMPTY")).isTrue();
+    }
+
+    @Test
+    void roleMissingFromTheModelIsAnsweredFromTheLoadedAuthorities() {
+        RbacUserDetails user = new RbacUserDetails("maria", "{noop}secret", true, true,
+                AuthorityUtils.createAuthorityList("ROLE_USER", "USERS_READ_SELF", "ROLE_NEW", "REPORTS_READ"),
+                List.of("USER", "NEW"));
+
+        assertThat(matrix.hasAuthority(user, "ROLE_NEW")).isTrue();
+        assertThat(matrix.hasAuthority(user, "REPORTS_READ")).isTrue();
+        assertThat(matrix.hasAuthority(user, "USERS_UPDATE")).isFalse();
+        assertThat(matrix.getMetrics()).containsEntry("unknownRoleFallbacks", 3L);
+
+        rows.add(row("NEW", "REPORTS_READ"));
+        matrix.rebuild();
+        assertThat(matrix.hasAuthority(user, "REPORTS_READ")).isTrue();
+        assertThat(matrix.getMetrics()).containsEntry("unknownRoleFallbacks", 3L);
+    }
+
+    @Test
+    void rebuildInvalidatesPermissionsMemoizedOnThePrincipal() {
+        RbacUserDetails user = user("USER");
+        RbacUserDetails copy = user.copy();
+        assertThat(matrix.hasAuthority(user, "USERS_EXPORT")).isFalse();
+
+        rows.add(row("USER", "USERS_EXPORT"));
+        matrix.rebuild();
+
+        assertThat(matrix.hasAuthority(copy, "USERS_EXPORT")).isTrue();
+        assertThat(matrix.getMetrics()).containsEntry("version", 2L);
+    }
+
+    @Test
+    void spansSeveralWordsOfBits() {
+        for (int i = 0; i < 150; i++) {
+            rows.add(row("WIDE", "PRIVILEGE_" + i));
+        }
+        matrix.rebuild();
+
+        RbacUserDetails user = user("WIDE");
+        for (int i = 0; i < 150; i++) {
+            assertThat(matrix.hasAuthority(user, "PRIVILEGE_" + i)).isTrue();
+        }
+        assertThat(matrix.hasAuthority(user, "USERS_UPDATE")).isFalse();
+    }
+
+    static RbacUserDetails user(String... roleNames) {
+        return new RbacUserDetails("maria", "{noop}secret", true, true, AuthorityUtils.NO_AUTHORITIES,
+                List.of(roleNames));
+    }
+
+    static RolePrivilegeView row(String role, String privilege) {
+        return new RolePrivilegeView() {
+            @Override
+            public String getName() {
+                return role;
+            }
+
+            @Override
+            public String getDescription() {
+                return null;
+            }
+
+            @Override
+            public boolean isActive() {
+                return true;
+            }
+
+            @Override
+            public String getPrivilegeName() {
+                return privilege;
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.krouser.backend.auth.service;
+
+import com.krouser.backend.auth.entity.RevokedToken;
+import com.krouser.backend.auth.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Polls against a fake table where ids become visible at commit, not in allocation order.
+ */
+class TokenRevocationServiceTest {
+
+    // Rows visible to the poll, i.e. committed
+    private final List<RevokedToken> committed = new ArrayList<>();
+    private RevokedTokenRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevokedTokenRepository.class);
+        when(repository.findTop500ByIdGreaterThanOrderByIdAsc(anyLong())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            return committed.stream().filter(token -> token.getId() > after)
+                    .sorted((a, b) -> Long.compare(a.getId(), b.getId())).limit(500).toList();
+        });
+    }
+
+    @Test
+    void rowCommittedAfterAHigherIdIsStillPickedUp() {
+        TokenRevocationService service = new TokenRevocationService(repository, 1000, 0.01, 60_000, 100);
+        commit(1, "jti-1");
+        service.loadExisting();
+        commit(3, "jti-3");
+        service.pollRevocations();
+        assertThat(service.isRevoked("jti-3")).isTrue();
+
+        // Id 2 was assigned before 3 but its transaction commits only now
+        commit(2, "jti-2");
+        service.pollRevocations();
+
+        assertThat(service.isRevoked("jti-2")).isTrue();
+        assertThat(service.getMetrics()).containsEntry("openGaps", 0).containsEntry("lateRows", 1L);
+    }
+
+    @Test
+    void gapOfARolledBackInsertTimesOut() {
+        TokenRevocationService service = new TokenRevocationService(repository, 1000, 0.01, 0, 100);
+        commit(1, "jti-1");
+        service.loadExisting();
+        commit(3, "jti-3");
+        service.pollRevocations();
+        assertThat(service.getMetrics()).containsEntry("openGaps", 1);
+
+        sleepPastTimeout();
+        service.pollRevocations();
+
+        assertThat(service.getMetrics()).containsEntry("openGaps", 0).containsEntry("expiredGaps", 1L);
+        assertThat(service.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    void startupLoadSeedsTheMarkWithoutOpeningGaps() {
+        TokenRevocationService service = new TokenRevocationService(repository, 1000, 0.01, 60_000, 10_000);
+        // Expired rows below 5000 were purged; 5002 was rolled back
+        commit(5000, "jti-5000");
+        commit(5001, "jti-5001");
+        commit(5003, "jti-5003");
+        service.loadExisting();
+
+        assertThat(service.getMetrics()).containsEntry("openGaps", 0).containsEntry("highWaterMark", 5003L);
+        assertThat(service.isRevoked("jti-5003")).isTrue();
+
+        clearInvocations(repository);
+        service.pollRevocations();
+        verify(repository).findTop500ByIdGreaterThanOrderByIdAsc(5003L);
+    }
+
+    private void commit(long id, String jti) {
+        RevokedToken token = new RevokedToken(jti, "user", Instant.now().plus(1, ChronoUnit.HOURS));
+        token.setId(id);
+        committed.add(token);
+    }
+
+    private static void sleepPastTimeout() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.krouser.backend.benchmark;
+
+import com.krouser.backend.audit.util.AuditDetailsBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON {@link AuditDetailsBuilder} against the key=value builder it replaced, for a
+ * typical failed-login payload and for an import summary with several numeric fields.
+ * Add {@code -prof gc} to the JMH arguments to compare allocation per operation.
+ * <p>
+ * Run with {@code mvn -Pbench test-compile exec:exec -Dbench.include=AuditDetailsBuilderBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditDetailsBuilderBenchmark {
+
+    private String reason = "Bad credentials";
+    private String username = "maria.gonzalez";
+    private int attempts = 3;
+    private long rows = 12_480;
+    private long created = 12_003;
+    private long existing = 421;
+    private long invalid = 56;
+    private boolean gzip = true;
+
+    @Benchmark
+    public String loginFailureJson() {
+        return new AuditDetailsBuilder()
+                .add("reason", reason)
+                .add("username", username)
+                .add("attempts", attempts)
+                .build();
+    }
+
+    @Benchmark
+    public String loginFailureLegacy() {
+        return new LegacyAuditDetailsBuilder()
+                .add("reason", reason)
+                .add("username", username)
+                .add("attempts", String.valueOf(attempts))
+                .build();
+    }
+
+    @Benchmark
+    public String importSummaryJson() {
+        return new AuditDetailsBuilder()
+                .add("rows", rows)
+                .add("created", created)
+                .add("existing", existing)
+                .add("invalid", invalid)
+                .add("gzip", gzip)
+                .add("format", "csv")
+                .build();
+    }
+
+    @Benchmark
+    public String importSummaryLegacy() {
+        return new LegacyAuditDetailsBuilder()
+                .add("rows", String.valueOf(rows))
+                .add("created", String.valueOf(created))
+                .add("existing", String.valueOf(existing))
+                .add("invalid", String.valueOf(invalid))
+                .add("gzip", String.valueOf(gzip))
+                .add("format", "csv")
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.krouser.backend.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The key=value builder AuditDetailsBuilder replaced, kept as the baseline for
+ * {@link AuditDetailsBuilderBenchmark}.
+ */
+class LegacyAuditDetailsBuilder {
+
+    private final Map<String, String> detailsMap = new LinkedHashMap<>();
+
+    LegacyAuditDetailsBuilder add(String key, Object value) {
+        if (key != null && value != null) {
+            detailsMap.put(key, String.valueOf(value));
+        }
+        return this;
+    }
+
+    public String build() {
+        if (detailsMap.isEmpty()) {
+            return null;
+        }
+        String combined = detailsMap.entrySet().stream()
+                .map(e -> escape(e.getKey()) + "=" + escape(e.getValue()))
+                .collect(Collectors.joining(";"));
+        return truncate(combined, 2000);
+    }
+
+    private String escape(String input) {
+        if (input == null)
+            return "";
+        return input.replace(";", "{semi}").replace("=", "{eq}");
+    }
+
+    private String truncate(String input, int maxLength) {
+        if (input == null)
+            return null;
+        if (input.length() <= maxLength)
+            return input;
+        return input.substring(0, maxLength);
+    }
+}
@@ -0,0 +1,64 @@
+package com.krouser.backend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash and verify latency of the candidate encoders and costs, used to pick
+ * {@code app.security.password.*} for a given machine.
+ * <p>
+ * Run with {@code mvn -Pbench test-compile exec:exec -Dbench.include=PasswordEncoderBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    private static final String PASSWORD = "Str0ng!Passw0rd";
+
+    // bcrypt:<strength> or argon2:<iterations>:<memoryKiB>
+    @Param({ "bcrypt:10", "bcrypt:11", "bcrypt:12", "bcrypt:13",
+            "argon2:2:19456", "argon2:3:19456", "argon2:1:47104" })
+    private String encoderSpec;
+
+    private PasswordEncoder encoder;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        String[] parts = encoderSpec.split(":");
+        if ("bcrypt".equals(parts[0])) {
+            encoder = new BCryptPasswordEncoder(Integer.parseInt(parts[1]));
+        } else {
+            encoder = new Argon2PasswordEncoder(16, 32, 1, Integer.parseInt(parts[2]), Integer.parseInt(parts[1]));
+        }
+        encoded = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, encoded);
+    }
+}
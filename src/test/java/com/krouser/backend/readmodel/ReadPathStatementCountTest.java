@@ -0,0 +1,172 @@
+package com.krouser.backend.readmodel;
+
+import com.krouser.backend.audit.service.AuditService;
+import com.krouser.backend.auth.security.AuthorityChangeService;
+import com.krouser.backend.auth.security.PasswordHashingExecutor;
+import com.krouser.backend.rbac.dto.RoleDto;
+import com.krouser.backend.rbac.entity.Privilege;
+import com.krouser.backend.rbac.entity.Role;
+import com.krouser.backend.rbac.repository.PrivilegeRepository;
+import com.krouser.backend.rbac.repository.RoleRepository;
+import com.krouser.backend.rbac.service.RoleService;
+import com.krouser.backend.shared.exception.ResourceNotFoundException;
+import com.krouser.backend.shared.exception.UserNotFoundException;
+import com.krouser.backend.users.dto.UserResponse;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.entity.UserStatus;
+import com.krouser.backend.users.repository.UserRepository;
+import com.krouser.backend.users.service.TagAllocator;
+import com.krouser.backend.users.service.UserSearchIndex;
+import com.krouser.backend.users.service.UserService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Guards the read paths behind GET /api/users/me, GET /api/users/{idPublic}, GET /api/roles
+ * and GET /api/roles/{name}: each must cost exactly one SQL statement whatever the number of
+ * roles and privileges, so an N+1 regression fails the build.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.krouser.backend.readmodel.ReadPathStatementCountTest$StatementCounter"
+})
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ReadPathStatementCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private UserService userService;
+    private RoleService roleService;
+    private UUID adminId;
+
+    @BeforeEach
+    void setUp() {
+        Privilege readSelf = entityManager.persist(new Privilege("USERS_READ_SELF"));
+        Privilege readAll = entityManager.persist(new Privilege("USERS_READ_ALL"));
+        Privilege update = entityManager.persist(new Privilege("USERS_UPDATE"));
+
+        Role admin = new Role("ADMIN");
+        admin.setPrivileges(List.of(readSelf, readAll, update));
+        entityManager.persist(admin);
+        Role user = new Role("USER");
+        user.setPrivileges(List.of(readSelf));
+        entityManager.persist(user);
+        entityManager.persist(new Role("AUDITOR"));
+
+        adminId = entityManager.persist(newUser("admin@example.com", "Admin", List.of(admin, user))).getIdPublic();
+        entityManager.persist(newUser("nobody@example.com", "Nobody", List.of()));
+        entityManager.flush();
+        entityManager.clear();
+
+        userService = new UserService(userRepository, roleRepository, mock(PasswordHashingExecutor.class),
+                mock(AuditService.class), mock(AuthorityChangeService.class), mock(UserSearchIndex.class),
+                mock(TagAllocator.class));
+        roleService = new RoleService(roleRepository, mock(PrivilegeRepository.class), mock(AuditService.class),
+                mock(AuthorityChangeService.class));
+        StatementCounter.reset();
+    }
+
+    @Test
+    void getUserByIdPublicUsesOneStatement() {
+        UserResponse response = userService.getUserByIdPublic(adminId);
+
+        assertThat(response.getUsername()).isEqualTo("admin@example.com");
+        assertThat(response.getRoles()).containsExactly("ADMIN", "USER");
+        assertThat(StatementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void getUserByUsernameWithoutRolesUsesOneStatement() {
+        UserResponse response = userService.getUserByUsername("nobody@example.com");
+
+        assertThat(response.getAlias()).isEqualTo("Nobody");
+        assertThat(response.getRoles()).isEmpty();
+        assertThat(StatementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void missingUserUsesOneStatement() {
+        assertThatThrownBy(() -> userService.getUserByIdPublic(UUID.randomUUID()))
+                .isInstanceOf(UserNotFoundException.class);
+        assertThat(StatementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllRolesUsesOneStatement() {
+        List<RoleDto> roles = roleService.getAllRoles();
+
+        assertThat(roles).extracting(RoleDto::getName).containsExactly("ADMIN", "AUDITOR", "USER");
+        assertThat(roles.get(0).getPrivileges())
+                .containsExactlyInAnyOrder("USERS_READ_SELF", "USERS_READ_ALL", "USERS_UPDATE");
+        assertThat(roles.get(1).getPrivileges()).isEmpty();
+        assertThat(StatementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void getRoleUsesOneStatement() {
+        RoleDto role = roleService.getRole("USER");
+
+        assertThat(role.getPrivileges()).containsExactly("USERS_READ_SELF");
+        assertThat(StatementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void missingRoleUsesOneStatement() {
+        assertThatThrownBy(() -> roleService.getRole("GHOST"))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(StatementCounter.count()).isEqualTo(1);
+    }
+
+    private static User newUser(String username, String alias, List<Role> roles) {
+        User user = new User(username, "{noop}secret", roles);
+        user.setIdPublic(UUID.randomUUID());
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAlias(alias);
+        user.setTag(alias + "#000000");
+        user.setNombre(alias);
+        user.setApellidoPaterno("Perez");
+        user.setApellidoMaterno("Lopez");
+        return user;
+    }
+
+    public static class StatementCounter implements StatementInspector {
+
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        static void reset() {
+            COUNT.set(0);
+        }
+
+        static int count() {
+            return COUNT.get();
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.incrementAndGet();
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.krouser.backend.readmodel;
+
+import com.krouser.backend.rbac.entity.Privilege;
+import com.krouser.backend.rbac.entity.Role;
+import com.krouser.backend.rbac.repository.PrivilegeRepository;
+import com.krouser.backend.rbac.repository.RoleRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots JPA with the second-level cache settings of application.properties (JCache over
+ * ehcache.xml) and checks that the RBAC regions really serve reads, so a cache URI or
+ * region the provider cannot resolve fails here instead of at deployment.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Committed writes only: a row inserted by a still-open transaction stays locked in a READ_WRITE region
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheBootTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PrivilegeRepository privilegeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void rbacRegionsAreConfiguredFromEhcacheXml() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        SessionFactoryOptions options = sessionFactory.getSessionFactoryOptions();
+
+        assertThat(options.isSecondLevelCacheEnabled()).isTrue();
+        assertThat(options.isQueryCacheEnabled()).isTrue();
+        assertThat(sessionFactory.getStatistics().getSecondLevelCacheRegionNames())
+                .contains("rbac.role", "rbac.privilege", "rbac.role.privileges");
+    }
+
+    @Test
+    void roleIsServedFromTheSecondLevelCache() {
+        Privilege privilege = privilegeRepository.save(new Privilege("CACHE_CHECK"));
+        Role role = new Role("CACHED");
+        role.setPrivileges(List.of(privilege));
+        Long id = roleRepository.save(role).getId();
+        entityManagerFactory.getCache().evictAll();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        findRole(id);
+        Role cached = findRole(id);
+
+        assertThat(cached.getName()).isEqualTo("CACHED");
+        assertThat(statistics.getDomainDataRegionStatistics("rbac.role").getHitCount()).isEqualTo(1);
+        assertThat(entityManagerFactory.getCache().contains(Role.class, id)).isTrue();
+
+        roleRepository.findByName("CACHED");
+        roleRepository.findByName("CACHED");
+        assertThat(statistics.getQueryRegionStatistics("rbac.queries").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void writePathsReadPastACollectionChangedOnAnotherNode() {
+        Privilege kept = privilegeRepository.save(new Privilege("STALE_KEPT"));
+        Privilege added = privilegeRepository.save(new Privilege("STALE_ADDED"));
+        Role role = new Role("STALE");
+        role.setPrivileges(List.of(kept));
+        Long id = roleRepository.save(role).getId();
+        findRole(id);
+
+        // Another node adds a privilege; this node's cache still holds the old collection
+        jdbcTemplate.update("INSERT INTO roles_privileges (role_id, privilege_id) VALUES (?, ?)", id, added.getId());
+        assertThat(findRole(id).getPrivileges()).extracting(Privilege::getName).containsExactly("STALE_KEPT");
+
+        assertThat(roleRepository.findUncachedByName("STALE").orElseThrow().getPrivileges())
+                .extracting(Privilege::getName).containsExactlyInAnyOrder("STALE_KEPT", "STALE_ADDED");
+        assertThat(roleRepository.findUncachedByNameIn(List.of("STALE")).get(0).getPrivileges()).hasSize(2);
+    }
+
+    // Each read in its own persistence context, so the first-level cache cannot answer it
+    private Role findRole(Long id) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(Role.class, id);
+        } finally {
+            entityManager.close();
+        }
+    }
+}
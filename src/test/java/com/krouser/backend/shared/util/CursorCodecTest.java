@@ -0,0 +1,52 @@
+package com.krouser.backend.shared.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cursors are unsigned, so decoding must reject every value the encoders cannot produce.
+ */
+class CursorCodecTest {
+
+    @Test
+    void roundTrips() {
+        assertThat(CursorCodec.decode(CursorCodec.encode(1234L))).isEqualTo(1234L);
+        assertThat(CursorCodec.decodePair(CursorCodec.encode(1714644930123456L, 981L)))
+                .containsExactly(1714644930123456L, 981L);
+        assertThat(CursorCodec.decode(null)).isZero();
+        assertThat(CursorCodec.decodePair(" ")).isNull();
+    }
+
+    @Test
+    void rejectsValuesTheEncoderNeverProduces() {
+        for (String raw : new String[] { "v1:-5", "v1:0", "v1:+5", "v1: 5", "v1:", "v1:99999999999999999999",
+                "v2:5", "5" }) {
+            assertThatThrownBy(() -> CursorCodec.decode(wrap(raw)))
+                    .as(raw)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Cursor inválido");
+        }
+        assertThatThrownBy(() -> CursorCodec.decode("not base64!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor inválido");
+    }
+
+    @Test
+    void rejectsMalformedPairs() {
+        for (String raw : new String[] { "v1:5", "v1:5:0", "v1:-1:5", "v1:5:-1", "v1:5:", "v1::5", "v1:5:6:7" }) {
+            assertThatThrownBy(() -> CursorCodec.decodePair(wrap(raw)))
+                    .as(raw)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Cursor inválido");
+        }
+    }
+
+    private static String wrap(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,102 @@
+package com.krouser.backend.users.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krouser.backend.audit.filter.AuditRequestFilter;
+import com.krouser.backend.audit.service.AuditCoalescer;
+import com.krouser.backend.audit.service.AuditCounters;
+import com.krouser.backend.audit.service.AuditRecord;
+import com.krouser.backend.audit.service.AuditService;
+import com.krouser.backend.users.service.UserExportService;
+import com.krouser.backend.users.service.UserImportService;
+import com.krouser.backend.users.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The export streams on an MVC async thread, where the request is no longer bound: its
+ * timeout and its audit context must both be settled before the handoff.
+ */
+class UserControllerExportTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AuditCoalescer auditCoalescer = mock(AuditCoalescer.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // One row, so the body proves the export ran and wrote to the response
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString(2)).thenReturn("ana@example.com");
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        AuditService auditService = new AuditService(auditCoalescer, mock(AuditCounters.class));
+        UserExportService exportService = new UserExportService(jdbcTemplate, new ObjectMapper(), auditService);
+        UserController controller = new UserController(mock(UserService.class), exportService,
+                mock(UserImportService.class));
+        ReflectionTestUtils.setField(controller, "exportTimeoutMs", 1_800_000L);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void exportRunsAsyncWithItsOwnTimeoutAndAuditsTheRequestContext() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/users/export")
+                        .principal(new UsernamePasswordAuthenticationToken("admin", null))
+                        .requestAttr(AuditRequestFilter.REQUEST_ID_KEY, "req-42")
+                        .with(request -> {
+                            request.setRemoteAddr("10.1.2.3");
+                            return request;
+                        }))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(1_800_000L);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, endsWith(".ndjson\"")))
+                .andExpect(content().string(containsString("\"username\":\"ana@example.com\"")));
+
+        ArgumentCaptor<AuditRecord> captor = ArgumentCaptor.forClass(AuditRecord.class);
+        verify(auditCoalescer, timeout(5000)).submit(captor.capture());
+        AuditRecord record = captor.getValue();
+        assertThat(record.getAction()).isEqualTo("USERS_EXPORT");
+        assertThat(record.getActorUsername()).isEqualTo("admin");
+        assertThat(record.getRequestId()).isEqualTo("req-42");
+        assertThat(record.getIp()).isEqualTo("10.1.2.3");
+        assertThat(record.getHttpMethod()).isEqualTo("GET");
+        assertThat(record.getPath()).isEqualTo("/api/users/export");
+        assertThat(record.getDetails()).isEqualTo("{\"format\":\"NDJSON\",\"gzip\":false,\"rows\":1}");
+    }
+}
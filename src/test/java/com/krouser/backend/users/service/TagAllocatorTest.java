@@ -0,0 +1,115 @@
+package com.krouser.backend.users.service;
+
+import com.krouser.backend.shared.util.TagGenerator;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.entity.UserStatus;
+import com.krouser.backend.users.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the allocator inside a caller transaction, as {@code UserService.createUser} does,
+ * against a tag the filter has never seen (written by another node): the insert collides in
+ * its own transaction and the next candidate is inserted without failing the caller's.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The inserts commit on their own connection, so the rows they collide with must be committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TagAllocatorTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final TagGenerator tagGenerator = new TagGenerator();
+    private TagAllocator tagAllocator;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users_roles");
+        jdbcTemplate.update("DELETE FROM users");
+        tagAllocator = allocator(userRepository);
+    }
+
+    @Test
+    void freeTagIsInsertedWithoutCheckingTheTableFirst() {
+        UserRepository repository = mock(UserRepository.class, delegatesTo(userRepository));
+        TagAllocator allocator = allocator(repository);
+        User user = newUser("ana@example.com", UUID.randomUUID());
+
+        User saved = allocator.assignTagAndSave(user, repository::saveAndFlush);
+
+        assertThat(saved.getTag()).isEqualTo(tagGenerator.generateTag(user.getAlias(), user.getIdPublic()));
+        verify(repository, never()).existsByTag(any());
+    }
+
+    @Test
+    void tagTakenOutsideTheFilterIsSkippedWithoutBreakingTheTransaction() {
+        User user = newUser("ana@example.com", UUID.randomUUID());
+        String firstCandidate = tagGenerator.generateTag(user.getAlias(), user.getIdPublic());
+        User other = newUser("otra@example.com", UUID.randomUUID());
+        other.setTag(firstCandidate);
+        userRepository.saveAndFlush(other);
+
+        // Throws UnexpectedRollbackException if the failed insert marked this transaction rollback-only
+        User saved = new TransactionTemplate(transactionManager)
+                .execute(status -> tagAllocator.assignTagAndSave(user, userRepository::save));
+
+        assertThat(saved.getTag()).isNotEqualToIgnoringCase(firstCandidate).startsWith("Ana#");
+        assertThat(tagAllocator.getMetrics()).containsEntry("takenOnCheck", 0L)
+                .containsEntry("insertCollisions", 1L).containsEntry("knownTags", 2L);
+        assertThat(userRepository.existsByTag(saved.getTag())).isTrue();
+    }
+
+    @Test
+    void knownTagsCountsDistinctTagsOnly() {
+        tagAllocator.markTaken("Ana#abc123");
+        tagAllocator.markTaken("ana#ABC123");
+        tagAllocator.recordCollision("Ana#abc123");
+        tagAllocator.markTaken("Luis#abc123");
+
+        assertThat(tagAllocator.getMetrics()).containsEntry("knownTags", 2L);
+    }
+
+    private TagAllocator allocator(UserRepository repository) {
+        return new TagAllocator(tagGenerator, repository, jdbcTemplate, transactionManager, 1000, 0.001, 8, 3);
+    }
+
+    private static User newUser(String username, UUID idPublic) {
+        User user = new User(username, "{noop}secret", List.of());
+        user.setIdPublic(idPublic);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAlias("Ana");
+        user.setTag("Ana#" + idPublic.toString().substring(30));
+        user.setNombre("Ana");
+        user.setApellidoPaterno("Perez");
+        user.setApellidoMaterno("Lopez");
+        return user;
+    }
+}
@@ -0,0 +1,292 @@
+package com.krouser.backend.users.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krouser.backend.audit.entity.AuditEvent;
+import com.krouser.backend.audit.service.AuditService;
+import com.krouser.backend.auth.security.PasswordHashingExecutor;
+import com.krouser.backend.rbac.entity.Role;
+import com.krouser.backend.rbac.repository.RoleRepository;
+import com.krouser.backend.shared.util.TagGenerator;
+import com.krouser.backend.users.dto.UserFilter;
+import com.krouser.backend.users.dto.UserImportReport;
+import com.krouser.backend.users.dto.UserImportRowResult;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.entity.UserStatus;
+import com.krouser.backend.users.repository.UserRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Imports NDJSON into H2 through the real JDBC batches. Each batch commits on its own, so
+ * the tests run outside a test transaction and clear the tables first.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTest {
+
+    private static final String FIXED_SUFFIX = "fixed0";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final PasswordHashingExecutor hashingExecutor = mock(PasswordHashingExecutor.class);
+    // First candidate is predictable, so a test can take it beforehand
+    private final TagGenerator tagGenerator = new TagGenerator() {
+        @Override
+        public String generateTag(String alias, UUID userId) {
+            return alias + "#" + FIXED_SUFFIX;
+        }
+    };
+    private TagAllocator tagAllocator;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users_roles");
+        jdbcTemplate.update("DELETE FROM users");
+        if (roleRepository.findByName("USER").isEmpty()) {
+            roleRepository.save(new Role("USER"));
+        }
+        when(hashingExecutor.encodeAll(anyList())).thenAnswer(invocation -> {
+            List<CharSequence> raw = invocation.getArgument(0);
+            return raw.stream().map(password -> "{noop}" + password).toList();
+        });
+        tagAllocator = new TagAllocator(tagGenerator, userRepository, jdbcTemplate, transactionManager, 1000, 0.001, 8, 3);
+    }
+
+    @Test
+    void batchInsertsUsersWithIdsRolesAndDistinctTags() throws IOException {
+        UserImportService service = service(userRepository, 10);
+
+        UserImportReport report = service.importUsers(stream(ndjson(
+                row("ana@example.com", "Ana", "USER"),
+                row("ana.b@example.com", "Ana", "USER"),
+                row("luis@example.com", "Luis", null))), UserExportService.Format.NDJSON, 1, "admin");
+
+        assertThat(report.isCompleted()).isTrue();
+        assertThat(report.getCreated()).isEqualTo(3);
+        assertThat(report.getBatches()).isEqualTo(1);
+        List<String> tags = report.getResults().stream().map(UserImportRowResult::getTag).toList();
+        assertThat(tags).doesNotHaveDuplicates().contains("Ana#" + FIXED_SUFFIX, "Luis#" + FIXED_SUFFIX);
+        // The second Ana got the next candidate from the filter, not from a failed insert
+        assertThat(tagAllocator.getMetrics()).containsEntry("insertCollisions", 0L);
+
+        // Ids were read back for the role links
+        User ana = userRepository.findByUsername("ana@example.com").orElseThrow();
+        Integer links = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users_roles ur JOIN roles r ON r.id = ur.role_id "
+                        + "WHERE ur.user_id = ? AND r.name = 'USER'", Integer.class, ana.getId());
+        assertThat(links).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_roles", Integer.class)).isEqualTo(2);
+        assertThat(ana.getTag()).isEqualTo(resultFor(report, "ana@example.com").getTag());
+    }
+
+    @Test
+    void usernameTakenAfterTheCheckFallsBackToRowByRow() throws IOException {
+        userRepository.saveAndFlush(existingUser("ana@example.com", "Otra#abc123"));
+        // The existence check misses it, as when another request inserts it concurrently
+        UserRepository racing = mock(UserRepository.class, delegatesTo(userRepository));
+        doReturn(List.of()).when(racing).findExistingUsernames(anyList());
+        UserImportService service = service(racing, 10);
+
+        UserImportReport report = service.importUsers(stream(ndjson(
+                row("luis@example.com", "Luis", "USER"),
+                row("ana@example.com", "Ana", "USER"),
+                row("eva@example.com", "Eva", null))), UserExportService.Format.NDJSON, 1, "admin");
+
+        assertThat(report.isCompleted()).isTrue();
+        assertThat(report.getResults()).extracting(UserImportRowResult::getStatus).containsExactly(
+                UserImportRowResult.Status.CREATED, UserImportRowResult.Status.EXISTS,
+                UserImportRowResult.Status.CREATED);
+        assertThat(resultFor(report, "ana@example.com").getMessage()).isEqualTo("El usuario ya existe");
+        assertThat(userRepository.existsByUsername("luis@example.com")).isTrue();
+        assertThat(userRepository.existsByUsername("eva@example.com")).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_roles", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void tagTakenOutsideTheFilterIsRetriedRowByRow() throws IOException {
+        // Written by another node: the fresh filter does not know this tag
+        userRepository.saveAndFlush(existingUser("otra@example.com", "Ana#" + FIXED_SUFFIX));
+        UserImportService service = service(userRepository, 10);
+
+        UserImportReport report = service.importUsers(stream(ndjson(
+                row("ana@example.com", "Ana", "USER"),
+                row("luis@example.com", "Luis", null))), UserExportService.Format.NDJSON, 1, "admin");
+
+        assertThat(report.getCreated()).isEqualTo(2);
+        String tag = resultFor(report, "ana@example.com").getTag();
+        assertThat(tag).startsWith("Ana#").isNotEqualTo("Ana#" + FIXED_SUFFIX);
+        assertThat(userRepository.findByUsername("ana@example.com").orElseThrow().getTag()).isEqualTo(tag);
+        assertThat(tagAllocator.getMetrics()).containsEntry("insertCollisions", 1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_roles", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void resumedImportReportsEachRowOnce() throws IOException {
+        String input = ndjson(
+                row("a1@example.com", "Ana", null),
+                row("a2@example.com", "Ana", null),
+                row("not-an-email", "Ana", null),
+                row("a4@example.com", "Ana", null),
+                "{not json",
+                row("a6@example.com", "Ana", null));
+        // The second batch of the first run fails before its insert
+        AtomicInteger calls = new AtomicInteger();
+        when(hashingExecutor.encodeAll(anyList())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("pool saturado");
+            }
+            List<CharSequence> raw = invocation.getArgument(0);
+            return raw.stream().map(password -> "{noop}" + password).toList();
+        });
+        UserImportService service = service(userRepository, 2);
+
+        UserImportReport first = service.importUsers(stream(input), UserExportService.Format.NDJSON, 1, "admin");
+
+        assertThat(first.isCompleted()).isFalse();
+        assertThat(first.getNextRow()).isEqualTo(4);
+        assertThat(first.getResults()).extracting(UserImportRowResult::getRow).containsExactly(1L, 2L, 3L, 4L, 6L);
+        assertThat(first.getResults()).extracting(UserImportRowResult::getStatus).containsExactly(
+                UserImportRowResult.Status.CREATED, UserImportRowResult.Status.CREATED,
+                UserImportRowResult.Status.INVALID, UserImportRowResult.Status.FAILED,
+                UserImportRowResult.Status.FAILED);
+        assertThat(first.getResults().get(4).getMessage()).isEqualTo("No importado: pool saturado");
+
+        UserImportReport resumed = service.importUsers(stream(input), UserExportService.Format.NDJSON,
+                first.getNextRow(), "admin");
+
+        assertThat(resumed.isCompleted()).isTrue();
+        assertThat(resumed.getResults()).extracting(UserImportRowResult::getRow).containsExactly(4L, 5L, 6L);
+        assertThat(resumed.getResults()).extracting(UserImportRowResult::getStatus).containsExactly(
+                UserImportRowResult.Status.CREATED, UserImportRowResult.Status.INVALID,
+                UserImportRowResult.Status.CREATED);
+        assertThat(resumed.getResults().get(1).getMessage()).startsWith("JSON mal formado: ");
+        assertThat(userRepository.count()).isEqualTo(4);
+    }
+
+    @Test
+    void exportedCsvImportsBackWithoutTheFormulaQuotes() throws Exception {
+        // Exported from another directory: one user whose text fields start with formula characters
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString(2)).thenReturn("ana@example.com");
+        when(row.getString(3)).thenReturn("-Ana");
+        when(row.getString(4)).thenReturn("-Ana#abc123");
+        when(row.getString(5)).thenReturn("=Ana");
+        when(row.getString(6)).thenReturn("'+Maria");
+        when(row.getString(7)).thenReturn("@Perez");
+        when(row.getString(8)).thenReturn("'Lopez");
+        when(row.getString(11)).thenReturn("USER");
+        JdbcTemplate exportJdbc = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(row);
+            return null;
+        }).when(exportJdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        new UserExportService(exportJdbc, new ObjectMapper(), mock(AuditService.class))
+                .export(new UserFilter(), UserExportService.Format.CSV, false, exported, new AuditEvent());
+
+        String csv = exported.toString(StandardCharsets.UTF_8);
+        assertThat(csv).contains(",'-Ana,", ",'=Ana,", ",''+Maria,", ",'@Perez,", ",'Lopez,");
+        // The export has no password column; everything else is imported as exported
+        String withPassword = Arrays.stream(csv.split("\r\n"))
+                .map(line -> line + (line.startsWith("idPublic,") ? ",password" : ",secret123"))
+                .collect(Collectors.joining("\r\n", "", "\r\n"));
+
+        UserImportReport report = service(userRepository, 10).importUsers(stream(withPassword),
+                UserExportService.Format.CSV, 1, "admin");
+
+        assertThat(report.getCreated()).isEqualTo(1);
+        User ana = userRepository.findByUsername("ana@example.com").orElseThrow();
+        assertThat(ana.getAlias()).isEqualTo("-Ana");
+        assertThat(ana.getNombre()).isEqualTo("=Ana");
+        assertThat(ana.getSegundoNombre()).isEqualTo("'+Maria");
+        assertThat(ana.getApellidoPaterno()).isEqualTo("@Perez");
+        assertThat(ana.getApellidoMaterno()).isEqualTo("'Lopez");
+    }
+
+    private UserImportService service(UserRepository repository, int batchSize) {
+        UserImportService service = new UserImportService(repository, roleRepository, hashingExecutor,
+                tagAllocator, mock(UserSearchIndex.class), mock(AuditService.class), jdbcTemplate,
+                new ObjectMapper(), Validation.buildDefaultValidatorFactory().getValidator(), transactionManager);
+        ReflectionTestUtils.setField(service, "batchSize", batchSize);
+        ReflectionTestUtils.setField(service, "maxRows", 1000L);
+        ReflectionTestUtils.setField(service, "maxTagInserts", 3);
+        return service;
+    }
+
+    private static UserImportRowResult resultFor(UserImportReport report, String username) {
+        return report.getResults().stream()
+                .filter(result -> username.equals(result.getUsername()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static String row(String username, String alias, String role) {
+        return "{\"username\":\"" + username + "\",\"password\":\"secret123\",\"alias\":\"" + alias
+                + "\",\"nombre\":\"" + alias + "\",\"apellidoPaterno\":\"Perez\",\"apellidoMaterno\":\"Lopez\""
+                + (role != null ? ",\"roles\":[\"" + role + "\"]" : "") + "}";
+    }
+
+    private static String ndjson(String... rows) {
+        return String.join("\n", rows) + "\n";
+    }
+
+    private static ByteArrayInputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static User existingUser(String username, String tag) {
+        User user = new User(username, "{noop}secret", List.of());
+        user.setIdPublic(UUID.randomUUID());
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAlias("Otra");
+        user.setTag(tag);
+        user.setNombre("Otra");
+        user.setApellidoPaterno("Perez");
+        user.setApellidoMaterno("Lopez");
+        return user;
+    }
+}
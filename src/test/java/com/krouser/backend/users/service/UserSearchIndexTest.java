@@ -0,0 +1,145 @@
+package com.krouser.backend.users.service;
+
+import com.krouser.backend.users.dto.UserSearchResult;
+import com.krouser.backend.users.entity.User;
+import com.krouser.backend.users.entity.UserStatus;
+import com.krouser.backend.users.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes go straight to the table, as another node would; the index only learns about them
+ * through {@code refresh} and the scheduled rebuild.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Each statement commits on its own, so updated_at moves as it does between nodes
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSearchIndexTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users_roles");
+        jdbcTemplate.update("DELETE FROM users");
+        userRepository.save(newUser("ana@example.com", "Ana", "Martinez"));
+        index = new UserSearchIndex(withoutStreamingHint(jdbcTemplate), 5000, 30_000);
+        index.rebuild();
+    }
+
+    @Test
+    void refreshPicksUpUsersCreatedElsewhere() {
+        userRepository.save(newUser("bea@example.com", "Bea", "Gonzalez"));
+        assertThat(index.search("gonzalez", 10)).isEmpty();
+
+        index.refresh();
+
+        assertThat(index.search("gonzalez", 10)).extracting(UserSearchResult::getUsername)
+                .containsExactly("bea@example.com");
+        assertThat(index.completeTag("bea#", 10)).hasSize(1);
+    }
+
+    @Test
+    void refreshPicksUpEditsMadeElsewhere() {
+        jdbcTemplate.update("UPDATE users SET apellido_paterno = 'Ortega' WHERE username = 'ana@example.com'");
+
+        index.refresh();
+
+        assertThat(index.search("ortega", 10)).extracting(UserSearchResult::getUsername)
+                .containsExactly("ana@example.com");
+        assertThat(index.search("martinez", 10)).isEmpty();
+        assertThat(index.getMetrics()).containsEntry("refreshedDocs", 1L);
+
+        // Inside the overlap the row is read again but left alone, it did not change
+        index.refresh();
+        assertThat(index.getMetrics()).containsEntry("refreshedDocs", 1L);
+    }
+
+    @Test
+    void rebuildDropsUsersDeletedElsewhere() {
+        jdbcTemplate.update("DELETE FROM users WHERE username = 'ana@example.com'");
+        index.refresh();
+        assertThat(index.search("martinez", 10)).hasSize(1);
+
+        index.scheduledRebuild();
+
+        assertThat(index.search("martinez", 10)).isEmpty();
+        assertThat(index.completeTag("ana#", 10)).isEmpty();
+    }
+
+    // H2 rejects MySQL's streaming hint setFetchSize(Integer.MIN_VALUE); drop it
+    private static JdbcTemplate withoutStreamingHint(JdbcTemplate target) {
+        DataSource dataSource = target.getDataSource();
+        return new JdbcTemplate(new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                            Object result = invoke(method, connection, args);
+                            return result instanceof PreparedStatement statement
+                                    ? ignoringStreamingHint(statement) : result;
+                        });
+            }
+        });
+    }
+
+    private static PreparedStatement ignoringStreamingHint(PreparedStatement statement) {
+        return (PreparedStatement) Proxy.newProxyInstance(UserSearchIndexTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("setFetchSize") && (int) args[0] == Integer.MIN_VALUE) {
+                        return null;
+                    }
+                    return invoke(method, statement, args);
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static User newUser(String username, String alias, String apellidoPaterno) {
+        User user = new User(username, "{noop}secret", List.of());
+        UUID idPublic = UUID.randomUUID();
+        user.setIdPublic(idPublic);
+        user.setStatus(UserStatus.ACTIVE);
+        user.setAlias(alias);
+        user.setTag(alias + "#" + idPublic.toString().substring(0, 6));
+        user.setNombre(alias);
+        user.setApellidoPaterno(apellidoPaterno);
+        user.setApellidoMaterno("Lopez");
+        return user;
+    }
+}